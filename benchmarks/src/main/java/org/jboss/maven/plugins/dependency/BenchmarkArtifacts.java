@@ -0,0 +1,29 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.versioning.VersionRange;
+
+/**
+ * Builds the artifacts used by the benchmarks.
+ *
+ * @author lgao
+ *
+ */
+final class BenchmarkArtifacts
+{
+
+   private BenchmarkArtifacts()
+   {
+   }
+
+   static Artifact artifact(String groupId, String artifactId, String version)
+   {
+      return new DefaultArtifact(groupId, artifactId, VersionRange.createFromVersion(version), "compile", "jar", null, new DefaultArtifactHandler("jar"));
+   }
+
+}
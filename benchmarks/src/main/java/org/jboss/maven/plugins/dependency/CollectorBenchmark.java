@@ -0,0 +1,146 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of collecting the managed artifacts of a synthetic BOM.
+ *
+ * @author lgao
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CollectorBenchmark
+{
+
+   /**
+    * How many dependencies are in the &lt;dependencyManagement&gt; of the BOM, a tenth of that are plugins.
+    */
+   @Param({"5000"})
+   public int entries;
+
+   /**
+    * Whether the BOM is read as a stream of XML events, or into a Maven Model.
+    */
+   @Param({"true", "false"})
+   public boolean streaming;
+
+   /**
+    * The profile overriding a part of the entries, or empty for none.
+    */
+   @Param({"", "prod"})
+   public String profile;
+
+   private File bomFile;
+
+   private URL bomURL;
+
+   private CollectConfig config;
+
+   @Setup(Level.Trial)
+   public void setUp() throws IOException
+   {
+      bomFile = File.createTempFile("benchmark-bom", ".pom");
+      writeBom(bomFile, entries);
+      bomURL = bomFile.toURI().toURL();
+      config = new CollectConfig();
+      config.setIncludeVersion(true);
+      config.setStreaming(streaming);
+      config.setProfile(profile.length() == 0 ? null : profile);
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown()
+   {
+      bomFile.delete();
+   }
+
+   @Benchmark
+   public List<String> collectDeclaredArtifacts() throws IOException, XmlPullParserException
+   {
+      return new MavenDependencyCollector().collectDeclaredArtifacts(bomURL, config);
+   }
+
+   private static void writeBom(File file, int entries) throws IOException
+   {
+      Writer writer = null;
+      try
+      {
+         writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+         writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+         writer.write("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n");
+         writer.write("  <modelVersion>4.0.0</modelVersion>\n");
+         writer.write("  <groupId>org.benchmark</groupId>\n  <artifactId>bom</artifactId>\n  <version>1.0</version>\n");
+         writer.write("  <packaging>pom</packaging>\n");
+         writer.write("  <properties>\n    <version.common>1.0</version.common>\n  </properties>\n");
+         writer.write("  <dependencyManagement>\n    <dependencies>\n");
+         for (int i = 0; i < entries; i++)
+         {
+            writeDependency(writer, "      ", i, "1." + i);
+         }
+         writer.write("    </dependencies>\n  </dependencyManagement>\n");
+         writer.write("  <build>\n    <pluginManagement>\n      <plugins>\n");
+         for (int i = 0; i < entries / 10; i++)
+         {
+            writer.write("        <plugin>\n          <groupId>org.benchmark.plugins</groupId>\n");
+            writer.write("          <artifactId>plugin" + i + "</artifactId>\n          <version>2." + i + "</version>\n");
+            writer.write("          <configuration>\n            <skip>false</skip>\n          </configuration>\n        </plugin>\n");
+         }
+         writer.write("      </plugins>\n    </pluginManagement>\n  </build>\n");
+         writer.write("  <profiles>\n    <profile>\n      <id>prod</id>\n");
+         writer.write("      <dependencyManagement>\n        <dependencies>\n");
+         for (int i = 0; i < entries; i += 10)
+         {
+            writeDependency(writer, "          ", i, "1." + i + "-prod");
+         }
+         writer.write("        </dependencies>\n      </dependencyManagement>\n    </profile>\n  </profiles>\n");
+         writer.write("</project>\n");
+      }
+      finally
+      {
+         IOUtil.close(writer);
+      }
+   }
+
+   private static void writeDependency(Writer writer, String indent, int i, String version) throws IOException
+   {
+      writer.write(indent + "<dependency>\n");
+      writer.write(indent + "  <groupId>org.benchmark.group" + (i % 100) + "</groupId>\n");
+      writer.write(indent + "  <artifactId>artifact" + i + "</artifactId>\n");
+      writer.write(indent + "  <version>" + version + "</version>\n");
+      writer.write(indent + "  <exclusions>\n" + indent + "    <exclusion>\n" + indent + "      <groupId>*</groupId>\n");
+      writer.write(indent + "      <artifactId>*</artifactId>\n" + indent + "    </exclusion>\n" + indent + "  </exclusions>\n");
+      writer.write(indent + "</dependency>\n");
+   }
+
+}
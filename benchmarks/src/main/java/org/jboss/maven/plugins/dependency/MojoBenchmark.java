@@ -0,0 +1,103 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the per artifact work of the check goal: the exclusion check and the key building.
+ *
+ * @author lgao
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MojoBenchmark
+{
+
+   /**
+    * How many exclusion patterns are configured, a third of them are groupIds, groupId:artifactId and wildcards each.
+    */
+   @Param({"100", "10000"})
+   public int exclusions;
+
+   private DependencyCheckMojo mojo;
+
+   private Artifact[] artifacts;
+
+   private int next;
+
+   @Setup(Level.Trial)
+   public void setUp()
+   {
+      Random random = new Random(42);
+      List<String> patterns = new ArrayList<String>(exclusions);
+      for (int i = 0; i < exclusions; i++)
+      {
+         switch (i % 3)
+         {
+            case 0:
+               patterns.add("org.group" + i);
+               break;
+            case 1:
+               patterns.add("org.group" + i + ":artifact" + i);
+               break;
+            default:
+               patterns.add("org.group" + i + ".*:*:*-redhat-?");
+         }
+      }
+      mojo = new DependencyCheckMojo();
+      mojo.excludedArtifacts = patterns;
+      // no excluded poms
+      AbstractDependencyCheckMojo.excludedGAs = new ArrayList<String>();
+
+      artifacts = new Artifact[1024];
+      for (int i = 0; i < artifacts.length; i++)
+      {
+         int group = random.nextInt(exclusions * 2);
+         artifacts[i] = BenchmarkArtifacts.artifact("org.group" + group + (i % 5 == 0 ? ".sub" : ""), "artifact" + group, "1.0." + i + (i % 7 == 0 ? "-redhat-1" : ""));
+      }
+   }
+
+   @Benchmark
+   public boolean isArtifactExcluded() throws MojoExecutionException
+   {
+      return mojo.isArtifactExcluded(nextArtifact());
+   }
+
+   @Benchmark
+   public String gatv()
+   {
+      return mojo.gatv(nextArtifact());
+   }
+
+   private Artifact nextArtifact()
+   {
+      next = (next + 1) & (artifacts.length - 1);
+      return artifacts[next];
+   }
+
+}
@@ -0,0 +1,151 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.artifact.Artifact;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Benchmarks of the full probe pipeline, {@link ProbeEngine} over {@link HttpArtifactProber} and
+ * {@link RepositoryClient}, against a stub repository served in the same JVM.
+ *
+ * The stub answers 404 for every path containing <code>missing</code>, 200 for all others, so the numbers show the
+ * cost of the client side and of the loopback round trips, not of a real repository.
+ *
+ * @author lgao
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProbePipelineBenchmark
+{
+
+   /**
+    * How many artifacts are probed in one invocation, a fifth of them are missing.
+    */
+   @Param({"1000"})
+   public int artifactCount;
+
+   /**
+    * How many probes are in flight.
+    */
+   @Param({"1", "8", "32"})
+   public int threads;
+
+   /**
+    * Whether each response takes a millisecond, like a repository in the same network.
+    */
+   @Param({"false", "true"})
+   public boolean latency;
+
+   private HttpServer server;
+
+   private ExecutorService serverExecutor;
+
+   private ProbeEngine engine;
+
+   private List<Artifact> artifacts;
+
+   @Setup(Level.Trial)
+   public void setUp() throws IOException
+   {
+      server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 128);
+      server.createContext("/", new StubRepository(latency));
+      serverExecutor = Executors.newCachedThreadPool();
+      server.setExecutor(serverExecutor);
+      server.start();
+
+      String repoURL = "http://127.0.0.1:" + server.getAddress().getPort() + "/repo/";
+      // the JDK reads the size of its keep-alive pool once, before the first request of the forked JVM
+      System.setProperty("http.maxConnections", String.valueOf(threads));
+      RepositoryClient client = new RepositoryClient(repoURL);
+      engine = new ProbeEngine(new HttpArtifactProber(client), threads, false);
+
+      artifacts = new ArrayList<Artifact>(artifactCount);
+      for (int i = 0; i < artifactCount; i++)
+      {
+         String artifactId = (i % 5 == 0 ? "missing" : "artifact") + i;
+         artifacts.add(BenchmarkArtifacts.artifact("org.group" + (i % 50), artifactId, "1.0." + i));
+      }
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown()
+   {
+      server.stop(0);
+      serverExecutor.shutdownNow();
+   }
+
+   @Benchmark
+   public List<ProbeResult> probeAll() throws InterruptedException
+   {
+      return engine.probeAll(artifacts);
+   }
+
+   /**
+    * Answers HEAD and GET requests without a body.
+    */
+   private static class StubRepository implements HttpHandler
+   {
+      private final boolean latency;
+
+      private StubRepository(boolean latency)
+      {
+         super();
+         this.latency = latency;
+      }
+
+      public void handle(HttpExchange exchange) throws IOException
+      {
+         try
+         {
+            if (latency)
+            {
+               Thread.sleep(1);
+            }
+         }
+         catch (InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+         }
+         String path = exchange.getRequestURI().getPath();
+         int code = path.contains("missing") ? HttpURLConnection.HTTP_NOT_FOUND : HttpURLConnection.HTTP_OK;
+         exchange.sendResponseHeaders(code, -1);
+         OutputStream out = exchange.getResponseBody();
+         out.close();
+         exchange.close();
+      }
+   }
+
+}
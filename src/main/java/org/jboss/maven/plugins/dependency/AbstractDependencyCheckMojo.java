@@ -3,12 +3,13 @@
  */
 package org.jboss.maven.plugins.dependency;
 
+import java.io.File;
 import java.io.IOException;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.model.Dependency;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.dependency.resolvers.AbstractResolveMojo;
@@ -22,11 +23,17 @@ import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 public abstract class AbstractDependencyCheckMojo extends AbstractResolveMojo
 {
    
-   public static final String MAVEN_CENTRAL_REPO_URL = "http://central.maven.org/maven2/";
+   public static final String MAVEN_CENTRAL_REPO_URL = "https://repo.maven.apache.org/maven2/";
    
    // This is used for cache
    protected static List<String> excludedGAs;
    
+   // The excluded poms being loaded in background
+   private static ExcludedPomsLoader excludedPomsLoader;
+   
+   // Compiled from excludedGAs once they are loaded, shared by all modules, read without lock
+   private static volatile ExclusionMatcher excludedGAsMatcher;
+   
    /**
     * Excluded poms, where plugins/dependencies are defined in their &lt;pluginManagement&gt; and &lt;dependencyManagement&gt; section.
     * 
@@ -37,6 +44,55 @@ public abstract class AbstractDependencyCheckMojo extends AbstractResolveMojo
    @Parameter(property = "excludedPoms")
    protected List<String> excludedPoms;
    
+   /**
+    * Where the excluded poms are cached.
+    * 
+    * The cached poms are revalidated on each use, they are downloaded and parsed again only when they are changed.
+    */
+   @Parameter(property = "excludedPomsCacheDirectory", defaultValue = "${user.home}/.m2/dependency-check/poms")
+   protected File excludedPomsCacheDirectory;
+   
+   /**
+    * 
+    * Milliseconds to wait for a connection to a remote repository, a request which times out is retried like a failed one.
+    * 
+    * The excluded poms are downloaded with the same timeouts.
+    * 
+    */
+   @Parameter( property = "connectTimeout", defaultValue = "10000" )
+   protected int connectTimeout;
+   
+   /**
+    * 
+    * Milliseconds to wait for data of a response from a remote repository, a request which times out is retried like a failed one.
+    * 
+    */
+   @Parameter( property = "readTimeout", defaultValue = "30000" )
+   protected int readTimeout;
+   
+   /**
+    * Milliseconds to wait for all excluded poms, and their parents and BOMs, to be downloaded and read. The check fails
+    * when they are not loaded in time, 0 to wait forever.
+    */
+   @Parameter(property = "excludedPomsTimeout", defaultValue = "300000")
+   protected long excludedPomsTimeout;
+   
+   /**
+    * Whether the excluded poms are read as a stream, only the &lt;pluginManagement&gt; and &lt;dependencyManagement&gt; sections are kept in memory.
+    * 
+    * Set it to false to read the excluded poms into full Maven Models.
+    */
+   @Parameter(property = "streamExcludedPoms", defaultValue = "true")
+   protected boolean streamExcludedPoms;
+   
+   /**
+    * Whether the parents and the <b>import</b> scoped BOMs of the excluded poms are excluded too.
+    * 
+    * They are searched in the remote repositories of the project, each of them is read only once.
+    */
+   @Parameter(property = "recursiveExcludedPoms", defaultValue = "false")
+   protected boolean recursiveExcludedPoms;
+   
    /**
     * Whether include version string during the artifacts collection.
     * 
@@ -62,10 +118,16 @@ public abstract class AbstractDependencyCheckMojo extends AbstractResolveMojo
     * Excluded Artifacts, specify the GroupId[:ArtifactId][:version] to filter the artifacts out from the missing artifacts.
     * If artifactId is specified, then only that artifact of the same groupId will be filtered, otherwise, all artifactIds of that groupId will be filtered.
     * If version is specified, then only that version of artifact will be filtered, otherwise, all version of that artifact will be filtered.
+    * Wildcards '*' and '?' can be used, like: org.jboss.*:*:*-redhat-*
     */
    @Parameter(property = "excludedArtifacts")
    protected List<String> excludedArtifacts;
    
+   /**
+    * Compiled from excludedArtifacts of current module on first use, the pipeline checks the artifacts in another thread.
+    */
+   private volatile ExclusionMatcher exclusionMatcher;
+   
    
    protected String gatv(Artifact artifact)
    {
@@ -89,107 +151,217 @@ public abstract class AbstractDependencyCheckMojo extends AbstractResolveMojo
       return sb.toString();
    }
    
-   private List<String> getExcludedGAs() throws IOException, XmlPullParserException
+   /**
+    * Starts fetching and parsing the excluded poms in background, if it is not done yet.
+    */
+   protected void startLoadingExcludedPoms()
    {
       if (excludedPoms == null || excludedPoms.size() == 0)
       {
-         return null;
+         return;
       }
-      getLog().debug("Checking excluded poms: " + excludedPoms);
-      List<String> artifactsGAs = new ArrayList<String>();
-      MavenDependencyCollector collector = new MavenDependencyCollector();
-      collector.setLogger(getLog());
-      CollectConfig config = new CollectConfig();
-      config.setIncludeVersion(includeVersion);
-      config.setProfile(profile);
-      for (String pom: excludedPoms)
-      {
-         URL pomURL = new URL(pom);
-         List<String> gas = collector.collectDeclaredArtifacts(pomURL, config);
-         for (String ga: gas)
+      ExcludedPomsLoader loader = null;
+      synchronized (AbstractDependencyCheckMojo.class)
+      {
+         if (excludedGAs != null || excludedPomsLoader != null)
          {
-            if (!artifactsGAs.contains(ga))
+            return;
+         }
+         CollectConfig config = new CollectConfig();
+         config.setIncludeVersion(includeVersion);
+         config.setProfile(profile);
+         config.setStreaming(streamExcludedPoms);
+         config.setRecursive(recursiveExcludedPoms);
+         config.setRepositories(getRepositoryURLs());
+         RemotePomCache pomCache = new RemotePomCache(excludedPomsCacheDirectory);
+         pomCache.setLogger(getLog());
+         pomCache.setConnectTimeout(connectTimeout);
+         pomCache.setReadTimeout(readTimeout);
+         loader = new ExcludedPomsLoader(excludedPoms, config, pomCache, getLog());
+         loader.setTimeout(excludedPomsTimeout);
+         excludedPomsLoader = loader;
+      }
+      // started outside of the lock, the other modules do not wait for the threads to be created
+      loader.start();
+   }
+   
+   /**
+    * Gets the matcher of the excluded poms, it is compiled once when they are loaded and shared by all modules.
+    *
+    * Only the checks before it is published wait for the excluded poms and take the lock.
+    */
+   private ExclusionMatcher getExcludedGAsMatcher() throws MojoExecutionException
+   {
+      ExclusionMatcher matcher = excludedGAsMatcher;
+      if (matcher != null)
+      {
+         return matcher;
+      }
+      List<String> gas = null;
+      try
+      {
+         gas = getExcludedGAs();
+      }
+      catch (IOException e)
+      {
+         throw new MojoExecutionException("Error when reading from excluded poms", e);
+      }
+      catch (XmlPullParserException e)
+      {
+         throw new MojoExecutionException("Error when parsing the excluded poms", e);
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw new MojoExecutionException("Interrupted when reading from excluded poms", e);
+      }
+      synchronized (AbstractDependencyCheckMojo.class)
+      {
+         if (excludedGAsMatcher == null)
+         {
+            if (excludedGAs == null)
             {
-               artifactsGAs.add(ga);
+               excludedGAs = gas == null ? new ArrayList<String>(0) : gas;
             }
+            matcher = new ExclusionMatcher();
+            matcher.addAll(excludedGAs);
+            excludedGAsMatcher = matcher;
+            getLog().debug("Compiled " + matcher.size() + " exclusion patterns of excluded poms.");
          }
+         return excludedGAsMatcher;
+      }
+   }
+   
+   /**
+    * URLs of the remote repositories of the project, ending with '/'.
+    */
+   private List<String> getRepositoryURLs()
+   {
+      List<String> urls = new ArrayList<String>();
+      if (project != null && project.getRemoteArtifactRepositories() != null)
+      {
+         for (Object repo: project.getRemoteArtifactRepositories())
+         {
+            String url = ((ArtifactRepository)repo).getUrl();
+            urls.add(url.endsWith("/") ? url : url + "/");
+         }
+      }
+      if (!urls.contains(MAVEN_CENTRAL_REPO_URL))
+      {
+         urls.add(MAVEN_CENTRAL_REPO_URL);
+      }
+      return urls;
+   }
+   
+   private List<String> getExcludedGAs() throws IOException, XmlPullParserException, InterruptedException
+   {
+      if (excludedPoms == null || excludedPoms.size() == 0)
+      {
+         return null;
+      }
+      startLoadingExcludedPoms();
+      ExcludedPomsLoader loader = null;
+      synchronized (AbstractDependencyCheckMojo.class)
+      {
+         if (excludedGAs != null)
+         {
+            return excludedGAs;
+         }
+         loader = excludedPomsLoader;
+      }
+      // waits out of the lock, the loader is thread safe
+      return loader == null ? null : loader.get();
+   }
+   
+   /**
+    * Whether the exclusion checks answer at once, without waiting for the excluded poms to be loaded.
+    */
+   protected boolean isExclusionReady()
+   {
+      if (excludedGAsMatcher != null || excludedPoms == null || excludedPoms.size() == 0)
+      {
+         return true;
+      }
+      startLoadingExcludedPoms();
+      synchronized (AbstractDependencyCheckMojo.class)
+      {
+         return excludedGAs != null || excludedPomsLoader.isDone();
       }
-      return artifactsGAs;
    }
    
    protected boolean isArtifactExcluded(Artifact artifact) throws MojoExecutionException
    {
-      return isArtifactExcluded(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(), artifact.getScope());
+      return getExclusionReason(artifact) != null;
+   }
+   
+   /**
+    * Gets why the artifact is skipped during dependency check, null if it is checked.
+    */
+   protected String getExclusionReason(Artifact artifact) throws MojoExecutionException
+   {
+      return getExclusionReason(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(), artifact.getScope());
    }
    
    protected boolean isDependencyExcluded(Dependency dependency) throws MojoExecutionException
    {
-      return isArtifactExcluded(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion(), dependency.getScope());
+      return getExclusionReason(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion(), dependency.getScope()) != null;
    }
    
-   private boolean isArtifactExcluded(String groupId, String artifactId, String version, String artifactScope) throws MojoExecutionException
+   /**
+    * Whether the managed dependency of the BOM is tested, by the generated test poms and by the verify-bom goal.
+    */
+   protected boolean isBomTestDependency(Dependency dep) throws MojoExecutionException
    {
-      if (excludedGAs == null)
+      if (dep.getScope() != null
+          && (dep.getScope().equals("runtime") || dep.getScope().equals("system") || dep.getScope().equals("import"))) {
+         
+          getLog().debug("Ignoring runtime/system/import dependency " + dep);
+          return false;
+      }
+      
+      if (dep.getType() != null && dep.getType().equals("pom"))
       {
-         try
-         {
-            excludedGAs = getExcludedGAs();
-            if (excludedGAs == null)
-            {
-               excludedGAs = new ArrayList<String>(0);
-            }
-         }
-         catch (IOException e)
-         {
-            throw new MojoExecutionException("Error when reading from excluded poms", e);
-         }
-         catch (XmlPullParserException e)
-         {
-            throw new MojoExecutionException("Error when parsing the excluded poms", e);
-         }
+         getLog().debug("Ingoring pom dependencies" + dep);
+         return false;
       }
       
+      return !isDependencyExcluded(dep);
+   }
+   
+   private String getExclusionReason(String groupId, String artifactId, String version, String artifactScope) throws MojoExecutionException
+   {
+      ExclusionMatcher gasMatcher = getExcludedGAsMatcher();
+      
       if (artifactScope == null || artifactScope.length() == 0)
       {
          artifactScope = "compile";
       }
 
-      String line = groupId + ":" + artifactId + ":" + version;
-      
-      getLog().debug("Checking if " + line + " should be skipped during dependency check.");
-      
-      if (this.scope != null)
+      if (getLog().isDebugEnabled())
       {
-         getLog().debug("Excluded scope: " + scope);
+         getLog().debug("Checking if " + groupId + ":" + artifactId + ":" + version + " should be skipped during dependency check.");
+         if (this.scope != null)
+         {
+            getLog().debug("Excluded scope: " + scope);
+         }
       }
       if (this.scope != null && this.scope.trim().equals(artifactScope))
       {
-         return true;
+         return "scope: " + artifactScope;
       }
       
-      if (excludedGAs != null && excludedGAs.size() > 0)
+      ExclusionMatcher matcher = exclusionMatcher;
+      if (matcher == null)
       {
-         for (String gaV: excludedGAs)
-         {
-            if (line.startsWith(gaV))
-            {
-               return true;
-            }
-         }
+         matcher = new ExclusionMatcher();
+         matcher.addAll(excludedArtifacts);
+         exclusionMatcher = matcher;
       }
-      
-      if (excludedArtifacts != null && excludedArtifacts.size() > 0)
+      if (gasMatcher.matches(groupId, artifactId, version) || matcher.matches(groupId, artifactId, version))
       {
-         
-         for (String excludedArti: excludedArtifacts)
-         {
-            if (line.startsWith(excludedArti))
-            {
-               return true;
-            }
-         }
+         return "excluded artifacts";
       }
-      return false;
+      return null;
    }
    
 
@@ -0,0 +1,221 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Limits the concurrent requests to one host, the limit adapts to what the host can sustain.
+ *
+ * The limit grows by one after as many successful requests as the limit (additive increase), and is halved when the
+ * host throttles (multiplicative decrease). No request is sent before the <b>Retry-After</b> of the host has passed.
+ *
+ * After too many failures in a row the circuit opens: requests fail at once until the cool down has passed, then one
+ * trial request decides whether the circuit closes again.
+ *
+ * @author lgao
+ *
+ */
+public class AdaptiveLimiter
+{
+
+   private static final ConcurrentMap<String, AdaptiveLimiter> HOSTS = new ConcurrentHashMap<String, AdaptiveLimiter>();
+
+   private static final int FAILURE_THRESHOLD = 20;
+
+   private static final long OPEN_MILLIS = 30 * 1000L;
+
+   private final String host;
+
+   private int maxLimit;
+
+   private double limit;
+
+   private int inFlight;
+
+   private long pausedUntil;
+
+   private int failures;
+
+   private long openUntil;
+
+   private boolean trialInFlight;
+
+   /**
+    * @param host the host the requests are sent to
+    * @param maxLimit the maximum concurrent requests
+    */
+   public AdaptiveLimiter(String host, int maxLimit)
+   {
+      super();
+      this.host = host;
+      this.maxLimit = maxLimit < 1 ? 1 : maxLimit;
+      // starts low, and climbs to what the host sustains
+      this.limit = Math.max(1, this.maxLimit / 4);
+   }
+
+   /**
+    * Gets the limiter of the host, shared by all repositories on the same host in current JVM. The maximum of an
+    * existing limiter is updated to the one asked, so that it follows the configuration of the latest module.
+    */
+   public static AdaptiveLimiter forHost(String host, int maxLimit)
+   {
+      AdaptiveLimiter limiter = HOSTS.get(host);
+      if (limiter == null)
+      {
+         AdaptiveLimiter newLimiter = new AdaptiveLimiter(host, maxLimit);
+         limiter = HOSTS.putIfAbsent(host, newLimiter);
+         if (limiter == null)
+         {
+            return newLimiter;
+         }
+      }
+      limiter.setMaxLimit(maxLimit);
+      return limiter;
+   }
+
+   /**
+    * Waits until a request can be sent to the host, fails at once if the circuit is open.
+    *
+    * Each acquire must be followed by one of {@link #onSuccess()}, {@link #onThrottled(long)}, {@link #onFailure()}, or
+    * {@link #release()} when the request was not sent.
+    */
+   public synchronized void acquire() throws IOException, InterruptedException
+   {
+      while (true)
+      {
+         long now = System.currentTimeMillis();
+         if (openUntil > now)
+         {
+            throw new IOException("Too many failures of host: " + host + ", no request is sent in " + (openUntil - now) + " ms");
+         }
+         if (openUntil > 0)
+         {
+            // half open, only the trial request is sent
+            if (!trialInFlight)
+            {
+               trialInFlight = true;
+               inFlight++;
+               return;
+            }
+            wait(OPEN_MILLIS);
+         }
+         else if (pausedUntil > now)
+         {
+            wait(pausedUntil - now);
+         }
+         else if (inFlight < (int)limit)
+         {
+            inFlight++;
+            return;
+         }
+         else
+         {
+            wait();
+         }
+      }
+   }
+
+   /**
+    * The host answered normally, the artifact may be found or not.
+    */
+   public synchronized void onSuccess()
+   {
+      inFlight--;
+      failures = 0;
+      openUntil = 0;
+      trialInFlight = false;
+      limit = Math.min(maxLimit, limit + 1 / limit);
+      notifyAll();
+   }
+
+   /**
+    * The host asked to slow down, like 429 or 503.
+    *
+    * @param retryAfter milliseconds no request should be sent
+    */
+   public synchronized void onThrottled(long retryAfter)
+   {
+      inFlight--;
+      trialInFlight = false;
+      long now = System.currentTimeMillis();
+      // the requests in flight when the host starts throttling decrease the limit only once
+      if (pausedUntil <= now)
+      {
+         limit = Math.max(1, limit / 2);
+      }
+      pausedUntil = Math.max(pausedUntil, now + retryAfter);
+      notifyAll();
+   }
+
+   /**
+    * The request failed, by an IOException or a server error.
+    */
+   public synchronized void onFailure()
+   {
+      inFlight--;
+      trialInFlight = false;
+      failures++;
+      if (failures >= FAILURE_THRESHOLD)
+      {
+         openUntil = System.currentTimeMillis() + OPEN_MILLIS;
+      }
+      notifyAll();
+   }
+
+   /**
+    * Gives the permit back without an answer of the host, the limit and the circuit are not changed.
+    */
+   public synchronized void release()
+   {
+      inFlight--;
+      trialInFlight = false;
+      notifyAll();
+   }
+
+   /**
+    * @param maxLimit the maximum concurrent requests, the current limit is lowered to it if needed
+    */
+   public synchronized void setMaxLimit(int maxLimit)
+   {
+      this.maxLimit = maxLimit < 1 ? 1 : maxLimit;
+      limit = Math.min(limit, this.maxLimit);
+      notifyAll();
+   }
+
+   /**
+    * @return the maximum concurrent requests
+    */
+   public synchronized int getMaxLimit()
+   {
+      return maxLimit;
+   }
+
+   /**
+    * @return the current limit of concurrent requests
+    */
+   public synchronized int getLimit()
+   {
+      return (int)limit;
+   }
+
+   /**
+    * @return whether requests fail at once now
+    */
+   public synchronized boolean isOpen()
+   {
+      return openUntil > System.currentTimeMillis();
+   }
+
+   /**
+    * @return the host
+    */
+   public String getHost()
+   {
+      return host;
+   }
+
+}
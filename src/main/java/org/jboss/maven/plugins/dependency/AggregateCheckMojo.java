@@ -0,0 +1,116 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+
+/**
+ *
+ * Goal of "dependency-check:check-aggregate" does the check of "dependency-check:check" once for the whole reactor.
+ *
+ * The artifacts of all modules are collected into one set, each artifact is checked once, and all missing artifacts
+ * are recorded in one list. Each missing artifact is followed by the modules which pulled it in:
+ *
+ * <pre>
+ *   G:A:T:V &lt;- module-a, module-b
+ * </pre>
+ *
+ * @author lgao
+ *
+ */
+@Mojo( name = "check-aggregate", aggregator = true, requiresDependencyResolution = ResolutionScope.TEST, threadSafe = true )
+public class AggregateCheckMojo extends DependencyCheckMojo
+{
+
+   /**
+    * The modules pulling in each artifact, in the order of the reactor.
+    */
+   private final Map<Artifact, List<String>> modules = new HashMap<Artifact, List<String>>();
+
+   /**
+    * The module being collected.
+    */
+   private String currentModule;
+
+   /**
+    * Collects the artifacts of each module of the reactor, the artifacts shared by modules are checked once.
+    */
+   @Override
+   protected Set<Artifact> getAllArtifacts(ProbePipeline pipeline) throws Exception
+   {
+      Set<Artifact> artifacts = new HashSet<Artifact>();
+      MavenProject topProject = this.project;
+      List<MavenProject> projects = this.reactorProjects;
+      if (projects == null || projects.isEmpty())
+      {
+         projects = new ArrayList<MavenProject>();
+         projects.add(topProject);
+      }
+      try
+      {
+         for (MavenProject module: projects)
+         {
+            getLog().debug("Collecting artifacts of module: " + module.getId());
+            // the dependency sets and the plugins are taken from current project
+            this.project = module;
+            this.currentModule = module.getArtifactId();
+            addProjectArtifacts(artifacts, pipeline);
+         }
+      }
+      finally
+      {
+         this.project = topProject;
+         this.currentModule = null;
+      }
+      getLog().info("Collected " + artifacts.size() + " artifacts from " + projects.size() + " modules.");
+      return artifacts;
+   }
+
+   @Override
+   protected void addArtifact(Set<Artifact> artifacts, Artifact artifact, ProbePipeline pipeline) throws InterruptedException
+   {
+      List<String> pulledBy = modules.get(artifact);
+      if (pulledBy == null)
+      {
+         pulledBy = new ArrayList<String>();
+         modules.put(artifact, pulledBy);
+      }
+      if (currentModule != null && !pulledBy.contains(currentModule))
+      {
+         pulledBy.add(currentModule);
+      }
+      super.addArtifact(artifacts, artifact, pipeline);
+   }
+
+   @Override
+   protected String missingLine(Artifact artifact)
+   {
+      StringBuilder sb = new StringBuilder(gatv(artifact));
+      List<String> pulledBy = modules.get(artifact);
+      if (pulledBy != null && !pulledBy.isEmpty())
+      {
+         sb.append(" <- ");
+         for (int i = 0; i < pulledBy.size(); i++)
+         {
+            if (i > 0)
+            {
+               sb.append(", ");
+            }
+            sb.append(pulledBy.get(i));
+         }
+      }
+      return sb.toString();
+   }
+
+}
@@ -0,0 +1,24 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import org.apache.maven.artifact.Artifact;
+
+/**
+ * Checks whether an artifact exists in a Maven Repository.
+ *
+ * Implementations are called from several threads at the same time.
+ *
+ * @author lgao
+ *
+ */
+public interface ArtifactProber
+{
+
+   /**
+    * Checks the artifact, the returned result is never null.
+    */
+   ProbeResult probe(Artifact artifact);
+
+}
@@ -0,0 +1,105 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.maven.artifact.Artifact;
+
+/**
+ * Answers from the {@link PersistentProbeCache} when possible, only asks the repository on cache misses.
+ *
+ * @author lgao
+ *
+ */
+public class CachingArtifactProber implements RepositoryFileProber
+{
+
+   private final RepositoryFileProber delegate;
+
+   private final String repoURL;
+
+   private final PersistentProbeCache cache;
+
+   private final AtomicLong lookups = new AtomicLong();
+
+   private final AtomicLong hits = new AtomicLong();
+
+   /**
+    * @param delegate asks the repository
+    * @param repoURL the repository URL, ends with '/'
+    * @param cache the cache shared by all repositories
+    */
+   public CachingArtifactProber(RepositoryFileProber delegate, String repoURL, PersistentProbeCache cache)
+   {
+      super();
+      this.delegate = delegate;
+      this.repoURL = repoURL;
+      this.cache = cache;
+   }
+
+   public ProbeResult probe(Artifact artifact)
+   {
+      String key = cacheKey(repoURL, artifact);
+      int code = cache.get(key, artifact.isSnapshot());
+      lookups.incrementAndGet();
+      if (code != -1)
+      {
+         hits.incrementAndGet();
+         return ProbeResult.remembered(artifact, repoURL + HttpArtifactProber.artifactPath(artifact), code, cache.getTime(key));
+      }
+      ProbeResult result = delegate.probe(artifact);
+      if (!result.isFailed())
+      {
+         cache.put(key, result.getResponseCode());
+      }
+      return result;
+   }
+
+   /**
+    * The files are cached by their paths, apart from the artifacts which are cached by their coordinates.
+    */
+   public ProbeResult probeFile(Artifact artifact, String path)
+   {
+      String key = repoURL + " " + path;
+      int code = cache.get(key, artifact.isSnapshot());
+      lookups.incrementAndGet();
+      if (code != -1)
+      {
+         hits.incrementAndGet();
+         return ProbeResult.remembered(artifact, repoURL + path, code, cache.getTime(key));
+      }
+      ProbeResult result = delegate.probeFile(artifact, path);
+      if (!result.isFailed())
+      {
+         cache.put(key, result.getResponseCode());
+      }
+      return result;
+   }
+
+   /**
+    * @return how many probes looked up the cache
+    */
+   public long getLookups()
+   {
+      return lookups.get();
+   }
+
+   /**
+    * @return how many probes were answered by the cache
+    */
+   public long getHits()
+   {
+      return hits.get();
+   }
+
+   /**
+    * The key of an artifact in a repository: repository URL and groupId:artifactId:version.
+    */
+   static String cacheKey(String repoURL, Artifact artifact)
+   {
+      return repoURL + " " + artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion();
+   }
+
+}
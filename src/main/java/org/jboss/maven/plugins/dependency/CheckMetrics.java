@@ -0,0 +1,289 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Measures of one execution of the check goal: wall time of each phase, probe outcomes and latencies of each
+ * repository, and the hit ratios of the caches.
+ *
+ * It is written as a JSON report, so that it can be compared between builds.
+ *
+ * @author lgao
+ *
+ */
+public class CheckMetrics
+{
+
+   private final String project;
+
+   private final long startTime = System.currentTimeMillis();
+
+   private final Map<String, Long> phases = new LinkedHashMap<String, Long>();
+
+   private final Map<String, RepositoryMetrics> repositories = new LinkedHashMap<String, RepositoryMetrics>();
+
+   private final Map<String, long[]> caches = new LinkedHashMap<String, long[]>();
+
+   /**
+    * @param project the project being checked, like groupId:artifactId:version
+    */
+   public CheckMetrics(String project)
+   {
+      super();
+      this.project = project;
+   }
+
+   /**
+    * Adds the wall time since start to the phase.
+    */
+   public synchronized void phase(String name, long start)
+   {
+      long millis = System.currentTimeMillis() - start;
+      Long previous = phases.get(name);
+      phases.put(name, previous == null ? millis : previous + millis);
+   }
+
+   /**
+    * Gets the metrics of the repository, they are created on first use.
+    */
+   public synchronized RepositoryMetrics repository(String repoURL)
+   {
+      RepositoryMetrics metrics = repositories.get(repoURL);
+      if (metrics == null)
+      {
+         metrics = new RepositoryMetrics();
+         repositories.put(repoURL, metrics);
+      }
+      return metrics;
+   }
+
+   /**
+    * Records how many lookups of the cache are answered by it.
+    */
+   public synchronized void cache(String name, long lookups, long hits)
+   {
+      long[] counts = caches.get(name);
+      if (counts == null)
+      {
+         counts = new long[2];
+         caches.put(name, counts);
+      }
+      counts[0] += lookups;
+      counts[1] += hits;
+   }
+
+   /**
+    * Writes the JSON report.
+    */
+   public void write(File file) throws IOException
+   {
+      File dir = file.getAbsoluteFile().getParentFile();
+      if (!dir.exists())
+      {
+         dir.mkdirs();
+      }
+      Writer writer = null;
+      try
+      {
+         writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+         writer.write(toJson());
+      }
+      finally
+      {
+         IOUtil.close(writer);
+      }
+   }
+
+   /**
+    * Gets the JSON report.
+    */
+   public synchronized String toJson()
+   {
+      StringBuilder sb = new StringBuilder();
+      sb.append("{\n");
+      sb.append("  \"project\": ").append(quote(project)).append(",\n");
+      sb.append("  \"totalMillis\": ").append(System.currentTimeMillis() - startTime).append(",\n");
+      sb.append("  \"phases\": {");
+      String separator = "\n";
+      for (Map.Entry<String, Long> entry: phases.entrySet())
+      {
+         sb.append(separator).append("    ").append(quote(entry.getKey())).append(": ").append(entry.getValue());
+         separator = ",\n";
+      }
+      sb.append("\n  },\n");
+      sb.append("  \"repositories\": [");
+      separator = "\n";
+      for (Map.Entry<String, RepositoryMetrics> entry: repositories.entrySet())
+      {
+         sb.append(separator);
+         entry.getValue().toJson(entry.getKey(), sb);
+         separator = ",\n";
+      }
+      sb.append("\n  ],\n");
+      sb.append("  \"caches\": {");
+      separator = "\n";
+      for (Map.Entry<String, long[]> entry: caches.entrySet())
+      {
+         long lookups = entry.getValue()[0];
+         long hits = entry.getValue()[1];
+         sb.append(separator).append("    ").append(quote(entry.getKey())).append(": {\"lookups\": ").append(lookups);
+         sb.append(", \"hits\": ").append(hits);
+         sb.append(", \"hitRatio\": ").append(lookups == 0 ? "0.0" : String.valueOf((double)hits / lookups)).append("}");
+         separator = ",\n";
+      }
+      sb.append("\n  }\n");
+      sb.append("}\n");
+      return sb.toString();
+   }
+
+   static String quote(String str)
+   {
+      StringBuilder sb = new StringBuilder("\"");
+      for (int i = 0; i < str.length(); i++)
+      {
+         char c = str.charAt(i);
+         if (c == '"' || c == '\\')
+         {
+            sb.append('\\').append(c);
+         }
+         else if (c < 0x20)
+         {
+            sb.append(String.format("\\u%04x", (int)c));
+         }
+         else
+         {
+            sb.append(c);
+         }
+      }
+      return sb.append('"').toString();
+   }
+
+   /**
+    * Probe outcomes and latencies of one repository.
+    *
+    * The latencies are counted in a histogram of fixed buckets, so the memory does not grow with the probes: the
+    * microseconds are split in {@link #SUB_BUCKETS} buckets per power of two, a percentile is the upper bound of its
+    * bucket, at most 1/{@link #SUB_BUCKETS} above the real latency.
+    */
+   public static class RepositoryMetrics
+   {
+      private static final int SUB_BUCKET_BITS = 3;
+
+      private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+      private long found;
+
+      private long missing;
+
+      private long errors;
+
+      private long probes;
+
+      private long maxNanos;
+
+      private final long[] buckets = new long[(64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+
+      /**
+       * Records the outcome and the latency in nanoseconds of one probe.
+       */
+      public synchronized void record(ProbeResult result, long nanos)
+      {
+         if (result.isFailed())
+         {
+            errors++;
+         }
+         else if (result.isMissing())
+         {
+            missing++;
+         }
+         else
+         {
+            found++;
+         }
+         probes++;
+         maxNanos = Math.max(maxNanos, nanos);
+         buckets[bucket(Math.max(0, nanos) / 1000)]++;
+      }
+
+      private synchronized void toJson(String repoURL, StringBuilder sb)
+      {
+         sb.append("    {\"url\": ").append(quote(repoURL));
+         sb.append(", \"probes\": ").append(probes);
+         sb.append(", \"found\": ").append(found);
+         sb.append(", \"missing\": ").append(missing);
+         sb.append(", \"errors\": ").append(errors);
+         sb.append(", \"latencyMillis\": {\"p50\": ").append(millis(percentile(50)));
+         sb.append(", \"p95\": ").append(millis(percentile(95)));
+         sb.append(", \"p99\": ").append(millis(percentile(99)));
+         sb.append(", \"max\": ").append(millis(maxNanos)).append("}}");
+      }
+
+      /**
+       * Nearest rank percentile, in nanoseconds, never above the max.
+       */
+      private long percentile(int percent)
+      {
+         if (probes == 0)
+         {
+            return 0;
+         }
+         long rank = Math.max(1, (long)Math.ceil(percent / 100.0 * probes));
+         long count = 0;
+         for (int i = 0; i < buckets.length; i++)
+         {
+            count += buckets[i];
+            if (count >= rank)
+            {
+               return Math.min(maxNanos, upperBound(i) * 1000);
+            }
+         }
+         return maxNanos;
+      }
+
+      /**
+       * The bucket of the microseconds: exact below {@link #SUB_BUCKETS}, then {@link #SUB_BUCKETS} buckets per power
+       * of two.
+       */
+      static int bucket(long micros)
+      {
+         if (micros < SUB_BUCKETS)
+         {
+            return (int)micros;
+         }
+         int exponent = 63 - Long.numberOfLeadingZeros(micros);
+         int shift = exponent - SUB_BUCKET_BITS;
+         return (shift + 1) * SUB_BUCKETS + (int)((micros >>> shift) & (SUB_BUCKETS - 1));
+      }
+
+      /**
+       * The largest microseconds of the bucket.
+       */
+      static long upperBound(int bucket)
+      {
+         if (bucket < SUB_BUCKETS)
+         {
+            return bucket;
+         }
+         int shift = bucket / SUB_BUCKETS - 1;
+         long lower = (long)(SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+         return lower + (1L << shift) - 1;
+      }
+
+      private static String millis(long nanos)
+      {
+         return String.valueOf(Math.round(nanos / 1000.0) / 1000.0);
+      }
+   }
+
+}
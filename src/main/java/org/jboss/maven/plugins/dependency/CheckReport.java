@@ -0,0 +1,316 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.maven.artifact.Artifact;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Structured report of the check, one record per probe and per excluded artifact, as JSON Lines or CSV.
+ *
+ * The records are appended as the probes complete, so the report grows while the check runs, and nothing is kept in
+ * memory but the counts of the summary. Each record has the artifact, the repository, the outcome(found, missing,
+ * failed or excluded), the response code, the latency, the size of the file when the repository tells it, the exclusion reason,
+ * the failure, and the link of the file which is missing or can't be checked.
+ *
+ * An index of byte offsets into the report is appended next to it as the records are written, in
+ * <b>&lt;report&gt;.index</b>, one line per offset: the offset of every {@link #PAGE_SIZE}th record as
+ * <code>page &lt;offset&gt;</code>, and the offsets of all missing, failed and excluded records as
+ * <code>&lt;outcome&gt; &lt;offset&gt;</code>, so that a reader can seek to the interesting records without reading
+ * the whole report. When the report is closed a summary is written next to it, in <b>&lt;report&gt;.summary.json</b>,
+ * with the counts of each outcome per repository.
+ *
+ * @author lgao
+ *
+ */
+public class CheckReport
+{
+
+   /**
+    * How many records are between two offsets of the page index.
+    */
+   public static final int PAGE_SIZE = 10000;
+
+   private static final String CSV_HEADER = "artifact,repository,outcome,status,latencyMillis,bytes,reason,failure,link\n";
+
+   private final File file;
+
+   private final boolean csv;
+
+   private OutputStream output;
+
+   private Writer index;
+
+   private long offset;
+
+   private long records;
+
+   private long excluded;
+
+   private final Map<String, long[]> counts = new LinkedHashMap<String, long[]>();
+
+   /**
+    * @param file the report file, it is overwritten
+    * @param format 'jsonl' or 'csv'
+    */
+   public CheckReport(File file, String format)
+   {
+      super();
+      this.file = file;
+      this.csv = "csv".equalsIgnoreCase(format);
+   }
+
+   /**
+    * Creates the report file and its index.
+    */
+   public synchronized void open() throws IOException
+   {
+      File dir = file.getAbsoluteFile().getParentFile();
+      if (!dir.exists())
+      {
+         dir.mkdirs();
+      }
+      output = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024);
+      try
+      {
+         index = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(getIndexFile()), "UTF-8"));
+      }
+      catch (IOException e)
+      {
+         IOUtil.close(output);
+         output = null;
+         throw e;
+      }
+      if (csv)
+      {
+         append(CSV_HEADER);
+      }
+   }
+
+   /**
+    * Records one probe of the artifact against the repository.
+    *
+    * @param nanos how long the probe took
+    */
+   public void probed(Artifact artifact, String repoURL, ProbeResult result, long nanos) throws IOException
+   {
+      String outcome = result.isFailed() ? "failed" : result.isMissing() ? "missing" : "found";
+      String latency = String.valueOf(Math.round(nanos / 1000.0) / 1000.0);
+      String failure = result.isFailed() ? result.getFailure() : null;
+      String link = result.isFailed() || result.isMissing() ? result.getLink() : null;
+      write(outcome, artifact, repoURL, result.getResponseCode(), latency, result.getLength(), null, failure, link);
+   }
+
+   /**
+    * Records an artifact skipped during dependency check.
+    */
+   public void excluded(Artifact artifact, String reason) throws IOException
+   {
+      write("excluded", artifact, null, -1, null, -1, reason, null, null);
+   }
+
+   private synchronized void write(String outcome, Artifact artifact, String repoURL, int status, String latency, long bytes, String reason,
+         String failure, String link) throws IOException
+   {
+      if (output == null)
+      {
+         throw new IOException("Report is not open: " + file.getAbsolutePath());
+      }
+      if (records % PAGE_SIZE == 0)
+      {
+         index.write("page " + offset + "\n");
+      }
+      if (!"found".equals(outcome))
+      {
+         index.write(outcome + " " + offset + "\n");
+      }
+      if ("excluded".equals(outcome))
+      {
+         excluded++;
+      }
+      String repository = repoURL == null ? "" : repoURL;
+      long[] repositoryCounts = counts.get(repository);
+      if (repositoryCounts == null)
+      {
+         repositoryCounts = new long[4];
+         counts.put(repository, repositoryCounts);
+      }
+      repositoryCounts["found".equals(outcome) ? 0 : "missing".equals(outcome) ? 1 : "failed".equals(outcome) ? 2 : 3]++;
+      records++;
+
+      StringBuilder sb = new StringBuilder(256);
+      String gatv = artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getType() + ":" + artifact.getVersion();
+      if (csv)
+      {
+         sb.append(csv(gatv)).append(',').append(csv(repoURL)).append(',').append(outcome).append(',');
+         sb.append(status == -1 ? "" : String.valueOf(status)).append(',');
+         sb.append(latency == null ? "" : latency).append(',');
+         sb.append(bytes == -1 ? "" : String.valueOf(bytes)).append(',');
+         sb.append(csv(reason)).append(',').append(csv(failure)).append(',').append(csv(link)).append('\n');
+      }
+      else
+      {
+         sb.append("{\"artifact\": ").append(CheckMetrics.quote(gatv));
+         if (repoURL != null)
+         {
+            sb.append(", \"repository\": ").append(CheckMetrics.quote(repoURL));
+         }
+         sb.append(", \"outcome\": \"").append(outcome).append('"');
+         if (status != -1)
+         {
+            sb.append(", \"status\": ").append(status);
+         }
+         if (latency != null)
+         {
+            sb.append(", \"latencyMillis\": ").append(latency);
+         }
+         if (bytes != -1)
+         {
+            sb.append(", \"bytes\": ").append(bytes);
+         }
+         if (reason != null)
+         {
+            sb.append(", \"reason\": ").append(CheckMetrics.quote(reason));
+         }
+         if (failure != null)
+         {
+            sb.append(", \"failure\": ").append(CheckMetrics.quote(failure));
+         }
+         if (link != null)
+         {
+            sb.append(", \"link\": ").append(CheckMetrics.quote(link));
+         }
+         sb.append("}\n");
+      }
+      append(sb.toString());
+   }
+
+   private void append(String str) throws IOException
+   {
+      byte[] bytes = str.getBytes("UTF-8");
+      output.write(bytes);
+      offset += bytes.length;
+   }
+
+   /**
+    * Closes the report and its index, and writes the summary next to it.
+    */
+   public synchronized void close() throws IOException
+   {
+      if (output == null)
+      {
+         return;
+      }
+      try
+      {
+         output.flush();
+         index.flush();
+      }
+      finally
+      {
+         IOUtil.close(output);
+         IOUtil.close(index);
+         output = null;
+         index = null;
+      }
+      Writer writer = null;
+      try
+      {
+         writer = new OutputStreamWriter(new FileOutputStream(getSummaryFile()), "UTF-8");
+         writer.write(summary());
+      }
+      finally
+      {
+         IOUtil.close(writer);
+      }
+   }
+
+   private String summary()
+   {
+      StringBuilder sb = new StringBuilder();
+      sb.append("{\n");
+      sb.append("  \"report\": ").append(CheckMetrics.quote(file.getName())).append(",\n");
+      sb.append("  \"format\": \"").append(csv ? "csv" : "jsonl").append("\",\n");
+      sb.append("  \"records\": ").append(records).append(",\n");
+      sb.append("  \"bytes\": ").append(offset).append(",\n");
+      sb.append("  \"repositories\": [");
+      String separator = "\n";
+      for (Map.Entry<String, long[]> entry: counts.entrySet())
+      {
+         if (entry.getKey().length() == 0)
+         {
+            continue;
+         }
+         long[] values = entry.getValue();
+         sb.append(separator).append("    {\"url\": ").append(CheckMetrics.quote(entry.getKey()));
+         sb.append(", \"found\": ").append(values[0]);
+         sb.append(", \"missing\": ").append(values[1]);
+         sb.append(", \"failed\": ").append(values[2]).append("}");
+         separator = ",\n";
+      }
+      sb.append("\n  ],\n");
+      sb.append("  \"excluded\": ").append(excluded).append(",\n");
+      sb.append("  \"index\": ").append(CheckMetrics.quote(getIndexFile().getName())).append(",\n");
+      sb.append("  \"pageSize\": ").append(PAGE_SIZE).append("\n");
+      sb.append("}\n");
+      return sb.toString();
+   }
+
+   private static String csv(String value)
+   {
+      if (value == null)
+      {
+         return "";
+      }
+      if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0)
+      {
+         return value;
+      }
+      return "\"" + value.replace("\"", "\"\"") + "\"";
+   }
+
+   /**
+    * @return the report file
+    */
+   public File getFile()
+   {
+      return file;
+   }
+
+   /**
+    * @return the index file, next to the report
+    */
+   public File getIndexFile()
+   {
+      return new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".index");
+   }
+
+   /**
+    * @return the summary file, next to the report
+    */
+   public File getSummaryFile()
+   {
+      return new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".summary.json");
+   }
+
+   /**
+    * @return how many records are written
+    */
+   public synchronized long getRecords()
+   {
+      return records;
+   }
+
+}
@@ -3,6 +3,9 @@
  */
 package org.jboss.maven.plugins.dependency;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * @author lgao
  *
@@ -20,6 +23,21 @@ public class CollectConfig
     */
    private boolean includeVersion;
    
+   /**
+    * Whether the pom is read as a stream of XML events instead of a full Maven Model
+    */
+   private boolean streaming;
+   
+   /**
+    * Whether the parents and the <b>import</b> scoped BOMs of the pom are collected too
+    */
+   private boolean recursive;
+   
+   /**
+    * URLs of the repositories where the parents and the BOMs are searched
+    */
+   private List<String> repositories = new ArrayList<String>();
+   
 
    /**
     * @return the includeVersion
@@ -56,4 +74,59 @@ public class CollectConfig
       this.profile = profile;
    }
 
+
+   /**
+    * @return the streaming
+    */
+   public boolean isStreaming()
+   {
+      return streaming;
+   }
+
+
+   /**
+    * @param streaming the streaming to set
+    */
+   public void setStreaming(boolean streaming)
+   {
+      this.streaming = streaming;
+   }
+
+
+
+   /**
+    * @return the recursive
+    */
+   public boolean isRecursive()
+   {
+      return recursive;
+   }
+
+
+   /**
+    * @param recursive the recursive to set
+    */
+   public void setRecursive(boolean recursive)
+   {
+      this.recursive = recursive;
+   }
+
+
+   /**
+    * @return the repositories
+    */
+   public List<String> getRepositories()
+   {
+      return repositories;
+   }
+
+
+   /**
+    * @param repositories the repositories to set
+    */
+   public void setRepositories(List<String> repositories)
+   {
+      this.repositories = repositories;
+   }
+
 }
@@ -0,0 +1,55 @@
+/**
+ * 
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.metadata.ResolutionGroup;
+import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+/**
+ * 
+ * Goal of "dependency-check:check-coordinates" does the same check as "dependency-check:check", but only the coordinates
+ * of the artifacts are collected.
+ * 
+ * The dependency graph of the project and of each plugin is built from the pom files alone, no jar file is downloaded
+ * into the local repository before the artifacts are checked against the repositories.
+ * 
+ * @author lgao
+ *
+ */
+@Mojo( name = "check-coordinates", requiresDependencyCollection = ResolutionScope.TEST, threadSafe = true )
+public class CoordinatesCheckMojo extends DependencyCheckMojo
+{
+   
+   @Override
+   protected String pluginResolutionMode()
+   {
+      return "collected";
+   }
+   
+   /**
+    * Collects the dependencies of the plugin from the pom files, neither the plugin nor its dependencies are downloaded.
+    */
+   @SuppressWarnings( "unchecked" )
+   @Override
+   protected Set<Artifact> resolvePlugin(Artifact plugin) throws Exception
+   {
+      Set<Artifact> closure = new LinkedHashSet<Artifact>();
+      closure.add(plugin);
+      if (!this.excludeTransitive)
+      {
+         ResolutionGroup group = this.artifactMetadataSource.retrieve(plugin, this.getLocal(), this.remotePluginRepositories);
+         ArtifactResolutionResult result = this.artifactCollector.collect(group.getArtifacts(), plugin, this.getLocal(), this.remotePluginRepositories, this.artifactMetadataSource, null, Collections.EMPTY_LIST);
+         closure.addAll(result.getArtifacts());
+      }
+      return Collections.unmodifiableSet(closure);
+   }
+   
+}
@@ -3,23 +3,30 @@
  */
 package org.jboss.maven.plugins.dependency;
 
-import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.net.HttpURLConnection;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.repository.ArtifactRepository;
-import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
-import org.apache.maven.artifact.resolver.ArtifactResolutionException;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.dependency.utils.DependencyStatusSets;
@@ -29,6 +36,7 @@ import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.shared.artifact.filter.collection.ArtifactFilterException;
 import org.apache.maven.shared.artifact.filter.collection.ArtifactsFilter;
 import org.apache.maven.shared.artifact.filter.collection.FilterArtifacts;
+import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.IOUtil;
 
 /**
@@ -39,7 +47,9 @@ import org.codehaus.plexus.util.IOUtil;
  * 
  * It will print the list to console by default, or you can specify an output file by a parameter: <b>-DoutputFile=</b>.
  * 
- * This goal checks only one Maven Repository a time, the <b>-DrepoURL</b> has higher priority than <b>-DrepoId</b>.
+ * This goal checks one Maven Repository by default, the <b>-DrepoURL</b> has higher priority than <b>-DrepoId</b>.
+ * Several repositories are checked in one pass by <b>-DrepoIds</b> and <b>-DrepoURLs</b>, an artifact is missing when none
+ * of them has it.
  *  
  * @author lgao@redhat.com
  *
@@ -54,7 +64,13 @@ public class DependencyCheckMojo extends AbstractDependencyCheckMojo
     * Remote repositories which will be searched for plugins.
     */
    @Parameter( defaultValue = "${project.pluginArtifactRepositories}", readonly = true, required = true )
-   private List<ArtifactRepository> remotePluginRepositories;
+   protected List<ArtifactRepository> remotePluginRepositories;
+   
+   /**
+    * Current Maven session, the probe results are shared by all modules built in it.
+    */
+   @Parameter( defaultValue = "${session}", readonly = true, required = true )
+   private MavenSession session;
    
    /**
     * 
@@ -72,6 +88,84 @@ public class DependencyCheckMojo extends AbstractDependencyCheckMojo
    @Parameter(property = "repoURL")
    private String repoURL;
    
+   /**
+    * The JSON file where the metrics of the check are written: wall time of each phase, probe outcomes and latency percentiles
+    * of each repository, and cache hit ratios. When several modules are built, each module writes its own file, with its artifactId
+    * added to the file name. No metrics are written if it is not specified.
+    */
+   @Parameter(property = "metricsFile")
+   private File metricsFile;
+   
+   /**
+    * Metrics of current execution.
+    */
+   private CheckMetrics metrics;
+   
+   /**
+    * Ids of several predefined remote repositories to check against in one pass, splits using comma: ','.
+    * Together with <b>-DrepoURLs</b>, they override repoId, repoURL and repoDirectory.
+    */
+   @Parameter(property = "repoIds")
+   private List<String> repoIds;
+   
+   /**
+    * URLs of several Maven Repositories to check against in one pass, splits using comma: ','.
+    * <b>file:</b> URLs are checked as local mirrors.
+    */
+   @Parameter(property = "repoURLs")
+   private List<String> repoURLs;
+   
+   /**
+    * When several repositories are checked, whether to stop checking an artifact once one repository has it.
+    * The repositories are checked in the order of repoIds, then repoURLs.
+    */
+   @Parameter(property = "stopOnFirstFound", defaultValue = "false")
+   private boolean stopOnFirstFound;
+   
+   /**
+    * When several repositories are checked, the file where the availability of each artifact in each repository is written.
+    * The file is overwritten on each run, and each module writes its own file, with its artifactId added to the file name, when
+    * several modules are built. The availability is printed to console if it is not specified.
+    */
+   @Parameter(property = "availabilityFile")
+   private File availabilityFile;
+   
+   /**
+    * A local directory which mirrors the repository to check against, like an rsync'd copy of it.
+    * The artifacts are checked on disk, no network is used. A <b>file:</b> repoURL is checked the same way.
+    * This parameter has higher priority than repoURL.
+    */
+   @Parameter(property = "repoDirectory")
+   private File repoDirectory;
+   
+   /**
+    * 
+    * Whether to build an index of the pom files of <b>-DrepoDirectory</b>, and look the artifacts up in it.
+    * 
+    * The index is stored in <b>-DmirrorIndexDirectory</b> and is reused until it is older than <b>-DmirrorIndexMaxAge</b> seconds.
+    * Artifacts which are not in the index are missing, symbolic links to directories are not followed, and when the
+    * mirror has some, the artifacts which are not in the index are still checked on disk.
+    * 
+    */
+   @Parameter( property = "useMirrorIndex", defaultValue = "false" )
+   private boolean useMirrorIndex;
+   
+   /**
+    * 
+    * Where the indexes of the mirrors are stored.
+    * 
+    */
+   @Parameter( property = "mirrorIndexDirectory", defaultValue = "${user.home}/.m2/dependency-check/mirrors" )
+   private File mirrorIndexDirectory;
+   
+   /**
+    * 
+    * Seconds a mirror index is used before it is built again.
+    * 
+    */
+   @Parameter( property = "mirrorIndexMaxAge", defaultValue = "3600" )
+   private long mirrorIndexMaxAge;
+   
    /**
     * 
     * Include parent poms in the dependency resolution list.
@@ -80,38 +174,195 @@ public class DependencyCheckMojo extends AbstractDependencyCheckMojo
    @Parameter( property = "includeParents", defaultValue = "false" )
    private boolean includeParents;
    
+   /**
+    * 
+    * How many artifacts are checked against the repository at the same time.
+    * 
+    * The missing artifacts are recorded in the same order no matter how many threads are used.
+    * 
+    * The JDK keeps at most <b>http.maxConnections</b>(default 5) idle connections per host, set it to at least the threads,
+    * like -Dhttp.maxConnections=32 in MAVEN_OPTS, so that each request reuses a connection.
+    * 
+    */
+   @Parameter( property = "threads", defaultValue = "8" )
+   private int threads;
+   
+   /**
+    * 
+    * Whether to use virtual threads to check the artifacts when current JVM supports them.
+    * 
+    * The number of concurrent checks is still limited by <b>-Dthreads</b>.
+    * 
+    */
+   @Parameter( property = "useVirtualThreads", defaultValue = "false" )
+   private boolean useVirtualThreads;
+   
+   /**
+    * 
+    * Whether to check the artifacts while they are still being resolved.
+    * 
+    * Each artifact goes into a queue of <b>-DprobeQueueSize</b> artifacts once it is resolved, so that checking against the repositories
+    * overlaps with the resolution of the plugins. The dependencies of the project are resolved by Maven before this goal runs, they are
+    * only offered as soon as the goal starts. The missing artifacts are recorded in the order they are resolved.
+    * 
+    * The artifacts offered before the excluded poms are loaded are checked anyway, and left out once they are loaded, so the report
+    * can have both probe and excluded records for them.
+    * 
+    */
+   @Parameter( property = "pipelined", defaultValue = "false" )
+   private boolean pipelined;
+   
+   /**
+    * 
+    * How many resolved artifacts wait to be checked at most in <b>-Dpipelined</b> mode, the resolution waits when the queue is full.
+    * 
+    */
+   @Parameter( property = "probeQueueSize", defaultValue = "1000" )
+   private int probeQueueSize;
+   
+   /**
+    * 
+    * Whether to adapt the concurrent requests to each repository host: it climbs up to <b>-Dthreads</b> while the host answers normally,
+    * and is halved when the host throttles(429, 503). The <b>Retry-After</b> of the host is honoured, and no request is sent for a while
+    * after too many failures in a row.
+    * 
+    */
+   @Parameter( property = "adaptiveConcurrency", defaultValue = "true" )
+   private boolean adaptiveConcurrency;
+   
+   /**
+    * 
+    * How many times a throttled or failed request is sent again, with a jittered exponential backoff.
+    * Artifacts which still can't be checked are reported as errors, never as missing.
+    * 
+    */
+   @Parameter( property = "probeRetries", defaultValue = "3" )
+   private int probeRetries;
+   
+   /**
+    * 
+    * Whether to check the <b>maven-metadata.xml</b> of each groupId:artifactId first.
+    * 
+    * One metadata download answers the versions of the same artifact, it pays off when several versions of it are checked.
+    * The pom of the first listed version is still checked, the other listed versions are trusted once a listed pom is found.
+    * 
+    */
+   @Parameter( property = "useMetadata", defaultValue = "false" )
+   private boolean useMetadata;
+   
+   /**
+    * 
+    * Whether to remember the probe results in <b>-DprobeCacheFile</b>, so that following runs do not check the same artifacts again.
+    * It is off by default, as a missing artifact deployed meanwhile is only seen after <b>-DprobeCacheNegativeTtl</b>.
+    * 
+    */
+   @Parameter( property = "useProbeCache", defaultValue = "false" )
+   private boolean useProbeCache;
+   
+   /**
+    * 
+    * The file where the probe results are stored. It can be shared by several Maven processes.
+    * 
+    */
+   @Parameter( property = "probeCacheFile", defaultValue = "${user.home}/.m2/dependency-check/probe-cache.db" )
+   private File probeCacheFile;
+   
+   /**
+    * 
+    * Seconds a SNAPSHOT artifact found in the repository is trusted before it is checked again.
+    * Release artifacts found in the repository are never checked again.
+    * 
+    */
+   @Parameter( property = "probeCachePositiveTtl", defaultValue = "86400" )
+   private long probeCachePositiveTtl;
+   
+   /**
+    * 
+    * Seconds a missing artifact is trusted before it is checked again.
+    * 
+    */
+   @Parameter( property = "probeCacheNegativeTtl", defaultValue = "3600" )
+   private long probeCacheNegativeTtl;
+   
+   /**
+    * 
+    * Whether to keep a snapshot of the artifacts of the module with their probe results in <b>-DmoduleSnapshotDirectory</b>,
+    * so that the next run only checks the artifacts added since, and the results expired by the TTLs of the probe cache.
+    * 
+    */
+   @Parameter( property = "useModuleSnapshot", defaultValue = "false" )
+   private boolean useModuleSnapshot;
+   
+   /**
+    * 
+    * The directory where the module snapshots are stored, the modules are told apart by the hash of their base directories.
+    * 
+    */
+   @Parameter( property = "moduleSnapshotDirectory", defaultValue = "${user.home}/.m2/dependency-check/modules" )
+   private File moduleSnapshotDirectory;
+   
+   /**
+    * 
+    * The file to write the structured report to, one record per probe and per excluded artifact, with an index in
+    * <b>&lt;reportFile&gt;.index</b> and a summary in <b>&lt;reportFile&gt;.summary.json</b>. When several modules are
+    * built, each module writes its own report, with its artifactId added to the file name. No report is written by default.
+    * 
+    */
+   @Parameter( property = "reportFile" )
+   private File reportFile;
+   
+   /**
+    * 
+    * The format of <b>-DreportFile</b>: 'jsonl' for JSON Lines, or 'csv'.
+    * 
+    */
+   @Parameter( property = "reportFormat", defaultValue = "jsonl" )
+   private String reportFormat;
+   
+   /**
+    * 
+    * Whether to check all files of each artifact, not only its pom: the main artifact, the files of <b>-DprobeClassifiers</b>,
+    * and the .sha1 checksums when <b>-DprobeChecksums</b> is set. An artifact is missing when any of its files is missing.
+    * 
+    */
+   @Parameter( property = "fullArtifactProbe", defaultValue = "false" )
+   private boolean fullArtifactProbe;
+   
+   /**
+    * 
+    * The classifiers checked besides the main artifact by <b>-DfullArtifactProbe</b>, like 'sources' or 'javadoc'.
+    * The extension of the main artifact is used, another one can be given as 'classifier:extension', like 'dist:zip'.
+    * 
+    */
+   @Parameter( property = "probeClassifiers" )
+   private List<String> probeClassifiers;
+   
+   /**
+    * 
+    * Whether <b>-DfullArtifactProbe</b> checks the .sha1 file of each checked file as well.
+    * 
+    */
+   @Parameter( property = "probeChecksums", defaultValue = "true" )
+   private boolean probeChecksums;
+   
+   /**
+    * The report of current execution, null when no report is written.
+    */
+   private CheckReport report;
+   
+   /**
+    * Where the other files of the artifacts are checked by <b>-DfullArtifactProbe</b>, null when only the poms are checked.
+    */
+   private ExecutorService fileExecutor;
+   
    
    protected void doExecute() throws MojoExecutionException ,MojoFailureException {
       try
       {
-         URL repoURLLink = null;
-         if (this.repoURL != null && this.repoURL.trim().length() > 0)
-         {
-            repoURLLink = new URL(repoURL);
-         }
-         if (repoURLLink == null)
-         {
-            ArtifactRepository repo = getArtifactRepository();
-            if (repo == null && this.repoId != null)
-            {
-               throw new MojoFailureException("Unkown repository: " + this.repoId);
-            }
-            if (repo == null)
-            {
-               
-               repoURLLink = new URL(AbstractDependencyCheckMojo.MAVEN_CENTRAL_REPO_URL);
-            }
-            else
-            {
-               repoURLLink = new URL(repo.getUrl());
-            }
-         }
-         String repoURL = repoURLLink.toString();
-         if (!repoURL.endsWith("/"))
-         {
-            repoURL = repoURL + "/";
-         }
-         getLog().debug("Checking against repository: " + repoURL);
+         metrics = new CheckMetrics(project.getGroupId() + ":" + project.getArtifactId() + ":" + project.getVersion());
+         List<String> labels = new ArrayList<String>();
+         List<String> repositories = getRepositoryURLs(labels);
+         getLog().debug("Checking against repositories: " + repositories);
          
          if (this.outputFile == null)
          {
@@ -126,98 +377,639 @@ public class DependencyCheckMojo extends AbstractDependencyCheckMojo
             }
          }
          
-         // all artifacts
-         Set<Artifact> artifacts = getAllArtifacts();
-         for (Artifact artifact: artifacts)
+         // the excluded poms are loaded while the artifacts are resolved
+         startLoadingExcludedPoms();
+         
+         ReactorProbeCache reactorCache = ReactorProbeCache.forSession(session);
+         long reactorLookups = reactorCache.getLookups();
+         long reactorHits = reactorCache.getHits();
+         List<RepositoryMetadata> metadatas = new ArrayList<RepositoryMetadata>();
+         List<CachingArtifactProber> cachingProbers = new ArrayList<CachingArtifactProber>();
+         PersistentProbeCache cache = null;
+         List<ArtifactProber> probers = new ArrayList<ArtifactProber>(repositories.size());
+         ModuleSnapshot snapshot = null;
+         if (this.useModuleSnapshot)
+         {
+            snapshot = loadModuleSnapshot(repositories);
+         }
+         if (this.reportFile != null)
+         {
+            report = new CheckReport(moduleFile(this.reportFile), this.reportFormat);
+            report.open();
+            getLog().info("Will write the report of the check into: " + report.getFile().getAbsolutePath());
+         }
+         for (String repoURL: repositories)
          {
-            // besides the default filter, there is another filter here.
-            if (isArtifactExcluded(artifact))
+            RepositoryFileProber repositoryProber = null;
+            if (repoURL.startsWith("file:"))
             {
-               getLog().debug("Artifact: " + gatv(artifact) + " is skipped during dependency check.");
-               continue;
+               repositoryProber = new TimedArtifactProber(createFileProber(FileUtils.toFile(new URL(repoURL))), metrics.repository(repoURL));
             }
-            String artifactLink = repoURL + artifact.getGroupId().replaceAll("\\.", "/") + "/" + artifact.getArtifactId() + "/" + artifact.getVersion() + "/" + artifact.getArtifactId() + "-" + artifact.getVersion() + ".pom";
-            getLog().debug("Checking artifact: " + gatv(artifact) + " at: " + artifactLink);
-            HttpURLConnection urlConn = null;
-            try
+            else
             {
-               URL linkURL = new URL(artifactLink);
-               urlConn = (HttpURLConnection)linkURL.openConnection();
-               urlConn.connect();
-               int code = urlConn.getResponseCode();
-               if (code >= 400)
+               if (this.useProbeCache && cache == null)
                {
-                  getLog().debug("Artifact: " + gatv(artifact) + " does not exist in repository: " + repoURL);
-                  writeMissingArtifact(artifact);
+                  cache = loadProbeCache();
                }
-               else
+               repositoryProber = createHttpProber(repoURL, cache, metadatas, cachingProbers);
+            }
+            // only the probes sent to the repository are timed, not the answers of the caches and the snapshot
+            RepositoryFileProber sharedProber = new SharedArtifactProber(repositoryProber, repoURL, reactorCache);
+            if (snapshot != null)
+            {
+               sharedProber = new SnapshotArtifactProber(sharedProber, repoURL, snapshot, probers.size());
+            }
+            ArtifactProber prober = sharedProber;
+            if (this.fullArtifactProbe)
+            {
+               // the other files go through the same caches as the poms
+               if (fileExecutor == null)
                {
-                  getLog().debug("Artifact: " + gatv(artifact) + " is resolved.");
+                  fileExecutor = ProbeEngine.createExecutor(this.threads * repositories.size(), this.useVirtualThreads, getLog());
                }
+               prober = new FullArtifactProber(sharedProber, this.probeClassifiers, this.probeChecksums, fileExecutor);
+            }
+            if (report != null)
+            {
+               prober = new ReportingArtifactProber(prober, repoURL, report);
             }
-            catch (IOException e)
+            probers.add(prober);
+         }
+         long[] metadataCounts = new long[metadatas.size() * 2];
+         for (int i = 0; i < metadatas.size(); i++)
+         {
+            metadataCounts[i * 2] = metadatas.get(i).getLookups();
+            metadataCounts[i * 2 + 1] = metadatas.get(i).getHits();
+         }
+         
+         List<Artifact> artifactsToCheck = null;
+         List<ProbeResult[]> results = null;
+         long start = 0;
+         if (this.pipelined)
+         {
+            ProbePipeline pipeline = new ProbePipeline(probers, this.threads, this.useVirtualThreads, this.stopOnFirstFound, this.probeQueueSize);
+            pipeline.setLogger(getLog());
+            // the artifacts resolved before the excluded poms are loaded are checked anyway, and filtered at the end
+            pipeline.setFilter(new ProbePipeline.WaitingFilter()
+            {
+               public boolean include(Artifact artifact)
+               {
+                  return !isExcludedWhilePiped(artifact);
+               }
+               
+               public boolean isReady()
+               {
+                  return isExclusionReady();
+               }
+            });
+            getLog().debug("Checking artifacts while they are resolved using " + this.threads + " threads per repository.");
+            pipeline.start();
+            try
             {
-               getLog().warn("Wrong link: " + artifactLink, e);
+               getAllArtifacts(pipeline);
+               // only the checks left once all artifacts are resolved are counted
+               start = System.currentTimeMillis();
+               results = pipeline.finish();
+               metrics.phase("probe", start);
             }
             finally
             {
-               urlConn.disconnect();
+               pipeline.shutdown();
             }
+            artifactsToCheck = pipeline.getArtifacts();
+         }
+         else
+         {
+            // all artifacts
+            Set<Artifact> artifacts = getAllArtifacts(null);
+            start = System.currentTimeMillis();
+            artifactsToCheck = new ArrayList<Artifact>(artifacts.size());
+            for (Artifact artifact: artifacts)
+            {
+               // besides the default filter, there is another filter here.
+               String reason = getExclusionReason(artifact);
+               if (reason != null)
+               {
+                  getLog().debug("Artifact: " + gatv(artifact) + " is skipped during dependency check.");
+                  if (report != null)
+                  {
+                     report.excluded(artifact, reason);
+                  }
+                  continue;
+               }
+               artifactsToCheck.add(artifact);
+            }
+            // waits for the excluded poms, if they are not loaded yet
+            metrics.phase("getExcludedGAs", start);
+            
+            RepositoryFanOut fanOut = new RepositoryFanOut(probers, this.threads, this.useVirtualThreads, this.stopOnFirstFound);
+            fanOut.setLogger(getLog());
+            getLog().debug("Checking " + artifactsToCheck.size() + " artifacts using " + this.threads + " threads per repository.");
+            start = System.currentTimeMillis();
+            results = fanOut.probeAll(artifactsToCheck);
+            metrics.phase("probe", start);
+         }
+         start = System.currentTimeMillis();
+         MissingArtifactSink sink = new MissingArtifactSink(this.outputFile, getLog());
+         sink.open();
+         try
+         {
+            for (int i = 0; i < results.size(); i++)
+            {
+               Artifact artifact = artifactsToCheck.get(i);
+               if (isMissing(artifact, results.get(i)))
+               {
+                  sink.write(missingLine(artifact));
+               }
+            }
+         }
+         finally
+         {
+            sink.close();
+         }
+         if (repositories.size() > 1)
+         {
+            writeAvailability(labels, artifactsToCheck, results);
+         }
+         metrics.phase("writeMissingArtifact", start);
+         
+         // the session wide counters are measured by their changes during this execution
+         metrics.cache("reactor", reactorCache.getLookups() - reactorLookups, reactorCache.getHits() - reactorHits);
+         for (int i = 0; i < metadatas.size(); i++)
+         {
+            metrics.cache("metadata", metadatas.get(i).getLookups() - metadataCounts[i * 2], metadatas.get(i).getHits() - metadataCounts[i * 2 + 1]);
+         }
+         for (CachingArtifactProber cachingProber: cachingProbers)
+         {
+            metrics.cache("persistent", cachingProber.getLookups(), cachingProber.getHits());
+         }
+         if (snapshot != null)
+         {
+            metrics.cache("snapshot", snapshot.getLookups(), snapshot.getHits());
+            storeModuleSnapshot(snapshot, artifactsToCheck);
+         }
+         getLog().debug("Probe results shared in current session: " + reactorCache.size() + ", reused: " + reactorCache.getHits());
+         for (RepositoryMetadata metadata: metadatas)
+         {
+            getLog().debug("Metadata files requested from: " + metadata.getRepoURL() + " in current session: " + metadata.getDownloads());
+         }
+         if (cache != null)
+         {
+            storeProbeCache(cache);
+         }
+         if (this.metricsFile != null)
+         {
+            File file = moduleFile(this.metricsFile);
+            metrics.write(file);
+            getLog().info("Metrics of the check are written to: " + file.getAbsolutePath());
          }
       }
       catch (Exception e)
       {
          throw new MojoFailureException("Error: ", e);
       }
+      finally
+      {
+         closeReport();
+         if (fileExecutor != null)
+         {
+            fileExecutor.shutdownNow();
+            fileExecutor = null;
+         }
+      }
    };
    
-   private Set<Artifact> getAllArtifacts() throws Exception
+   /**
+    * An artifact is missing when no repository has it, and all repositories answered.
+    */
+   private boolean isMissing(Artifact artifact, ProbeResult[] row)
    {
-      Set<Artifact> artifacts = new HashSet<Artifact>();
+      boolean missing = true;
+      for (ProbeResult result: row)
+      {
+         if (result == null)
+         {
+            continue;
+         }
+         getLog().debug("Checking artifact: " + gatv(artifact) + " at: " + result.getLink());
+         if (result.isFailed())
+         {
+            if (result.getError() != null)
+            {
+               getLog().warn("Wrong link: " + result.getLink(), result.getError());
+            }
+            else
+            {
+               getLog().warn("Can't check link: " + result.getLink() + ", " + result.getFailure());
+            }
+            missing = false;
+         }
+         else if (result.isMissing())
+         {
+            getLog().debug("Artifact: " + gatv(artifact) + " does not exist at: " + result.getLink());
+         }
+         else
+         {
+            getLog().debug("Artifact: " + gatv(artifact) + " is resolved.");
+            missing = false;
+         }
+      }
+      return missing;
+   }
+   
+   /**
+    * The line of a missing artifact in the output.
+    */
+   protected String missingLine(Artifact artifact)
+   {
+      return gatv(artifact);
+   }
+   
+   /**
+    * Writes the availability matrix of this run, the file of the module is overwritten on each run.
+    */
+   private void writeAvailability(List<String> labels, List<Artifact> artifacts, List<ProbeResult[]> results) throws IOException
+   {
+      if (this.availabilityFile == null)
+      {
+         getLog().info(availabilityHeader(labels));
+         for (int i = 0; i < results.size(); i++)
+         {
+            getLog().info(availability(artifacts.get(i), results.get(i)));
+         }
+         return;
+      }
+      File file = moduleFile(this.availabilityFile);
+      File dir = file.getAbsoluteFile().getParentFile();
+      if (!dir.exists())
+      {
+         dir.mkdirs();
+      }
+      String lineSeparator = System.getProperty("line.separator");
+      Writer writer = null;
+      try
+      {
+         writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+         writer.write(availabilityHeader(labels));
+         writer.write(lineSeparator);
+         for (int i = 0; i < results.size(); i++)
+         {
+            writer.write(availability(artifacts.get(i), results.get(i)));
+            writer.write(lineSeparator);
+         }
+      }
+      finally
+      {
+         IOUtil.close(writer);
+      }
+      getLog().info("Availability of the artifacts is written to: " + file.getAbsolutePath());
+   }
+   
+   private String availabilityHeader(List<String> labels)
+   {
+      StringBuilder sb = new StringBuilder("artifact");
+      for (String label: labels)
+      {
+         sb.append(",").append(label);
+      }
+      return sb.toString();
+   }
+   
+   /**
+    * One line of the availability matrix: found, missing, error, or '-' when the repository is not checked.
+    */
+   private String availability(Artifact artifact, ProbeResult[] row)
+   {
+      StringBuilder sb = new StringBuilder(gatv(artifact));
+      for (ProbeResult result: row)
+      {
+         sb.append(",");
+         if (result == null)
+         {
+            sb.append("-");
+         }
+         else if (result.isFailed())
+         {
+            sb.append("error");
+         }
+         else
+         {
+            sb.append(result.isMissing() ? "missing" : "found");
+         }
+      }
+      return sb.toString();
+   }
+   
+   /**
+    * Gets the URLs of the repositories to check against, ending with '/'. The labels used in the availability matrix are added to labels.
+    */
+   private List<String> getRepositoryURLs(List<String> labels) throws MojoFailureException, IOException
+   {
+      List<String> urls = new ArrayList<String>();
+      if ((this.repoIds != null && this.repoIds.size() > 0) || (this.repoURLs != null && this.repoURLs.size() > 0))
+      {
+         if (this.repoIds != null)
+         {
+            for (String id: this.repoIds)
+            {
+               ArtifactRepository repo = getArtifactRepository(id.trim());
+               if (repo == null)
+               {
+                  throw new MojoFailureException("Unkown repository: " + id);
+               }
+               urls.add(repositoryURL(new URL(repo.getUrl())));
+               labels.add(id.trim());
+            }
+         }
+         if (this.repoURLs != null)
+         {
+            for (String url: this.repoURLs)
+            {
+               urls.add(repositoryURL(new URL(url.trim())));
+               labels.add(url.trim());
+            }
+         }
+         return urls;
+      }
       
+      URL repoURLLink = null;
+      if (this.repoDirectory != null)
+      {
+         repoURLLink = this.repoDirectory.toURI().toURL();
+      }
+      else if (this.repoURL != null && this.repoURL.trim().length() > 0)
+      {
+         repoURLLink = new URL(repoURL);
+      }
+      if (repoURLLink == null)
+      {
+         ArtifactRepository repo = getArtifactRepository(this.repoId);
+         if (repo == null && this.repoId != null)
+         {
+            throw new MojoFailureException("Unkown repository: " + this.repoId);
+         }
+         if (repo == null)
+         {
+            
+            repoURLLink = new URL(AbstractDependencyCheckMojo.MAVEN_CENTRAL_REPO_URL);
+         }
+         else
+         {
+            repoURLLink = new URL(repo.getUrl());
+         }
+      }
+      urls.add(repositoryURL(repoURLLink));
+      labels.add(repoURLLink.toString());
+      return urls;
+   }
+   
+   /**
+    * The URL of the repository ending with '/', a local mirror must exist.
+    */
+   private String repositoryURL(URL url) throws MojoFailureException
+   {
+      if ("file".equals(url.getProtocol()))
+      {
+         File mirror = FileUtils.toFile(url);
+         if (mirror == null || !mirror.isDirectory())
+         {
+            throw new MojoFailureException("Repository directory: " + url + " does not exist.");
+         }
+      }
+      String repoURL = url.toString();
+      if (!repoURL.endsWith("/"))
+      {
+         repoURL = repoURL + "/";
+      }
+      return repoURL;
+   }
+   
+   private RepositoryFileProber createFileProber(File mirror) throws IOException
+   {
+      FileArtifactProber fileProber = new FileArtifactProber(mirror);
+      if (this.useMirrorIndex)
+      {
+         fileProber.setIndex(openMirrorIndex(mirror));
+      }
+      return fileProber;
+   }
+   
+   private RepositoryFileProber createHttpProber(String repoURL, PersistentProbeCache cache, List<RepositoryMetadata> metadatas, List<CachingArtifactProber> cachingProbers) throws IOException
+   {
+      RepositoryClient client = new RepositoryClient(repoURL);
+      client.setLogger(getLog());
+      if (this.threads > RepositoryClient.getKeepAlivePoolSize())
+      {
+         getLog().warn("Only " + RepositoryClient.getKeepAlivePoolSize() + " of " + this.threads + " connections to: " + repoURL
+               + " are kept alive, set -Dhttp.maxConnections=" + this.threads + " in MAVEN_OPTS to reuse all of them.");
+      }
+      client.setRetries(this.probeRetries);
+      client.setConnectTimeout(this.connectTimeout);
+      client.setReadTimeout(this.readTimeout);
+      if (this.adaptiveConcurrency)
+      {
+         URL url = new URL(repoURL);
+         client.setLimiter(AdaptiveLimiter.forHost(url.getHost() + ":" + url.getPort(), this.threads));
+      }
+      HttpArtifactProber httpProber = new HttpArtifactProber(client);
+      if (this.useMetadata)
+      {
+         RepositoryMetadata metadata = RepositoryMetadata.forSession(session, repoURL);
+         metadata.setLogger(getLog());
+         httpProber.setMetadata(metadata);
+         metadatas.add(metadata);
+      }
+      RepositoryFileProber timedProber = new TimedArtifactProber(httpProber, metrics.repository(repoURL));
+      if (cache != null)
+      {
+         CachingArtifactProber cachingProber = new CachingArtifactProber(timedProber, repoURL, cache);
+         cachingProbers.add(cachingProber);
+         return cachingProber;
+      }
+      return timedProber;
+   }
+   
+   /**
+    * Collects all artifacts to check, each new one is offered to the pipeline at once if it is not null.
+    */
+   protected Set<Artifact> getAllArtifacts(ProbePipeline pipeline) throws Exception
+   {
+      Set<Artifact> artifacts = new HashSet<Artifact>();
+      addProjectArtifacts(artifacts, pipeline);
+      return artifacts;
+   }
+   
+   /**
+    * Adds the dependencies and the plugins of current project.
+    */
+   protected void addProjectArtifacts(Set<Artifact> artifacts, ProbePipeline pipeline) throws Exception
+   {
       // all dependencies
+      long start = System.currentTimeMillis();
       DependencyStatusSets result = this.getDependencySets(false, includeParents);
+      metrics.phase("getDependencySets", start);
       if (result.getResolvedDependencies() != null && !result.getResolvedDependencies().isEmpty())
       {
-         artifacts.addAll(result.getResolvedDependencies());
+         addArtifacts(artifacts, result.getResolvedDependencies(), pipeline);
       }
       if (result.getSkippedDependencies() != null && !result.getSkippedDependencies().isEmpty())
       {
-         artifacts.addAll(result.getSkippedDependencies());
+         addArtifacts(artifacts, result.getSkippedDependencies(), pipeline);
       }
       if (result.getUnResolvedDependencies() != null && !result.getUnResolvedDependencies().isEmpty())
       {
-         artifacts.addAll(result.getUnResolvedDependencies());
+         addArtifacts(artifacts, result.getUnResolvedDependencies(), pipeline);
       }
       
-      // all plugins
-      final Set<Artifact> plugins = resolvePluginArtifacts();
-      for ( final Artifact plugin : plugins )
+      // all plugins, with their dependencies
+      start = System.currentTimeMillis();
+      addPluginArtifacts(artifacts, pipeline);
+      metrics.phase("resolvePluginArtifacts", start);
+   }
+   
+   /**
+    * Resolves the plugins in parallel, each plugin GAV is resolved once per session and reused by the modules built later.
+    */
+   private void addPluginArtifacts(Set<Artifact> artifacts, ProbePipeline pipeline) throws Exception
+   {
+      final PluginClosureCache pluginCache = PluginClosureCache.forSession(session);
+      long lookups = pluginCache.getLookups();
+      long hits = pluginCache.getHits();
+      Set<Artifact> plugins = getPluginArtifacts();
+      if (plugins.isEmpty())
+      {
+         return;
+      }
+      ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(this.threads, plugins.size())), new ThreadFactory()
       {
-         artifacts.add(plugin);
-         // adds all plugin dependencies if not exclude transitive
-         if (!this.excludeTransitive)
+         public Thread newThread(Runnable r)
          {
-            for ( final Artifact artifact : resolveArtifactDependencies( plugin ) )
+            Thread thread = new Thread(r, "dependency-check-plugin");
+            thread.setDaemon(true);
+            return thread;
+         }
+      });
+      try
+      {
+         List<Future<Set<Artifact>>> futures = new ArrayList<Future<Set<Artifact>>>(plugins.size());
+         for (final Artifact plugin: plugins)
+         {
+            futures.add(executor.submit(new Callable<Set<Artifact>>()
+            {
+               public Set<Artifact> call() throws Exception
+               {
+                  return pluginCache.resolve(plugin, pluginResolutionMode(), !excludeTransitive, new Callable<Set<Artifact>>()
+                  {
+                     public Set<Artifact> call() throws Exception
+                     {
+                        return resolvePlugin(plugin);
+                     }
+                  });
+               }
+            }));
+         }
+         // the plugins resolved first are checked while the others are still being resolved
+         for (Future<Set<Artifact>> future: futures)
+         {
+            try
             {
-               artifacts.add(artifact);
+               addArtifacts(artifacts, future.get(), pipeline);
+            }
+            catch (ExecutionException e)
+            {
+               if (e.getCause() instanceof Exception)
+               {
+                  throw (Exception)e.getCause();
+               }
+               throw e;
             }
          }
       }
-      return artifacts;
+      finally
+      {
+         executor.shutdownNow();
+      }
+      metrics.cache("plugins", pluginCache.getLookups() - lookups, pluginCache.getHits() - hits);
+      getLog().debug("Plugins resolved in current session: " + pluginCache.size() + ", reused: " + pluginCache.getHits());
+   }
+   
+   /**
+    * How {@link #resolvePlugin(Artifact)} gets the plugins, the plugins got in other ways are not reused.
+    */
+   protected String pluginResolutionMode()
+   {
+      return "resolved";
+   }
+   
+   /**
+    * Resolves the plugin, and its dependencies if not exclude transitive.
+    */
+   protected Set<Artifact> resolvePlugin(Artifact plugin) throws Exception
+   {
+      this.resolver.resolve(plugin, this.remotePluginRepositories, this.getLocal());
+      Set<Artifact> closure = new LinkedHashSet<Artifact>();
+      closure.add(plugin);
+      if (!this.excludeTransitive)
+      {
+         closure.addAll(resolveArtifactDependencies(plugin));
+      }
+      return Collections.unmodifiableSet(closure);
+   }
+   
+   private void addArtifacts(Set<Artifact> artifacts, Collection<Artifact> found, ProbePipeline pipeline) throws InterruptedException
+   {
+      for (Artifact artifact: found)
+      {
+         addArtifact(artifacts, artifact, pipeline);
+      }
+   }
+   
+   protected void addArtifact(Set<Artifact> artifacts, Artifact artifact, ProbePipeline pipeline) throws InterruptedException
+   {
+      if (artifacts.add(artifact) && pipeline != null)
+      {
+         pipeline.offer(artifact);
+      }
+   }
+   
+   /**
+    * Exclusion check used by the pipeline, which can't throw checked exceptions.
+    */
+   private boolean isExcludedWhilePiped(Artifact artifact)
+   {
+      try
+      {
+         String reason = getExclusionReason(artifact);
+         if (reason != null)
+         {
+            getLog().debug("Artifact: " + gatv(artifact) + " is skipped during dependency check.");
+            if (report != null)
+            {
+               report.excluded(artifact, reason);
+            }
+            return true;
+         }
+         return false;
+      }
+      catch (MojoExecutionException e)
+      {
+         throw new IllegalStateException(e.getMessage(), e);
+      }
+      catch (IOException e)
+      {
+         throw new IllegalStateException("Can't write report: " + report.getFile().getAbsolutePath(), e);
+      }
    }
    
    /**
-    * This method resolves the plugin artifacts from the project.
+    * This method gets the plugin and report artifacts from the project, they are resolved by {@link #resolvePlugin(Artifact)}.
     *
-    * @return set of resolved plugin artifacts.
-    * @throws ArtifactResolutionException
-    * @throws ArtifactNotFoundException
+    * @return set of filtered plugin artifacts.
     * @throws ArtifactFilterException 
     */
    @SuppressWarnings( "unchecked" )
-   protected Set<Artifact> resolvePluginArtifacts()
-       throws ArtifactResolutionException, ArtifactNotFoundException, ArtifactFilterException
+   protected Set<Artifact> getPluginArtifacts()
+       throws ArtifactFilterException
    {
        final Set<Artifact> plugins = project.getPluginArtifacts();
        final Set<Artifact> reports = project.getReportArtifacts();
@@ -228,13 +1020,6 @@ public class DependencyCheckMojo extends AbstractDependencyCheckMojo
 
        final FilterArtifacts filter = getPluginArtifactsFilter();
        artifacts = filter.filter( artifacts );
-
-       //        final ArtifactFilter filter = getPluginFilter();
-       for ( final Artifact artifact : new HashSet<Artifact>( artifacts ) )
-       {
-           // resolve the new artifact
-           this.resolver.resolve( artifact, this.remotePluginRepositories, this.getLocal() );
-       }
        return artifacts;
    }
    
@@ -244,74 +1029,125 @@ public class DependencyCheckMojo extends AbstractDependencyCheckMojo
       return null;
    }
    
-   private void writeMissingArtifact(Artifact artifact) throws IOException
+   /**
+    * Opens the index of the mirror, the mirrors are told apart by the hash of their paths.
+    */
+   private MirrorIndex openMirrorIndex(File mirror) throws IOException
    {
-      PrintWriter writer = null;
-      List<String> recorded = new ArrayList<String>();
+      String name = Long.toHexString(PersistentProbeCache.hash(mirror.getAbsolutePath()));
+      MirrorIndex index = new MirrorIndex(mirror, mirrorIndexDirectory, name);
+      index.setLogger(getLog());
+      index.open(mirrorIndexMaxAge * 1000L);
+      return index;
+   }
+   
+   private PersistentProbeCache loadProbeCache()
+   {
+      PersistentProbeCache cache = new PersistentProbeCache(probeCacheFile, probeCachePositiveTtl * 1000L, probeCacheNegativeTtl * 1000L);
+      cache.setLogger(getLog());
       try
       {
-         if (this.outputFile != null)
-         {
-            recorded = readRecordedFrom(outputFile);
-            writer = new PrintWriter(new FileWriter(outputFile, true));
-         }
-         String logStr = gatv(artifact);
-         if (recorded.contains(logStr))
-         {
-            getLog().info("Added Arleady: " + logStr);
-            return;
-         }
-         getLog().debug("Log artifact: " + logStr);
-         if (writer != null)
-         {
-            writer.println(logStr);
-         }
-         else
-         {
-            getLog().info(logStr);
-         }
+         cache.load();
+         return cache;
       }
-      finally
+      catch (IOException e)
       {
-         IOUtil.close(writer);
+         getLog().warn("Can't read probe cache: " + probeCacheFile.getAbsolutePath() + ", all artifacts will be checked.", e);
+         return null;
       }
    }
    
-   private List<String> readRecordedFrom(File file) throws IOException
+   /**
+    * Loads the snapshot of current module, the modules are told apart by the hash of their base directories.
+    */
+   private ModuleSnapshot loadModuleSnapshot(List<String> repositories)
    {
-      List<String> list = new ArrayList<String>();
-      if (!file.exists() || !file.canRead())
+      String name = Long.toHexString(PersistentProbeCache.hash(project.getBasedir().getAbsolutePath())) + ".snapshot";
+      ModuleSnapshot snapshot = new ModuleSnapshot(new File(moduleSnapshotDirectory, name), repositories, probeCachePositiveTtl * 1000L, probeCacheNegativeTtl * 1000L);
+      snapshot.setLogger(getLog());
+      try
+      {
+         snapshot.load();
+      }
+      catch (IOException e)
       {
-         return list;
+         getLog().warn("Can't read module snapshot of: " + project.getId() + ", all artifacts will be checked.", e);
       }
-      BufferedReader reader = null;
+      return snapshot;
+   }
+   
+   private void storeModuleSnapshot(ModuleSnapshot snapshot, List<Artifact> artifacts)
+   {
       try
       {
-         reader = new BufferedReader(new FileReader(file));
-         String line = null;
-         while((line = reader.readLine()) != null)
-         {
-            list.add(line);
-         }
+         snapshot.store(artifacts);
       }
-      finally
+      catch (IOException e)
+      {
+         getLog().warn("Can't write module snapshot of: " + project.getId(), e);
+      }
+   }
+   
+   /**
+    * Closes the report, the records written so far are kept when the check fails.
+    */
+   private void closeReport()
+   {
+      if (report == null)
+      {
+         return;
+      }
+      try
+      {
+         report.close();
+         getLog().info("Report of the check is written to: " + report.getFile().getAbsolutePath() + ", " + report.getRecords() + " records.");
+      }
+      catch (IOException e)
+      {
+         getLog().warn("Can't write report: " + report.getFile().getAbsolutePath(), e);
+      }
+      report = null;
+   }
+   
+   /**
+    * Gets the file of current module when several modules are built, so that they do not override each other: the
+    * artifactId of the module is added to the file name, before its extension.
+    */
+   private File moduleFile(File file)
+   {
+      if (session.getSortedProjects() == null || session.getSortedProjects().size() <= 1)
+      {
+         return file;
+      }
+      String name = file.getName();
+      int index = name.lastIndexOf('.');
+      String moduleName = index > 0 ? name.substring(0, index) + "-" + project.getArtifactId() + name.substring(index) : name + "-" + project.getArtifactId();
+      return new File(file.getAbsoluteFile().getParentFile(), moduleName);
+   }
+   
+   private void storeProbeCache(PersistentProbeCache cache)
+   {
+      try
+      {
+         cache.flush();
+      }
+      catch (IOException e)
       {
-         IOUtil.close(reader);
+         getLog().warn("Can't write probe cache: " + probeCacheFile.getAbsolutePath(), e);
       }
-      return list;
    }
 
    /**
-    * Gets current ArtifactRepository which will be used to check against
+    * Gets the predefined remote repository of the id
     */
-   private ArtifactRepository getArtifactRepository()
+   private ArtifactRepository getArtifactRepository(String id)
    {
       List<ArtifactRepository> artifactRepos = project.getRemoteArtifactRepositories();
       if (artifactRepos != null && artifactRepos.size() > 0)
       {
          for (ArtifactRepository artiRepo: artifactRepos)
          {
-            if (artiRepo.getId().equals(this.repoId))
+            if (artiRepo.getId().equals(id))
             {
                return artiRepo;
             }
@@ -0,0 +1,213 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * Fetches and collects the excluded poms in background threads, one thread per pom at most.
+ *
+ * @author lgao
+ *
+ */
+public class ExcludedPomsLoader
+{
+
+   private static final int MAX_THREADS = 4;
+
+   private final List<String> excludedPoms;
+
+   private final CollectConfig config;
+
+   private final RemotePomCache pomCache;
+
+   private final Log logger;
+
+   private List<Future<List<String>>> futures;
+
+   private long startTime;
+
+   private long timeout;
+
+   private RecursivePomCollector recursiveCollector;
+
+   public ExcludedPomsLoader(List<String> excludedPoms, CollectConfig config, RemotePomCache pomCache, Log logger)
+   {
+      super();
+      this.excludedPoms = excludedPoms;
+      this.config = config;
+      this.pomCache = pomCache;
+      this.logger = logger;
+   }
+
+   /**
+    * Starts fetching the poms, returns immediately.
+    */
+   public synchronized void start()
+   {
+      if (futures != null)
+      {
+         return;
+      }
+      logger.debug("Checking excluded poms: " + excludedPoms);
+      startTime = System.currentTimeMillis();
+      if (config.isRecursive())
+      {
+         // parents and BOMs shared by the excluded poms are read only once
+         recursiveCollector = new RecursivePomCollector(config.getProfile(), config.getRepositories(), pomCache);
+         recursiveCollector.setLogger(logger);
+      }
+      ExecutorService executor = Executors.newFixedThreadPool(Math.min(excludedPoms.size(), MAX_THREADS), new ThreadFactory()
+      {
+         public Thread newThread(Runnable r)
+         {
+            Thread thread = new Thread(r, "dependency-check-excluded-poms");
+            thread.setDaemon(true);
+            return thread;
+         }
+      });
+      futures = new ArrayList<Future<List<String>>>(excludedPoms.size());
+      for (final String pom: excludedPoms)
+      {
+         futures.add(executor.submit(new Callable<List<String>>()
+         {
+            public List<String> call() throws Exception
+            {
+               return collect(pom);
+            }
+         }));
+      }
+      executor.shutdown();
+   }
+
+   /**
+    * Whether all poms are loaded or failed, {@link #get()} does not wait for them then.
+    */
+   public synchronized boolean isDone()
+   {
+      if (futures == null)
+      {
+         return false;
+      }
+      for (Future<List<String>> future: futures)
+      {
+         if (!future.isDone())
+         {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Waits for all poms, returns the collected keys in the order of the excluded poms.
+    *
+    * @throws IOException if the poms are not loaded within the timeout since they started loading
+    */
+   public List<String> get() throws IOException, XmlPullParserException, InterruptedException
+   {
+      start();
+      Set<String> artifactsGAs = new LinkedHashSet<String>();
+      for (int i = 0; i < futures.size(); i++)
+      {
+         Future<List<String>> future = futures.get(i);
+         try
+         {
+            if (timeout > 0)
+            {
+               long remaining = startTime + timeout - System.currentTimeMillis();
+               artifactsGAs.addAll(future.get(Math.max(0, remaining), TimeUnit.MILLISECONDS));
+            }
+            else
+            {
+               artifactsGAs.addAll(future.get());
+            }
+         }
+         catch (TimeoutException e)
+         {
+            throw new IOException("Excluded pom: " + excludedPoms.get(i) + " is not loaded in " + timeout + " ms");
+         }
+         catch (ExecutionException e)
+         {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+            {
+               throw (IOException)cause;
+            }
+            if (cause instanceof XmlPullParserException)
+            {
+               throw (XmlPullParserException)cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+               throw (RuntimeException)cause;
+            }
+            throw new IllegalStateException("Error when loading excluded poms", cause);
+         }
+      }
+      if (recursiveCollector != null)
+      {
+         recursiveCollector.shutdown();
+      }
+      return new ArrayList<String>(artifactsGAs);
+   }
+
+   /**
+    * @return the timeout
+    */
+   public long getTimeout()
+   {
+      return timeout;
+   }
+
+   /**
+    * @param timeout milliseconds to wait for all poms since they started loading, 0 to wait forever
+    */
+   public void setTimeout(long timeout)
+   {
+      this.timeout = timeout;
+   }
+
+   private List<String> collect(String pom) throws IOException, XmlPullParserException
+   {
+      MavenDependencyCollector collector = new MavenDependencyCollector();
+      collector.setLogger(logger);
+      if (recursiveCollector != null)
+      {
+         // the parents and the BOMs may change while the pom does not, so the collected keys are not reused.
+         // the remote URL is given, so that the parents and the BOMs are searched in the repository of the pom first,
+         // the pom itself is still read from the cache.
+         collector.setRecursiveCollector(recursiveCollector);
+         return collector.collectDeclaredArtifacts(new URL(pom), config);
+      }
+      File pomFile = pomCache.fetch(new URL(pom));
+      List<String> gas = pomCache.readCollected(pomFile, config);
+      if (gas != null)
+      {
+         logger.debug("Uses collected artifacts of unchanged pom: " + pom);
+         return gas;
+      }
+      gas = collector.collectDeclaredArtifacts(pomFile.toURI().toURL(), config);
+      pomCache.writeCollected(pomFile, config, gas);
+      return gas;
+   }
+
+}
@@ -0,0 +1,427 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Matches groupId:artifactId:version of artifacts against a list of exclusion patterns.
+ *
+ * A pattern excludes an artifact when the groupId:artifactId:version of the artifact starts with it, like
+ * <code>org.jboss</code>, <code>org.jboss.logging:jboss-logging</code> or
+ * <code>org.jboss.logging:jboss-logging:3.1</code>. A pattern can contain the wildcards <code>*</code>, which matches any
+ * characters, and <code>?</code>, which matches one character, like <code>org.jboss.*:*:*-redhat-*</code>.
+ *
+ * The patterns are compiled once: patterns which are a whole groupId, groupId:artifactId or groupId:artifactId:version
+ * are looked up in hash sets, patterns which end in the middle of a groupId, artifactId or version are found by walking
+ * the artifact along a prefix tree, and the patterns with wildcards are compiled to an automaton whose states are built
+ * on first use. Checking an artifact does not depend on how many patterns there are.
+ *
+ * @author lgao
+ *
+ */
+public class ExclusionMatcher
+{
+
+   /** The automaton is rebuilt from scratch when it reaches this number of states. */
+   private static final int MAX_STATES = 10000;
+
+   private final Set<String> groups = new HashSet<String>();
+
+   private final Set<String> groupArtifacts = new HashSet<String>();
+
+   private final Set<String> groupArtifactVersions = new HashSet<String>();
+
+   private final TrieNode literals = new TrieNode();
+
+   private boolean hasLiterals;
+
+   private final GlobNode globs = new GlobNode(0);
+
+   private final List<GlobNode> globNodes = new ArrayList<GlobNode>();
+
+   private boolean hasGlobs;
+
+   private final Map<StateKey, State> states = new HashMap<StateKey, State>();
+
+   private State initialState;
+
+   private int size;
+
+   public ExclusionMatcher()
+   {
+      super();
+      globNodes.add(globs);
+   }
+
+   /**
+    * Adds the patterns.
+    */
+   public void addAll(Collection<String> patterns)
+   {
+      if (patterns == null)
+      {
+         return;
+      }
+      for (String pattern: patterns)
+      {
+         add(pattern);
+      }
+   }
+
+   /**
+    * Adds one pattern.
+    */
+   public synchronized void add(String pattern)
+   {
+      if (pattern == null)
+      {
+         return;
+      }
+      size++;
+      if (pattern.indexOf('*') != -1 || pattern.indexOf('?') != -1)
+      {
+         addGlob(pattern);
+         return;
+      }
+      int colons = 0;
+      for (int i = 0; i < pattern.length(); i++)
+      {
+         if (pattern.charAt(i) == ':')
+         {
+            colons++;
+         }
+      }
+      if (colons == 0)
+      {
+         groups.add(pattern);
+      }
+      else if (colons == 1)
+      {
+         groupArtifacts.add(pattern);
+      }
+      else if (colons == 2)
+      {
+         groupArtifactVersions.add(pattern);
+      }
+      // it still may match part of a longer groupId, artifactId or version
+      TrieNode node = literals;
+      for (int i = 0; i < pattern.length(); i++)
+      {
+         node = node.getOrCreate(pattern.charAt(i));
+      }
+      node.terminal = true;
+      hasLiterals = true;
+   }
+
+   /**
+    * @return how many patterns are added
+    */
+   public int size()
+   {
+      return size;
+   }
+
+   /**
+    * Checks whether the artifact is excluded by any pattern.
+    */
+   public boolean matches(String groupId, String artifactId, String version)
+   {
+      if (size == 0)
+      {
+         return false;
+      }
+      String ga = groupId + ":" + artifactId;
+      String line = ga + ":" + version;
+      if (groups.contains(groupId) || groupArtifacts.contains(ga) || groupArtifactVersions.contains(line))
+      {
+         return true;
+      }
+      if (hasLiterals && matchesLiteral(line))
+      {
+         return true;
+      }
+      return hasGlobs && matchesGlob(line);
+   }
+
+   private boolean matchesLiteral(String line)
+   {
+      TrieNode node = literals;
+      if (node.terminal)
+      {
+         return true;
+      }
+      for (int i = 0; i < line.length(); i++)
+      {
+         node = node.get(line.charAt(i));
+         if (node == null)
+         {
+            return false;
+         }
+         if (node.terminal)
+         {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   private synchronized boolean matchesGlob(String line)
+   {
+      if (initialState == null || states.size() > MAX_STATES)
+      {
+         states.clear();
+         initialState = state(closure(new int[] {0}));
+      }
+      State state = initialState;
+      for (int i = 0; i < line.length() && !state.accept; i++)
+      {
+         char c = line.charAt(i);
+         State next = state.transitions.get(c);
+         if (next == null)
+         {
+            next = state(step(state.key.nodes, c));
+            state.transitions.put(c, next);
+         }
+         state = next;
+         if (state.key.nodes.length == 0)
+         {
+            return false;
+         }
+      }
+      return state.accept;
+   }
+
+   private void addGlob(String pattern)
+   {
+      GlobNode node = globs;
+      for (int i = 0; i < pattern.length(); i++)
+      {
+         char c = pattern.charAt(i);
+         if (c == '*')
+         {
+            if (node.star == null)
+            {
+               node.star = newGlobNode();
+               node.star.loop = true;
+            }
+            node = node.star;
+         }
+         else if (c == '?')
+         {
+            if (node.any == null)
+            {
+               node.any = newGlobNode();
+            }
+            node = node.any;
+         }
+         else
+         {
+            GlobNode child = node.children.get(c);
+            if (child == null)
+            {
+               child = newGlobNode();
+               node.children.put(c, child);
+            }
+            node = child;
+         }
+      }
+      node.terminal = true;
+      hasGlobs = true;
+      // the automaton built so far does not know the new pattern
+      states.clear();
+      initialState = null;
+   }
+
+   private GlobNode newGlobNode()
+   {
+      GlobNode node = new GlobNode(globNodes.size());
+      globNodes.add(node);
+      return node;
+   }
+
+   private State state(int[] nodes)
+   {
+      StateKey key = new StateKey(nodes);
+      State state = states.get(key);
+      if (state == null)
+      {
+         state = new State(key);
+         for (int id: nodes)
+         {
+            if (globNodes.get(id).terminal)
+            {
+               state.accept = true;
+               break;
+            }
+         }
+         states.put(key, state);
+      }
+      return state;
+   }
+
+   private int[] step(int[] nodes, char c)
+   {
+      Set<Integer> next = new HashSet<Integer>();
+      for (int id: nodes)
+      {
+         GlobNode node = globNodes.get(id);
+         if (node.loop)
+         {
+            next.add(node.id);
+         }
+         GlobNode child = node.children.get(c);
+         if (child != null)
+         {
+            next.add(child.id);
+         }
+         if (node.any != null)
+         {
+            next.add(node.any.id);
+         }
+      }
+      int[] ids = new int[next.size()];
+      int i = 0;
+      for (Integer id: next)
+      {
+         ids[i++] = id;
+      }
+      return closure(ids);
+   }
+
+   /**
+    * Adds the nodes reached by '*' without consuming any character, returns the sorted node ids.
+    */
+   private int[] closure(int[] nodes)
+   {
+      Set<Integer> all = new HashSet<Integer>();
+      for (int id: nodes)
+      {
+         GlobNode node = globNodes.get(id);
+         while (node != null && all.add(node.id))
+         {
+            node = node.star;
+         }
+      }
+      int[] ids = new int[all.size()];
+      int i = 0;
+      for (Integer id: all)
+      {
+         ids[i++] = id;
+      }
+      Arrays.sort(ids);
+      return ids;
+   }
+
+   /** Node of the prefix tree of the literal patterns, children are kept sorted by character. */
+   private static class TrieNode
+   {
+      private char[] keys = new char[0];
+
+      private TrieNode[] children = new TrieNode[0];
+
+      private boolean terminal;
+
+      private TrieNode get(char c)
+      {
+         int index = Arrays.binarySearch(keys, c);
+         return index < 0 ? null : children[index];
+      }
+
+      private TrieNode getOrCreate(char c)
+      {
+         int index = Arrays.binarySearch(keys, c);
+         if (index >= 0)
+         {
+            return children[index];
+         }
+         index = -index - 1;
+         char[] newKeys = new char[keys.length + 1];
+         TrieNode[] newChildren = new TrieNode[children.length + 1];
+         System.arraycopy(keys, 0, newKeys, 0, index);
+         System.arraycopy(children, 0, newChildren, 0, index);
+         System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+         System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+         TrieNode node = new TrieNode();
+         newKeys[index] = c;
+         newChildren[index] = node;
+         keys = newKeys;
+         children = newChildren;
+         return node;
+      }
+   }
+
+   /** Node of the non deterministic automaton of the patterns with wildcards. */
+   private static class GlobNode
+   {
+      private final int id;
+
+      private final Map<Character, GlobNode> children = new HashMap<Character, GlobNode>();
+
+      /** reached by '?' */
+      private GlobNode any;
+
+      /** reached by '*' */
+      private GlobNode star;
+
+      /** stays on any character, it is reached by '*' */
+      private boolean loop;
+
+      private boolean terminal;
+
+      private GlobNode(int id)
+      {
+         this.id = id;
+      }
+   }
+
+   /** Sorted ids of the automaton nodes which make up one deterministic state. */
+   private static class StateKey
+   {
+      private final int[] nodes;
+
+      private final int hash;
+
+      private StateKey(int[] nodes)
+      {
+         this.nodes = nodes;
+         this.hash = Arrays.hashCode(nodes);
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return hash;
+      }
+
+      @Override
+      public boolean equals(Object obj)
+      {
+         return obj instanceof StateKey && Arrays.equals(nodes, ((StateKey)obj).nodes);
+      }
+   }
+
+   /** Deterministic state, the transitions are computed on first use. */
+   private static class State
+   {
+      private final StateKey key;
+
+      private final Map<Character, State> transitions = new HashMap<Character, State>();
+
+      private boolean accept;
+
+      private State(StateKey key)
+      {
+         this.key = key;
+      }
+   }
+
+}
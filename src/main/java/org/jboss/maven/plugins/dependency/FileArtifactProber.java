@@ -0,0 +1,100 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.File;
+import java.net.HttpURLConnection;
+
+import org.apache.maven.artifact.Artifact;
+
+/**
+ * Checks the existence of the artifact's pom file in a local directory which mirrors a Maven Repository.
+ *
+ * The answers use the HTTP response codes, so they are handled the same way as the answers of a remote repository.
+ *
+ * @author lgao
+ *
+ */
+public class FileArtifactProber implements RepositoryFileProber
+{
+
+   private final File directory;
+
+   private final String repoURL;
+
+   private MirrorIndex index;
+
+   /**
+    * @param directory the root directory of the mirror
+    */
+   public FileArtifactProber(File directory)
+   {
+      super();
+      this.directory = directory;
+      String url = directory.toURI().toString();
+      this.repoURL = url.endsWith("/") ? url : url + "/";
+   }
+
+   public ProbeResult probe(Artifact artifact)
+   {
+      String path = HttpArtifactProber.artifactPath(artifact);
+      if (index != null && index.contains(path))
+      {
+         // the index knows the file exists, the size is not looked up
+         return ProbeResult.answered(artifact, repoURL + path, HttpURLConnection.HTTP_OK);
+      }
+      if (index != null && index.isComplete() && path.endsWith(".pom"))
+      {
+         // all poms of the mirror are in a complete index
+         return ProbeResult.answered(artifact, repoURL + path, HttpURLConnection.HTTP_NOT_FOUND);
+      }
+      File file = new File(directory, path);
+      if (!file.isFile() && artifact.isSnapshot() && path.endsWith("/maven-metadata.xml"))
+      {
+         // a local repository keeps the pom of a snapshot under its base version name
+         file = new File(directory, path.substring(0, path.lastIndexOf('/') + 1) + artifact.getArtifactId() + "-" + artifact.getVersion() + ".pom");
+      }
+      if (file.isFile())
+      {
+         return ProbeResult.answered(artifact, repoURL + path, HttpURLConnection.HTTP_OK, file.length());
+      }
+      return ProbeResult.answered(artifact, repoURL + path, HttpURLConnection.HTTP_NOT_FOUND);
+   }
+
+   public ProbeResult probeFile(Artifact artifact, String path)
+   {
+      File file = new File(directory, path);
+      if (file.isFile())
+      {
+         return ProbeResult.answered(artifact, repoURL + path, HttpURLConnection.HTTP_OK, file.length());
+      }
+      return ProbeResult.answered(artifact, repoURL + path, HttpURLConnection.HTTP_NOT_FOUND);
+   }
+
+   /**
+    * @return the repoURL, the file: URL of the directory
+    */
+   public String getRepoURL()
+   {
+      return repoURL;
+   }
+
+   /**
+    * @return the index
+    */
+   public MirrorIndex getIndex()
+   {
+      return index;
+   }
+
+   /**
+    * @param index the index of the pom files of the mirror, poms not in the index are missing when it is complete,
+    *           they are still checked on disk otherwise
+    */
+   public void setIndex(MirrorIndex index)
+   {
+      this.index = index;
+   }
+
+}
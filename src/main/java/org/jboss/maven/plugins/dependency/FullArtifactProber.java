@@ -0,0 +1,153 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.maven.artifact.Artifact;
+
+/**
+ * Checks all files of an artifact, not only its pom: the main artifact, the files of the configured classifiers, and
+ * the <b>.sha1</b> checksum of each of them.
+ *
+ * The pom is checked first. The other files are checked only when the pom is found, all at the same time, and the
+ * result of the first missing file in the order of {@link #filePaths(Artifact)} is returned. The files go through the
+ * same probers as the poms, so they are shared across the reactor, kept in the module snapshot and the probe cache,
+ * and counted in the metrics of the repository.
+ *
+ * SNAPSHOT artifacts which are not resolved to a timestamped version have no file with a fixed name, only their
+ * metadata is checked.
+ *
+ * @author lgao
+ *
+ */
+public class FullArtifactProber implements ArtifactProber
+{
+
+   private static final String CHECKSUM_EXTENSION = ".sha1";
+
+   private final RepositoryFileProber delegate;
+
+   private final List<String> classifiers;
+
+   private final boolean checksums;
+
+   private final ExecutorService executor;
+
+   /**
+    * @param delegate checks the pom and the other files of the artifact
+    * @param classifiers the classifiers checked besides the main artifact, like 'sources' or 'dist:zip', the extension
+    *           of the main artifact is used when none is given, may be null
+    * @param checksums whether to check the .sha1 files
+    * @param executor where the files of an artifact are checked at the same time
+    */
+   public FullArtifactProber(RepositoryFileProber delegate, List<String> classifiers, boolean checksums, ExecutorService executor)
+   {
+      super();
+      this.delegate = delegate;
+      this.classifiers = classifiers;
+      this.checksums = checksums;
+      this.executor = executor;
+   }
+
+   public ProbeResult probe(final Artifact artifact)
+   {
+      ProbeResult result = delegate.probe(artifact);
+      if (result.isMissing() || result.isFailed())
+      {
+         return result;
+      }
+      List<Future<ProbeResult>> futures = new ArrayList<Future<ProbeResult>>();
+      for (final String path: filePaths(artifact))
+      {
+         futures.add(executor.submit(new Callable<ProbeResult>()
+         {
+            public ProbeResult call() throws Exception
+            {
+               return delegate.probeFile(artifact, path);
+            }
+         }));
+      }
+      try
+      {
+         for (Future<ProbeResult> future: futures)
+         {
+            ProbeResult fileResult = ProbeEngine.getResult(future);
+            if (fileResult.isMissing() || fileResult.isFailed())
+            {
+               return fileResult;
+            }
+         }
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         return ProbeResult.failed(artifact, result.getLink(), new InterruptedIOException("Interrupted when checking files of: " + artifact));
+      }
+      finally
+      {
+         // the files not checked yet are skipped, the running checks are not interrupted as other modules may wait for them
+         for (Future<ProbeResult> future: futures)
+         {
+            future.cancel(false);
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Gets the paths of the files to check besides the pom, relative to the repository root.
+    */
+   List<String> filePaths(Artifact artifact)
+   {
+      List<String> paths = new ArrayList<String>();
+      String version = artifact.getVersion();
+      if (artifact.isSnapshot() && version.equals(artifact.getBaseVersion()))
+      {
+         return paths;
+      }
+      String pomPath = HttpArtifactProber.artifactPath(artifact);
+      String prefix = pomPath.substring(0, pomPath.length() - ".pom".length());
+      if (checksums)
+      {
+         paths.add(pomPath + CHECKSUM_EXTENSION);
+      }
+      String extension = artifact.getArtifactHandler() == null ? artifact.getType() : artifact.getArtifactHandler().getExtension();
+      if ("pom".equals(extension))
+      {
+         return paths;
+      }
+      if (artifact.hasClassifier())
+      {
+         addFile(paths, prefix + "-" + artifact.getClassifier() + "." + extension);
+         return paths;
+      }
+      addFile(paths, prefix + "." + extension);
+      if (classifiers != null)
+      {
+         for (String classifier: classifiers)
+         {
+            // classifier[:extension]
+            String[] parts = classifier.trim().split(":");
+            addFile(paths, prefix + "-" + parts[0] + "." + (parts.length > 1 ? parts[1] : extension));
+         }
+      }
+      return paths;
+   }
+
+   private void addFile(List<String> paths, String path)
+   {
+      paths.add(path);
+      if (checksums)
+      {
+         paths.add(path + CHECKSUM_EXTENSION);
+      }
+   }
+
+}
@@ -4,14 +4,18 @@
 package org.jboss.maven.plugins.dependency;
 
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.maven.model.Dependency;
 import org.apache.maven.model.DependencyManagement;
-import org.apache.maven.model.Model;
-import org.apache.maven.model.io.xpp3.MavenXpp3Writer;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -20,7 +24,10 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.shared.artifact.filter.collection.ArtifactsFilter;
+import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.xml.PrettyPrintXMLWriter;
+import org.codehaus.plexus.util.xml.XMLWriter;
 
 /**
  * 
@@ -39,6 +46,8 @@ public class GeneratePomMojo extends AbstractDependencyCheckMojo
    
    private static final String DEFAULT_VERSION = "1.0.0";
    
+   private static final String TEST_POM_NAME = "JBoss BOM Test Pom";
+   
    /**
     * Specify the version of the BOM to be tested in the generated POM file.
     * 
@@ -66,6 +75,21 @@ public class GeneratePomMojo extends AbstractDependencyCheckMojo
    @Parameter(property = "bomVersion")
    private String bomVersion;
    
+   /**
+    * Splits the dependencies of each generated pom into this many shard modules.
+    * 
+    * The shards are generated in a directory named like the flat test pom, under an aggregator <b>pom.xml</b> which imports the BOM,
+    * so that they can be verified in parallel:
+    * 
+    * <pre>
+    *   mvn -T 4 -f target/generated-bom-poms/XXX-test-bom/pom.xml dependency:tree
+    * </pre>
+    * 
+    * One flat test pom is generated when it is less than 2.
+    */
+   @Parameter(property = "shards", defaultValue = "0")
+   private int shards;
+   
    
    @Override
    protected void doExecute() throws MojoExecutionException, MojoFailureException
@@ -88,78 +112,242 @@ public class GeneratePomMojo extends AbstractDependencyCheckMojo
                 return;
              }
              
-             Model model = new Model();
-             model.setModelVersion("4.0.0");
-             model.setName("JBoss BOM Test Pom");
-             model.setGroupId(groupId + BOM_SUFFIX);
-             model.setArtifactId(artifactId + BOM_SUFFIX);
-             model.setVersion(DEFAULT_VERSION);
-             
-             DependencyManagement depMan = new DependencyManagement();
-             model.setDependencyManagement(depMan);
-             Dependency depInMan = new Dependency();
-             
-             depInMan.setGroupId(groupId);
-             depInMan.setArtifactId(artifactId);
              String pomVersion = version;
              if (bomVersion != null && bomVersion.trim().length() > 0)
              {
                 pomVersion = bomVersion;
              }
-             depInMan.setVersion(pomVersion);
-             depInMan.setType(type);
-             depInMan.setScope("import");
-             depMan.addDependency(depInMan);
              
-             
-             for (Dependency dep : dependencies) {
-                if (dep.getScope() != null
-                    && (dep.getScope().equals("runtime") || dep.getScope().equals("system") || dep.getScope().equals("import"))) {
-                   
-                    getLog().debug("Ignoring runtime/system/import dependency " + dep);
-                    continue;
-                }
-                
-                if (dep.getType() != null && dep.getType().equals("pom"))
-                {
-                   getLog().debug("Ingoring pom dependencies" + dep);
-                   continue;
-                }
-                
-                if (isDependencyExcluded(dep))
-                {
-                   continue;
-                }
-                
-                // we only need groupId and artifactId
-                Dependency depClone = new Dependency();
-                depClone.setGroupId(dep.getGroupId());
-                depClone.setArtifactId(dep.getArtifactId());
-                
-                model.addDependency(depClone);
-            }
-             
-             File generatedPom = new File(rootTargetDir, groupId + "-" + artifactId + "-" + pomVersion + BOM_SUFFIX + ".pom");
-             getLog().info("Generates test bom pom at: " + generatedPom.getAbsolutePath());
-             
-             FileWriter out = null;
-             try
+             String name = groupId + "-" + artifactId + "-" + pomVersion + BOM_SUFFIX;
+             File generated = shards > 1 ? new File(rootTargetDir, name) : new File(rootTargetDir, name + ".pom");
+             File hashFile = new File(rootTargetDir, name + ".sha1");
+             String hash = inputHash(dependencies, pomVersion);
+             if (generated.exists() && hash.equals(readHash(hashFile)))
              {
-                out = new FileWriter(generatedPom);
-                new MavenXpp3Writer().write(out, model);
+                getLog().info("Test bom pom is up to date: " + generated.getAbsolutePath());
+                return;
              }
-             catch(IOException e)
+             
+             TestPom testPom = new TestPom(groupId + BOM_SUFFIX, artifactId + BOM_SUFFIX, groupId, artifactId, pomVersion, type);
+             if (shards > 1)
              {
-                throw new MojoExecutionException("Can't generate test bom POM file: " + generatedPom.getAbsolutePath(), e);
+                List<Dependency> testDependencies = new ArrayList<Dependency>();
+                for (Dependency dep : dependencies) {
+                   if (isBomTestDependency(dep))
+                   {
+                      testDependencies.add(dep);
+                   }
+                }
+                writeShards(testPom, testDependencies, generated);
              }
-             finally
+             else
              {
-                IOUtil.close(out);
+                getLog().info("Generates test bom pom at: " + generated.getAbsolutePath());
+                writeTestPom(testPom, null, dependencies, generated);
              }
+             writeHash(hashFile, hash);
           }
       }
    }
    
+   /**
+    * Writes the aggregator pom, which imports the BOM, and one module per shard of the dependencies.
+    */
+   private void writeShards(TestPom aggregator, List<Dependency> testDependencies, File shardsDir) throws MojoExecutionException
+   {
+      int shardCount = Math.max(1, Math.min(shards, testDependencies.size()));
+      int shardSize = (testDependencies.size() + shardCount - 1) / shardCount;
+      getLog().info("Generates " + shardCount + " shards of test bom poms at: " + shardsDir.getAbsolutePath());
+      List<String> modules = new ArrayList<String>();
+      for (int i = 0; i < shardCount; i++)
+      {
+         String module = "shard-" + (i + 1);
+         modules.add(module);
+         int from = Math.min(testDependencies.size(), i * shardSize);
+         int to = Math.min(testDependencies.size(), from + shardSize);
+         TestPom shard = new TestPom(null, aggregator.artifactId + "-" + module, null, null, null, null);
+         shard.parent = aggregator;
+         writeTestPom(shard, null, testDependencies.subList(from, to), new File(new File(shardsDir, module), "pom.xml"));
+      }
+      writeTestPom(aggregator, modules, null, new File(shardsDir, "pom.xml"));
+   }
+   
+   /**
+    * Streams the test pom into the file, the test dependencies are filtered while they are written.
+    * 
+    * @param modules the modules of an aggregator pom, or null
+    * @param dependencies the managed dependencies to filter, or null
+    */
+   private void writeTestPom(TestPom pom, List<String> modules, List<Dependency> dependencies, File pomFile) throws MojoExecutionException
+   {
+      File dir = pomFile.getParentFile();
+      if (!dir.exists())
+      {
+         dir.mkdirs();
+      }
+      Writer out = null;
+      try
+      {
+         out = new OutputStreamWriter(new FileOutputStream(pomFile), "UTF-8");
+         XMLWriter writer = new PrettyPrintXMLWriter(out, "  ", "UTF-8", null);
+         writer.startElement("project");
+         if (pom.parent != null)
+         {
+            writer.startElement("parent");
+            writeElement(writer, "groupId", pom.parent.groupId);
+            writeElement(writer, "artifactId", pom.parent.artifactId);
+            writeElement(writer, "version", DEFAULT_VERSION);
+            writer.endElement();
+         }
+         writeElement(writer, "modelVersion", "4.0.0");
+         writeElement(writer, "groupId", pom.groupId);
+         writeElement(writer, "artifactId", pom.artifactId);
+         if (modules != null || pom.parent != null)
+         {
+            writeElement(writer, "packaging", "pom");
+         }
+         writeElement(writer, "name", pom.parent == null ? TEST_POM_NAME : TEST_POM_NAME + " " + pom.artifactId.substring(pom.parent.artifactId.length() + 1));
+         if (pom.parent == null)
+         {
+            writeElement(writer, "version", DEFAULT_VERSION);
+         }
+         if (modules != null)
+         {
+            writer.startElement("modules");
+            for (String module: modules)
+            {
+               writeElement(writer, "module", module);
+            }
+            writer.endElement();
+         }
+         if (pom.bomArtifactId != null)
+         {
+            writer.startElement("dependencyManagement");
+            writer.startElement("dependencies");
+            writer.startElement("dependency");
+            writeElement(writer, "groupId", pom.bomGroupId);
+            writeElement(writer, "artifactId", pom.bomArtifactId);
+            writeElement(writer, "version", pom.bomVersion);
+            writeElement(writer, "type", pom.bomType);
+            writeElement(writer, "scope", "import");
+            writer.endElement();
+            writer.endElement();
+            writer.endElement();
+         }
+         if (dependencies != null)
+         {
+            writer.startElement("dependencies");
+            for (Dependency dep : dependencies) {
+               // the shards are filtered already
+               if (pom.parent == null && !isBomTestDependency(dep))
+               {
+                  continue;
+               }
+               // we only need groupId and artifactId
+               writer.startElement("dependency");
+               writeElement(writer, "groupId", dep.getGroupId());
+               writeElement(writer, "artifactId", dep.getArtifactId());
+               writer.endElement();
+            }
+            writer.endElement();
+         }
+         writer.endElement();
+         out.write("\n");
+      }
+      catch(IOException e)
+      {
+         throw new MojoExecutionException("Can't generate test bom POM file: " + pomFile.getAbsolutePath(), e);
+      }
+      finally
+      {
+         IOUtil.close(out);
+      }
+   }
+   
+   private void writeElement(XMLWriter writer, String name, String text)
+   {
+      if (text == null)
+      {
+         return;
+      }
+      writer.startElement(name);
+      writer.writeText(text);
+      writer.endElement();
+   }
+   
+   /**
+    * Hash of everything the test poms are generated from: the managed dependencies, the exclusion configuration, and the
+    * parameters of this goal.
+    * 
+    * The content of the excluded poms is not part of it, run <b>clean</b> to generate again after it changes.
+    */
+   private String inputHash(List<Dependency> dependencies, String pomVersion) throws MojoExecutionException
+   {
+      try
+      {
+         MessageDigest digest = MessageDigest.getInstance("SHA-1");
+         StringBuilder sb = new StringBuilder();
+         sb.append("version=").append(pomVersion).append('\n');
+         sb.append("shards=").append(shards).append('\n');
+         sb.append("scope=").append(scope).append('\n');
+         sb.append("profile=").append(profile).append('\n');
+         sb.append("includeVersion=").append(includeVersion).append('\n');
+         sb.append("excludedPoms=").append(excludedPoms).append('\n');
+         sb.append("excludedArtifacts=").append(excludedArtifacts).append('\n');
+         digest.update(sb.toString().getBytes("UTF-8"));
+         for (Dependency dep : dependencies)
+         {
+            sb.setLength(0);
+            sb.append(dep.getGroupId()).append(':').append(dep.getArtifactId()).append(':').append(dep.getVersion());
+            sb.append(':').append(dep.getType()).append(':').append(dep.getClassifier()).append(':').append(dep.getScope()).append('\n');
+            digest.update(sb.toString().getBytes("UTF-8"));
+         }
+         StringBuilder hex = new StringBuilder();
+         for (byte b: digest.digest())
+         {
+            hex.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+         }
+         return hex.toString();
+      }
+      catch (NoSuchAlgorithmException e)
+      {
+         throw new MojoExecutionException("SHA-1 is not supported", e);
+      }
+      catch (UnsupportedEncodingException e)
+      {
+         throw new MojoExecutionException("UTF-8 is not supported", e);
+      }
+   }
+   
+   private String readHash(File hashFile)
+   {
+      if (!hashFile.exists())
+      {
+         return null;
+      }
+      try
+      {
+         return FileUtils.fileRead(hashFile, "UTF-8").trim();
+      }
+      catch (IOException e)
+      {
+         getLog().debug("Can't read: " + hashFile.getAbsolutePath(), e);
+         return null;
+      }
+   }
+   
+   private void writeHash(File hashFile, String hash) throws MojoExecutionException
+   {
+      try
+      {
+         FileUtils.fileWrite(hashFile, "UTF-8", hash);
+      }
+      catch (IOException e)
+      {
+         throw new MojoExecutionException("Can't write: " + hashFile.getAbsolutePath(), e);
+      }
+   }
+   
    @Override
    protected ArtifactsFilter getMarkedArtifactFilter()
    {
@@ -186,4 +374,35 @@ public class GeneratePomMojo extends AbstractDependencyCheckMojo
    }
    
 
+   /**
+    * Coordinates of a generated test pom, and of the BOM it imports.
+    */
+   private static class TestPom
+   {
+      private final String groupId;
+      
+      private final String artifactId;
+      
+      private final String bomGroupId;
+      
+      private final String bomArtifactId;
+      
+      private final String bomVersion;
+      
+      private final String bomType;
+      
+      private TestPom parent;
+      
+      private TestPom(String groupId, String artifactId, String bomGroupId, String bomArtifactId, String bomVersion, String bomType)
+      {
+         super();
+         this.groupId = groupId;
+         this.artifactId = artifactId;
+         this.bomGroupId = bomGroupId;
+         this.bomArtifactId = bomArtifactId;
+         this.bomVersion = bomVersion;
+         this.bomType = bomType;
+      }
+   }
+
 }
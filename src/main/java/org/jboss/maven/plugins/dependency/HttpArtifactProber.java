@@ -0,0 +1,133 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+
+import org.apache.maven.artifact.Artifact;
+
+/**
+ * Checks the existence of the artifact's pom file in a remote Maven Repository.
+ *
+ * @author lgao
+ *
+ */
+public class HttpArtifactProber implements RepositoryFileProber
+{
+
+   private final String repoURL;
+
+   private final RepositoryClient client;
+
+   private RepositoryMetadata metadata;
+
+   /**
+    * @param client the client of the repository to check against
+    */
+   public HttpArtifactProber(RepositoryClient client)
+   {
+      super();
+      this.client = client;
+      this.repoURL = client.getRepoURL();
+   }
+
+   /**
+    * Gets the link of the pom file of the artifact in the repository.
+    */
+   public String artifactLink(Artifact artifact)
+   {
+      return repoURL + artifactPath(artifact);
+   }
+
+   /**
+    * Gets the path of the pom file of the artifact, relative to the repository root.
+    *
+    * Snapshots are stored in the directory of their base version. A snapshot which is not resolved to a timestamped
+    * version has no pom with a fixed name, the path of the metadata of its base version is used instead.
+    */
+   static String artifactPath(Artifact artifact)
+   {
+      String version = artifact.getVersion();
+      String baseVersion = artifact.isSnapshot() ? artifact.getBaseVersion() : version;
+      String directory = artifact.getGroupId().replaceAll("\\.", "/") + "/" + artifact.getArtifactId() + "/" + baseVersion + "/";
+      if (artifact.isSnapshot() && version.equals(baseVersion))
+      {
+         return directory + "maven-metadata.xml";
+      }
+      return directory + artifact.getArtifactId() + "-" + version + ".pom";
+   }
+
+   /**
+    * Checks the metadata of the groupId:artifactId first if it is set. The pom is not checked when the metadata lists
+    * the version, and a listed pom of the same groupId:artifactId was confirmed to exist.
+    */
+   public ProbeResult probe(Artifact artifact)
+   {
+      String artifactLink = artifactLink(artifact);
+      try
+      {
+         boolean listed = metadata != null && !artifact.isSnapshot() && Boolean.TRUE.equals(metadata.isListed(artifact, client));
+         if (listed && metadata.isConfirmed(artifact))
+         {
+            metadata.answered();
+            return ProbeResult.answered(artifact, artifactLink, HttpURLConnection.HTTP_OK);
+         }
+         ProbeResult result = client.check(artifact, artifactLink);
+         if (listed && !result.isFailed())
+         {
+            metadata.confirm(artifact, !result.isMissing());
+         }
+         return result;
+      }
+      catch (IOException e)
+      {
+         return ProbeResult.failed(artifact, artifactLink, e);
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         return ProbeResult.failed(artifact, artifactLink, new InterruptedIOException("Interrupted when checking: " + artifactLink));
+      }
+   }
+
+   public ProbeResult probeFile(Artifact artifact, String path)
+   {
+      String link = repoURL + path;
+      try
+      {
+         return client.check(artifact, link);
+      }
+      catch (IOException e)
+      {
+         return ProbeResult.failed(artifact, link, e);
+      }
+   }
+
+   /**
+    * @return the metadata
+    */
+   public RepositoryMetadata getMetadata()
+   {
+      return metadata;
+   }
+
+   /**
+    * @param metadata the metadata to set, null to check the poms only
+    */
+   public void setMetadata(RepositoryMetadata metadata)
+   {
+      this.metadata = metadata;
+   }
+
+   /**
+    * @return the repoURL
+    */
+   public String getRepoURL()
+   {
+      return repoURL;
+   }
+
+}
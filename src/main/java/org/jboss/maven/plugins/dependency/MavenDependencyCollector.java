@@ -8,7 +8,11 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.maven.model.Build;
 import org.apache.maven.model.BuildBase;
@@ -16,7 +20,6 @@ import org.apache.maven.model.Dependency;
 import org.apache.maven.model.DependencyManagement;
 import org.apache.maven.model.Model;
 import org.apache.maven.model.Plugin;
-import org.apache.maven.model.PluginManagement;
 import org.apache.maven.model.Profile;
 import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
 import org.apache.maven.plugin.logging.Log;
@@ -30,8 +33,16 @@ import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 public class MavenDependencyCollector
 {
    
+   /**
+    * The version of the collected keys, increase it when the collector collects other keys from the same pom, so that
+    * the keys cached by {@link RemotePomCache} are collected again.
+    */
+   static final int FORMAT_VERSION = 2;
+   
    private Log logger;
    
+   private RecursivePomCollector recursiveCollector;
+   
    public MavenDependencyCollector()
    {
       super();
@@ -55,156 +66,100 @@ public class MavenDependencyCollector
       {
          config = new CollectConfig();
       }
-      List<String> dependencies = new ArrayList<String>();
-      
       if (logger != null)
       {
          logger.debug("Check artifacts defined in <pluginManagement> and <dependencyManagement> of POM: " + pomURL.toString());
       }
       
+      // groupId:artifactId -> version
+      Map<String, String> allDependencies = new LinkedHashMap<String, String>();
+      Map<String, String> allPlugins = new LinkedHashMap<String, String>();
+      
+      if (config.isRecursive() && recursiveCollector != null)
+      {
+         recursiveCollector.collect(pomURL, allDependencies, allPlugins);
+      }
+      else if (config.isStreaming())
+      {
+         new StreamingPomReader(config.getProfile()).read(pomURL, allDependencies, allPlugins);
+      }
+      else
+      {
+         readFromModel(pomURL, config, allDependencies, allPlugins);
+      }
+      
+      Set<String> dependencies = new LinkedHashSet<String>();
+      addKeys(allDependencies, config, dependencies);
+      addKeys(allPlugins, config, dependencies);
+      return new ArrayList<String>(dependencies);
+   }
+   
+   private void addKeys(Map<String, String> artifacts, CollectConfig config, Set<String> keys)
+   {
+      for (Map.Entry<String, String> entry: artifacts.entrySet())
+      {
+         String line = entry.getKey();
+         if (config.isIncludeVersion())
+         {
+            line = line + ":" + entry.getValue();
+         }
+         keys.add(line);
+      }
+   }
+   
+   private void readFromModel(URL pomURL, CollectConfig config, Map<String, String> allDependencies, Map<String, String> allPlugins) throws IOException, XmlPullParserException
+   {
       Model model = readMavenModel(pomURL);
       if (model == null)
       {
          throw new RuntimeException("Maven Model of pom: " + pomURL.toString() + " can not be parsed.");
       }
       
-      List<Dependency> allDependencies = new ArrayList<Dependency>();
-      List<Plugin> allPlugins = new ArrayList<Plugin>();
-      
+      Profile profile = getBuildProfile(model, config);
       DependencyManagement dependencyMan = model.getDependencyManagement();
       if (dependencyMan != null)
       {
-         List<Dependency> deps = dependencyMan.getDependencies();
-         mergeDependencies(deps,allDependencies);
-         Profile profile = getBuildProfile(model, config);
-         if (profile != null)
-         {
-            DependencyManagement dependencyManInProfile = profile.getDependencyManagement();
-            if (dependencyManInProfile != null)
-            {
-               List<Dependency> dpesInProfile = dependencyManInProfile.getDependencies();
-               mergeDependencies(dpesInProfile, allDependencies);
-            }
-         }
+         mergeDependencies(dependencyMan.getDependencies(), allDependencies);
       }
-      
-      Build build = model.getBuild();
-      if (build != null)
+      if (profile != null && profile.getDependencyManagement() != null)
       {
-         PluginManagement pluginMan = build.getPluginManagement();
-         if (pluginMan != null)
-         {
-            List<Plugin> plugins = pluginMan.getPlugins();
-            mergePlugins(plugins, allPlugins);
-         }
-         Profile profile = getBuildProfile(model, config);
-         if (profile != null)
-         {
-            BuildBase buildInProfile = profile.getBuild();
-            if (buildInProfile != null)
-            {
-               PluginManagement pluginManInProfile = build.getPluginManagement();
-               if (pluginManInProfile != null)
-               {
-                  List<Plugin> pluginsInProfile = pluginManInProfile.getPlugins();
-                  mergePlugins(pluginsInProfile, allPlugins);
-               }
-            }
-         }
+         mergeDependencies(profile.getDependencyManagement().getDependencies(), allDependencies);
       }
       
-      for (Dependency dep: allDependencies)
+      Build build = model.getBuild();
+      if (build != null && build.getPluginManagement() != null)
       {
-         String groupId = dep.getGroupId();
-         String artiId = dep.getArtifactId();
-         String line = groupId + ":" + artiId;
-         if (config.isIncludeVersion())
-         {
-            line = line + ":" + dep.getVersion();
-         }
-         if (!dependencies.contains(line))
-         {
-            dependencies.add(line);
-         }
+         mergePlugins(build.getPluginManagement().getPlugins(), allPlugins);
       }
-      
-      for (Plugin plugin: allPlugins)
+      if (profile != null)
       {
-         String groupId = plugin.getGroupId();
-         String artiId = plugin.getArtifactId();
-         String line = groupId + ":" + artiId;
-         if (config.isIncludeVersion())
-         {
-            line = line + ":" + plugin.getVersion();
-         }
-         if (!dependencies.contains(line))
+         BuildBase buildInProfile = profile.getBuild();
+         if (buildInProfile != null && buildInProfile.getPluginManagement() != null)
          {
-            dependencies.add(line);
+            mergePlugins(buildInProfile.getPluginManagement().getPlugins(), allPlugins);
          }
       }
-      
-      return dependencies;
    }
    
    /**
-    * Dependency in from list overrides what is in to list
+    * Dependency in from list overrides what is in to map
     */
-   private void mergeDependencies(List<Dependency> from, List<Dependency> to)
+   private void mergeDependencies(List<Dependency> from, Map<String, String> to)
    {
       for (Dependency dep: from)
       {
-         Dependency depInToList = getDependencyFromList(to, dep);
-         if (depInToList != null)
-         {
-            depInToList.setVersion(dep.getVersion());
-         }
-         else
-         {
-            to.add(dep);
-         }
+         to.put(dep.getGroupId() + ":" + dep.getArtifactId(), dep.getVersion());
       }
    }
    
-   private void mergePlugins(List<Plugin> from, List<Plugin> to)
+   private void mergePlugins(List<Plugin> from, Map<String, String> to)
    {
       for (Plugin plugin: from)
       {
-         Plugin pluginInToList = getPluginFromList(to, plugin);
-         if (pluginInToList != null)
-         {
-            pluginInToList.setVersion(plugin.getVersion());
-         }
-         else
-         {
-            to.add(plugin);
-         }
+         to.put(plugin.getGroupId() + ":" + plugin.getArtifactId(), plugin.getVersion());
       }
    }
 
-   private Plugin getPluginFromList(List<Plugin> plugins, Plugin pluginToCheck)
-   {
-      for (Plugin plugin: plugins)
-      {
-         if (plugin.getGroupId().equals(pluginToCheck.getGroupId()) && plugin.getArtifactId().equals(pluginToCheck.getArtifactId()))
-         {
-            return pluginToCheck;
-         }
-      }
-      return null;
-   }
-
-   private Dependency getDependencyFromList(List<Dependency> dependencies, Dependency depToCheck)
-   {
-      for (Dependency dependency: dependencies)
-      {
-         if (dependency.getGroupId().equals(depToCheck.getGroupId()) && dependency.getArtifactId().equals(depToCheck.getArtifactId()))
-         {
-            return depToCheck;
-         }
-      }
-      return null;
-   }
-
    /**
     * @param pomURL
     * @return
@@ -258,4 +213,20 @@ public class MavenDependencyCollector
    {
       this.logger = logger;
    }
+
+   /**
+    * @return the recursiveCollector
+    */
+   public RecursivePomCollector getRecursiveCollector()
+   {
+      return recursiveCollector;
+   }
+
+   /**
+    * @param recursiveCollector the recursiveCollector to set, it is shared by all poms collected in recursive mode
+    */
+   public void setRecursiveCollector(RecursivePomCollector recursiveCollector)
+   {
+      this.recursiveCollector = recursiveCollector;
+   }
 }
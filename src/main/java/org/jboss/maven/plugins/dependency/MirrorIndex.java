@@ -0,0 +1,424 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Sorted paths of all pom files of a local repository mirror, stored in a file which is read through a memory mapping.
+ *
+ * The file is a header, the offsets of the paths, then the UTF-8 bytes of the paths. A path is looked up by binary
+ * search on the mapped bytes, so the index is never loaded into the heap.
+ *
+ * Symbolic links to directories are not followed. The index is complete when all directories of the mirror were
+ * walked, then a pom which is not in it is missing from the mirror.
+ *
+ * A file which may be mapped is never deleted or renamed: each build writes a new generation,
+ * <b>&lt;name&gt;-&lt;unique&gt;.idx</b>, and the newest one is used. Older generations are deleted when they are
+ * not mapped any more, on platforms which do not allow it they are deleted by a later build.
+ *
+ * @author lgao
+ *
+ */
+public class MirrorIndex
+{
+
+   private static final int MAGIC = 0x44434d49; // DCMI
+
+   private static final int FORMAT_VERSION = 2;
+
+   private static final int HEADER_SIZE = 16;
+
+   private static final int FLAG_COMPLETE = 1;
+
+   private static final String EXTENSION = ".idx";
+
+   private static final Comparator<byte[]> BYTES_ORDER = new Comparator<byte[]>()
+   {
+      public int compare(byte[] b1, byte[] b2)
+      {
+         int len = Math.min(b1.length, b2.length);
+         for (int i = 0; i < len; i++)
+         {
+            int diff = (b1[i] & 0xff) - (b2[i] & 0xff);
+            if (diff != 0)
+            {
+               return diff;
+            }
+         }
+         return b1.length - b2.length;
+      }
+   };
+
+   private final File directory;
+
+   private final File indexDirectory;
+
+   private final String name;
+
+   private File file;
+
+   private MappedByteBuffer buffer;
+
+   private int count;
+
+   private boolean complete;
+
+   private Log logger;
+
+   /**
+    * @param directory the root directory of the mirror
+    * @param indexDirectory where the index is stored
+    * @param name the name of the index files of the mirror
+    */
+   public MirrorIndex(File directory, File indexDirectory, String name)
+   {
+      super();
+      this.directory = directory;
+      this.indexDirectory = indexDirectory;
+      this.name = name;
+   }
+
+   /**
+    * Maps the newest index file, builds a new one first if there is none or it is older than maxAge milliseconds.
+    */
+   public void open(long maxAge) throws IOException
+   {
+      synchronized (MirrorIndex.class)
+      {
+         File newest = newestFile();
+         if (newest == null || System.currentTimeMillis() - newest.lastModified() > maxAge || !map(newest))
+         {
+            newest = build();
+            if (!map(newest))
+            {
+               throw new IOException("Wrong mirror index: " + newest.getAbsolutePath());
+            }
+         }
+         deleteOlderFiles(newest);
+      }
+      if (logger != null)
+      {
+         logger.debug("Mirror index: " + file.getAbsolutePath() + " contains " + count + " poms" + (complete ? "." : ", some directories were not walked."));
+      }
+   }
+
+   /**
+    * Whether the path, relative to the mirror root, is in the index.
+    */
+   public boolean contains(String path)
+   {
+      byte[] key = utf8(path);
+      int low = 0;
+      int high = count - 1;
+      while (low <= high)
+      {
+         int mid = (low + high) >>> 1;
+         int diff = compareAt(mid, key);
+         if (diff < 0)
+         {
+            low = mid + 1;
+         }
+         else if (diff > 0)
+         {
+            high = mid - 1;
+         }
+         else
+         {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   /**
+    * Compares the path at the index with the key, only absolute reads are used so it is safe for concurrent lookups.
+    */
+   private int compareAt(int index, byte[] key)
+   {
+      int dataStart = HEADER_SIZE + count * 4;
+      int start = dataStart + buffer.getInt(HEADER_SIZE + index * 4);
+      int end = index + 1 < count ? dataStart + buffer.getInt(HEADER_SIZE + (index + 1) * 4) : buffer.limit();
+      int len = Math.min(end - start, key.length);
+      for (int i = 0; i < len; i++)
+      {
+         int diff = (buffer.get(start + i) & 0xff) - (key[i] & 0xff);
+         if (diff != 0)
+         {
+            return diff;
+         }
+      }
+      return (end - start) - key.length;
+   }
+
+   /**
+    * Whether a pom which is not in the index is known to be missing from the mirror, as of the time it was built.
+    */
+   public boolean isComplete()
+   {
+      return complete;
+   }
+
+   private boolean map(File indexFile) throws IOException
+   {
+      RandomAccessFile raf = null;
+      try
+      {
+         raf = new RandomAccessFile(indexFile, "r");
+      }
+      catch (FileNotFoundException e)
+      {
+         // deleted by another build meanwhile
+         return false;
+      }
+      try
+      {
+         FileChannel channel = raf.getChannel();
+         if (channel.size() < HEADER_SIZE)
+         {
+            return false;
+         }
+         MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+         if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != FORMAT_VERSION)
+         {
+            return false;
+         }
+         buffer = mapped;
+         count = mapped.getInt(8);
+         complete = (mapped.getInt(12) & FLAG_COMPLETE) != 0;
+         file = indexFile;
+         return true;
+      }
+      finally
+      {
+         // the mapping stays valid after the channel is closed
+         raf.close();
+      }
+   }
+
+   private File[] indexFiles()
+   {
+      File[] files = indexDirectory.listFiles(new FileFilter()
+      {
+         public boolean accept(File file)
+         {
+            return file.getName().startsWith(name + "-") && file.getName().endsWith(EXTENSION) && file.isFile();
+         }
+      });
+      return files == null ? new File[0] : files;
+   }
+
+   private File newestFile()
+   {
+      File newest = null;
+      for (File indexFile: indexFiles())
+      {
+         if (newest == null || indexFile.lastModified() > newest.lastModified())
+         {
+            newest = indexFile;
+         }
+      }
+      return newest;
+   }
+
+   /**
+    * Deletes the older generations, a generation still mapped by another module or process may not be deleted.
+    */
+   private void deleteOlderFiles(File newest)
+   {
+      for (File indexFile: indexFiles())
+      {
+         if (!indexFile.equals(newest) && indexFile.lastModified() <= newest.lastModified() && !indexFile.delete() && logger != null)
+         {
+            logger.debug("Mirror index: " + indexFile.getAbsolutePath() + " is still in use, it will be deleted later.");
+         }
+      }
+   }
+
+   /**
+    * Walks the mirror, and writes the sorted paths of all pom files into a new index file.
+    */
+   private File build() throws IOException
+   {
+      long start = System.currentTimeMillis();
+      List<byte[]> paths = new ArrayList<byte[]>();
+      boolean walked = walk(directory, "", paths);
+      Collections.sort(paths, BYTES_ORDER);
+
+      if (!indexDirectory.exists())
+      {
+         indexDirectory.mkdirs();
+      }
+      File tmpFile = File.createTempFile(name + "-", ".tmp", indexDirectory);
+      // the unique name of the temporary file gives a new generation, no existing file is replaced
+      String tmpName = tmpFile.getName();
+      File indexFile = new File(indexDirectory, tmpName.substring(0, tmpName.length() - ".tmp".length()) + EXTENSION);
+      RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw");
+      try
+      {
+         FileChannel channel = raf.getChannel();
+         ByteBuffer offsets = ByteBuffer.allocate(HEADER_SIZE + paths.size() * 4);
+         offsets.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(paths.size()).putInt(walked ? FLAG_COMPLETE : 0);
+         int offset = 0;
+         for (byte[] path: paths)
+         {
+            offsets.putInt(offset);
+            offset += path.length;
+         }
+         offsets.flip();
+         while (offsets.hasRemaining())
+         {
+            channel.write(offsets);
+         }
+         ByteBuffer data = ByteBuffer.allocate(64 * 1024);
+         for (byte[] path: paths)
+         {
+            if (data.remaining() < path.length)
+            {
+               data.flip();
+               while (data.hasRemaining())
+               {
+                  channel.write(data);
+               }
+               data.clear();
+            }
+            if (path.length > data.capacity())
+            {
+               channel.write(ByteBuffer.wrap(path));
+            }
+            else
+            {
+               data.put(path);
+            }
+         }
+         data.flip();
+         while (data.hasRemaining())
+         {
+            channel.write(data);
+         }
+         channel.force(false);
+      }
+      finally
+      {
+         raf.close();
+      }
+      if (!tmpFile.renameTo(indexFile))
+      {
+         tmpFile.delete();
+         throw new IOException("Can't store mirror index: " + indexFile.getAbsolutePath());
+      }
+      if (logger != null)
+      {
+         logger.info("Indexed " + paths.size() + " poms of mirror: " + directory.getAbsolutePath() + " in " + (System.currentTimeMillis() - start) + " ms");
+      }
+      return indexFile;
+   }
+
+   /**
+    * Adds the poms under the directory, returns false if some directories are not walked.
+    */
+   private boolean walk(File dir, String prefix, List<byte[]> paths) throws IOException
+   {
+      File[] files = dir.listFiles();
+      if (files == null)
+      {
+         return false;
+      }
+      boolean walked = true;
+      for (File child: files)
+      {
+         String childName = child.getName();
+         if (childName.startsWith("."))
+         {
+            continue;
+         }
+         if (child.isDirectory())
+         {
+            if (isSymbolicLink(child))
+            {
+               if (logger != null)
+               {
+                  logger.debug("Mirror index: symbolic link " + child.getAbsolutePath() + " is not followed.");
+               }
+               walked = false;
+               continue;
+            }
+            walked &= walk(child, prefix + childName + "/", paths);
+         }
+         else if (childName.endsWith(".pom"))
+         {
+            paths.add(utf8(prefix + childName));
+         }
+      }
+      return walked;
+   }
+
+   /**
+    * Whether the file is a symbolic link: its canonical path is not the one under the canonical parent directory.
+    */
+   private static boolean isSymbolicLink(File file) throws IOException
+   {
+      File inCanonicalDir = new File(file.getAbsoluteFile().getParentFile().getCanonicalFile(), file.getName());
+      return !inCanonicalDir.getCanonicalFile().equals(inCanonicalDir.getAbsoluteFile());
+   }
+
+   private static byte[] utf8(String str)
+   {
+      try
+      {
+         return str.getBytes("UTF-8");
+      }
+      catch (UnsupportedEncodingException e)
+      {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   /**
+    * @return how many poms are in the index
+    */
+   public int size()
+   {
+      return count;
+   }
+
+   /**
+    * @return the mapped index file
+    */
+   public File getFile()
+   {
+      return file;
+   }
+
+   /**
+    * @return the logger
+    */
+   public Log getLogger()
+   {
+      return logger;
+   }
+
+   /**
+    * @param logger the logger to set
+    */
+   public void setLogger(Log logger)
+   {
+      this.logger = logger;
+   }
+
+}
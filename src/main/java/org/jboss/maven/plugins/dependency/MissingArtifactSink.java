@@ -0,0 +1,203 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Records the missing artifacts to the console, or to an output file which may be shared by several modules.
+ *
+ * The lines already in the output file are read once when the sink is opened, and kept in memory to skip duplicated
+ * lines. New lines are buffered and appended under an exclusive file lock, lines appended by other modules since the
+ * last write are read at the same time, so that modules built in parallel do not record the same artifact twice.
+ *
+ * @author lgao
+ *
+ */
+public class MissingArtifactSink
+{
+
+   private static final int FLUSH_THRESHOLD = 1000;
+
+   private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+   private final File outputFile;
+
+   private final Log logger;
+
+   private final Charset charset = Charset.defaultCharset();
+
+   private final Set<String> recorded = new HashSet<String>();
+
+   private final List<String> pending = new ArrayList<String>();
+
+   private long readPosition;
+
+   /**
+    * @param outputFile the output file, or null to record into the console
+    */
+   public MissingArtifactSink(File outputFile, Log logger)
+   {
+      super();
+      this.outputFile = outputFile;
+      this.logger = logger;
+   }
+
+   /**
+    * Reads the lines already recorded in the output file.
+    */
+   public void open() throws IOException
+   {
+      if (outputFile == null || !outputFile.exists())
+      {
+         return;
+      }
+      synchronized (MissingArtifactSink.class)
+      {
+         RandomAccessFile raf = new RandomAccessFile(outputFile, "rw");
+         try
+         {
+            FileChannel channel = raf.getChannel();
+            FileLock lock = channel.lock();
+            try
+            {
+               readNewLines(channel);
+            }
+            finally
+            {
+               lock.release();
+            }
+         }
+         finally
+         {
+            raf.close();
+         }
+      }
+   }
+
+   /**
+    * Records one line.
+    */
+   public void write(String line) throws IOException
+   {
+      if (outputFile != null && !recorded.add(line))
+      {
+         logger.info("Added Arleady: " + line);
+         return;
+      }
+      logger.debug("Log artifact: " + line);
+      if (outputFile == null)
+      {
+         logger.info(line);
+         return;
+      }
+      pending.add(line);
+      if (pending.size() >= FLUSH_THRESHOLD)
+      {
+         flush();
+      }
+   }
+
+   /**
+    * Appends the buffered lines to the output file.
+    */
+   public void flush() throws IOException
+   {
+      if (outputFile == null || pending.isEmpty())
+      {
+         return;
+      }
+      synchronized (MissingArtifactSink.class)
+      {
+         RandomAccessFile raf = new RandomAccessFile(outputFile, "rw");
+         try
+         {
+            FileChannel channel = raf.getChannel();
+            FileLock lock = channel.lock();
+            try
+            {
+               Set<String> writtenByOthers = readNewLines(channel);
+               StringBuilder sb = new StringBuilder();
+               for (String line: pending)
+               {
+                  if (writtenByOthers.contains(line))
+                  {
+                     logger.info("Added Arleady: " + line);
+                     continue;
+                  }
+                  sb.append(line).append(LINE_SEPARATOR);
+               }
+               ByteBuffer buffer = charset.encode(sb.toString());
+               long position = channel.size();
+               while (buffer.hasRemaining())
+               {
+                  position += channel.write(buffer, position);
+               }
+               channel.force(false);
+               readPosition = position;
+               pending.clear();
+            }
+            finally
+            {
+               lock.release();
+            }
+         }
+         finally
+         {
+            raf.close();
+         }
+      }
+   }
+
+   /**
+    * Flushes the buffered lines.
+    */
+   public void close() throws IOException
+   {
+      flush();
+   }
+
+   /**
+    * Reads the lines appended since last read, returns them.
+    */
+   private Set<String> readNewLines(FileChannel channel) throws IOException
+   {
+      Set<String> lines = new HashSet<String>();
+      long size = channel.size();
+      if (size <= readPosition)
+      {
+         return lines;
+      }
+      ByteBuffer buffer = ByteBuffer.allocate((int)(size - readPosition));
+      while (buffer.hasRemaining() && channel.read(buffer, readPosition + buffer.position()) != -1)
+      {
+         // read to the end
+      }
+      buffer.flip();
+      BufferedReader reader = new BufferedReader(new StringReader(charset.decode(buffer).toString()));
+      String line = null;
+      while ((line = reader.readLine()) != null)
+      {
+         lines.add(line);
+      }
+      recorded.addAll(lines);
+      readPosition = size;
+      return lines;
+   }
+
+}
@@ -0,0 +1,399 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * The artifacts of one module checked by the last run, with the answer of each repository.
+ *
+ * On the next run the answers which are still valid are reused, so that only the artifacts added since, the expired
+ * answers and the failed probes go to the repositories. A found release never expires, a found SNAPSHOT and a missing
+ * artifact expire after their TTLs. The snapshot is only used against the same repositories in the same order.
+ *
+ * The file is a line of the repositories, then one line per artifact:
+ *
+ * <pre>
+ *   G:A:T:V time:code time:code ...
+ * </pre>
+ *
+ * with one column per repository, '-' when the repository has no answer. The other files of an artifact checked by
+ * the full artifact probe follow it, as <code>G:A:T:V|path</code>.
+ *
+ * @author lgao
+ *
+ */
+public class ModuleSnapshot
+{
+
+   private static final String HEADER = "# dependency-check module snapshot, repositories:";
+
+   private static final String FILE_SEPARATOR = "|";
+
+   private final File file;
+
+   private final List<String> repoURLs;
+
+   private final long positiveTtl;
+
+   private final long negativeTtl;
+
+   private final Map<String, Cell[]> rows = new ConcurrentHashMap<String, Cell[]>();
+
+   /**
+    * The rows of the other files of each artifact.
+    */
+   private final ConcurrentMap<String, Set<String>> files = new ConcurrentHashMap<String, Set<String>>();
+
+   private final AtomicLong lookups = new AtomicLong();
+
+   private final AtomicLong hits = new AtomicLong();
+
+   private int loaded;
+
+   private Log logger;
+
+   /**
+    * @param file the snapshot file of the module
+    * @param repoURLs the repositories checked against
+    * @param positiveTtl milliseconds a found SNAPSHOT artifact is trusted, found release artifacts never expire
+    * @param negativeTtl milliseconds a missing artifact is trusted
+    */
+   public ModuleSnapshot(File file, List<String> repoURLs, long positiveTtl, long negativeTtl)
+   {
+      super();
+      this.file = file;
+      this.repoURLs = repoURLs;
+      this.positiveTtl = positiveTtl;
+      this.negativeTtl = negativeTtl;
+   }
+
+   /**
+    * Reads the snapshot of the last run, it is ignored when it was taken against other repositories.
+    */
+   public void load() throws IOException
+   {
+      if (!file.exists())
+      {
+         return;
+      }
+      BufferedReader reader = null;
+      try
+      {
+         reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+         String header = reader.readLine();
+         if (header == null || !header.equals(header()))
+         {
+            if (logger != null)
+            {
+               logger.debug("Module snapshot: " + file.getAbsolutePath() + " was taken against other repositories, it is ignored.");
+            }
+            return;
+         }
+         String line = null;
+         while ((line = reader.readLine()) != null)
+         {
+            String[] columns = line.split(" ");
+            if (columns.length != repoURLs.size() + 1)
+            {
+               continue;
+            }
+            Cell[] row = new Cell[repoURLs.size()];
+            for (int i = 0; i < row.length; i++)
+            {
+               row[i] = Cell.parse(columns[i + 1]);
+            }
+            rows.put(columns[0], row);
+            if (columns[0].indexOf(FILE_SEPARATOR) != -1)
+            {
+               addFileKey(columns[0]);
+            }
+         }
+         loaded = rows.size();
+      }
+      finally
+      {
+         IOUtil.close(reader);
+      }
+   }
+
+   /**
+    * Gets the answer of the repository from the last run, or -1 if it is unknown or expired.
+    */
+   public int get(int repo, Artifact artifact)
+   {
+      return get(key(artifact), repo, artifact.isSnapshot());
+   }
+
+   /**
+    * Gets the answer of the repository for a file of the artifact from the last run, or -1 if it is unknown or expired.
+    */
+   public int getFile(int repo, Artifact artifact, String path)
+   {
+      return get(fileKey(artifact, path), repo, artifact.isSnapshot());
+   }
+
+   private int get(String key, int repo, boolean snapshot)
+   {
+      lookups.incrementAndGet();
+      Cell[] row = rows.get(key);
+      if (row == null)
+      {
+         return -1;
+      }
+      Cell cell = row[repo];
+      if (cell == null || isExpired(cell, snapshot, System.currentTimeMillis()))
+      {
+         return -1;
+      }
+      hits.incrementAndGet();
+      return cell.responseCode;
+   }
+
+   /**
+    * Records the answer of the repository.
+    *
+    * @param time when the repository answered, an answer from a cache keeps the time of the cache entry
+    */
+   public void put(int repo, Artifact artifact, int responseCode, long time)
+   {
+      put(key(artifact), repo, responseCode, time);
+   }
+
+   /**
+    * Records the answer of the repository for a file of the artifact.
+    *
+    * @param time when the repository answered, an answer from a cache keeps the time of the cache entry
+    */
+   public void putFile(int repo, Artifact artifact, String path, int responseCode, long time)
+   {
+      String key = fileKey(artifact, path);
+      put(key, repo, responseCode, time);
+      addFileKey(key);
+   }
+
+   private void put(String key, int repo, int responseCode, long time)
+   {
+      synchronized (rows)
+      {
+         Cell[] row = rows.get(key);
+         Cell[] newRow = row == null ? new Cell[repoURLs.size()] : row.clone();
+         newRow[repo] = new Cell(time, responseCode);
+         rows.put(key, newRow);
+      }
+   }
+
+   /**
+    * Writes the snapshot of the artifacts checked in this run, the artifacts which are gone since the last run are
+    * dropped.
+    */
+   public void store(Collection<Artifact> artifacts) throws IOException
+   {
+      File dir = file.getAbsoluteFile().getParentFile();
+      if (!dir.exists())
+      {
+         dir.mkdirs();
+      }
+      // a unique name, modules sharing the directory never write into the same temporary file
+      File tmpFile = File.createTempFile(file.getName(), ".tmp", dir);
+      Writer writer = null;
+      try
+      {
+         writer = new OutputStreamWriter(new FileOutputStream(tmpFile), "UTF-8");
+         writer.write(header());
+         writer.write("\n");
+         StringBuilder sb = new StringBuilder();
+         for (Artifact artifact: artifacts)
+         {
+            String key = key(artifact);
+            writeRow(writer, sb, key);
+            Set<String> fileKeys = files.get(key);
+            if (fileKeys != null)
+            {
+               for (String fileKey: fileKeys)
+               {
+                  writeRow(writer, sb, fileKey);
+               }
+            }
+         }
+      }
+      catch (IOException e)
+      {
+         IOUtil.close(writer);
+         tmpFile.delete();
+         throw e;
+      }
+      finally
+      {
+         IOUtil.close(writer);
+      }
+      file.delete();
+      if (!tmpFile.renameTo(file))
+      {
+         tmpFile.delete();
+         throw new IOException("Can't store module snapshot: " + file.getAbsolutePath());
+      }
+      if (logger != null)
+      {
+         logger.info("Module snapshot: " + artifacts.size() + " artifacts, " + hits.get() + " answers reused from " + loaded + " artifacts of last run.");
+      }
+   }
+
+   private void writeRow(Writer writer, StringBuilder sb, String key) throws IOException
+   {
+      Cell[] row = rows.get(key);
+      if (row == null)
+      {
+         return;
+      }
+      sb.setLength(0);
+      sb.append(key);
+      for (Cell cell: row)
+      {
+         sb.append(' ').append(cell == null ? "-" : cell.toString());
+      }
+      writer.write(sb.append('\n').toString());
+   }
+
+   /**
+    * Remembers the row of a file under the row of its artifact, so that it is kept as long as the artifact.
+    */
+   private void addFileKey(String fileKey)
+   {
+      String key = fileKey.substring(0, fileKey.indexOf(FILE_SEPARATOR));
+      Set<String> fileKeys = files.get(key);
+      if (fileKeys == null)
+      {
+         fileKeys = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+         Set<String> existing = files.putIfAbsent(key, fileKeys);
+         if (existing != null)
+         {
+            fileKeys = existing;
+         }
+      }
+      fileKeys.add(fileKey);
+   }
+
+   private boolean isExpired(Cell cell, boolean snapshot, long now)
+   {
+      long age = now - cell.time;
+      if (cell.responseCode == 404 || cell.responseCode == 410)
+      {
+         return age > negativeTtl;
+      }
+      return snapshot && age > positiveTtl;
+   }
+
+   private String header()
+   {
+      StringBuilder sb = new StringBuilder(HEADER);
+      for (String repoURL: repoURLs)
+      {
+         sb.append(' ').append(repoURL);
+      }
+      return sb.toString();
+   }
+
+   private static String key(Artifact artifact)
+   {
+      return artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getType() + ":" + artifact.getVersion();
+   }
+
+   private static String fileKey(Artifact artifact, String path)
+   {
+      return key(artifact) + FILE_SEPARATOR + path;
+   }
+
+   /**
+    * @return how many answers were looked up
+    */
+   public long getLookups()
+   {
+      return lookups.get();
+   }
+
+   /**
+    * @return how many answers were reused from the last run
+    */
+   public long getHits()
+   {
+      return hits.get();
+   }
+
+   /**
+    * @return the logger
+    */
+   public Log getLogger()
+   {
+      return logger;
+   }
+
+   /**
+    * @param logger the logger to set
+    */
+   public void setLogger(Log logger)
+   {
+      this.logger = logger;
+   }
+
+   /**
+    * The answer of one repository.
+    */
+   private static class Cell
+   {
+      private final long time;
+
+      private final int responseCode;
+
+      private Cell(long time, int responseCode)
+      {
+         super();
+         this.time = time;
+         this.responseCode = responseCode;
+      }
+
+      private static Cell parse(String column)
+      {
+         int index = column.indexOf(':');
+         if (index < 0)
+         {
+            return null;
+         }
+         try
+         {
+            return new Cell(Long.parseLong(column.substring(0, index)), Integer.parseInt(column.substring(index + 1)));
+         }
+         catch (NumberFormatException e)
+         {
+            return null;
+         }
+      }
+
+      @Override
+      public String toString()
+      {
+         return time + ":" + responseCode;
+      }
+   }
+
+}
@@ -0,0 +1,389 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Probe results stored on disk, so that following builds do not need to check the same artifacts again.
+ *
+ * The file is a header followed by fixed size records: the 64 bits hash of the key, the time when the repository
+ * answered, and the response code. New records are appended, the last record of a key wins.
+ *
+ * The file is read through its channel under a shared lock, and appended under an exclusive lock, so several
+ * Maven processes can use the same file at the same time.
+ *
+ * @author lgao
+ *
+ */
+public class PersistentProbeCache
+{
+
+   private static final int MAGIC = 0x44435043; // DCPC
+
+   private static final int FORMAT_VERSION = 1;
+
+   private static final int HEADER_SIZE = 8;
+
+   private static final int RECORD_SIZE = 20;
+
+   /** When the file has that many times more records than live keys, it is rewritten. */
+   private static final int COMPACT_RATIO = 2;
+
+   private final File file;
+
+   private final long positiveTtl;
+
+   private final long negativeTtl;
+
+   private final Map<Long, Entry> entries = new ConcurrentHashMap<Long, Entry>();
+
+   private final ConcurrentLinkedQueue<Record> pending = new ConcurrentLinkedQueue<Record>();
+
+   private long recordsInFile;
+
+   private Log logger;
+
+   /**
+    * @param file the cache file
+    * @param positiveTtl milliseconds a found SNAPSHOT artifact is trusted, found release artifacts never expire
+    * @param negativeTtl milliseconds a missing artifact is trusted
+    */
+   public PersistentProbeCache(File file, long positiveTtl, long negativeTtl)
+   {
+      super();
+      this.file = file;
+      this.positiveTtl = positiveTtl;
+      this.negativeTtl = negativeTtl;
+   }
+
+   /**
+    * Loads the records from the cache file.
+    */
+   public void load() throws IOException
+   {
+      synchronized (PersistentProbeCache.class)
+      {
+         if (!file.exists())
+         {
+            return;
+         }
+         RandomAccessFile raf = new RandomAccessFile(file, "r");
+         try
+         {
+            FileChannel channel = raf.getChannel();
+            FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+            try
+            {
+               recordsInFile = readRecords(channel, entries);
+            }
+            finally
+            {
+               lock.release();
+            }
+         }
+         finally
+         {
+            raf.close();
+         }
+      }
+      if (logger != null)
+      {
+         logger.debug("Loaded " + entries.size() + " probe results from: " + file.getAbsolutePath());
+      }
+   }
+
+   /**
+    * Gets the cached response code of the key, or -1 if it is unknown or expired.
+    */
+   public int get(String key, boolean snapshot)
+   {
+      Entry entry = entries.get(hash(key));
+      if (entry == null || isExpired(entry, snapshot, System.currentTimeMillis()))
+      {
+         return -1;
+      }
+      return entry.responseCode;
+   }
+
+   /**
+    * Gets when the repository gave the cached response code of the key, or -1 if it is unknown.
+    */
+   public long getTime(String key)
+   {
+      Entry entry = entries.get(hash(key));
+      return entry == null ? -1 : entry.time;
+   }
+
+   /**
+    * Records the response code of the key, it is written to the file on {@link #flush()}.
+    */
+   public void put(String key, int responseCode)
+   {
+      Record record = new Record(hash(key), new Entry(System.currentTimeMillis(), responseCode));
+      entries.put(record.hash, record.entry);
+      pending.add(record);
+   }
+
+   /**
+    * Appends the new records to the cache file.
+    */
+   public void flush() throws IOException
+   {
+      if (pending.isEmpty())
+      {
+         return;
+      }
+      synchronized (PersistentProbeCache.class)
+      {
+         File dir = file.getAbsoluteFile().getParentFile();
+         if (!dir.exists())
+         {
+            dir.mkdirs();
+         }
+         RandomAccessFile raf = new RandomAccessFile(file, "rw");
+         try
+         {
+            FileChannel channel = raf.getChannel();
+            FileLock lock = channel.lock();
+            try
+            {
+               if (!hasValidHeader(channel))
+               {
+                  ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                  header.putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+                  channel.truncate(0);
+                  writeFully(channel, header, 0);
+               }
+               long end = HEADER_SIZE + (channel.size() - HEADER_SIZE) / RECORD_SIZE * RECORD_SIZE;
+               int count = 0;
+               ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 1024);
+               Record record = null;
+               while ((record = pending.poll()) != null)
+               {
+                  if (!buffer.hasRemaining())
+                  {
+                     buffer.flip();
+                     end += writeFully(channel, buffer, end);
+                     buffer.clear();
+                  }
+                  buffer.putLong(record.hash).putLong(record.entry.time).putInt(record.entry.responseCode);
+                  count++;
+               }
+               buffer.flip();
+               end += writeFully(channel, buffer, end);
+               channel.force(false);
+               recordsInFile = (end - HEADER_SIZE) / RECORD_SIZE;
+               if (logger != null)
+               {
+                  logger.debug("Stored " + count + " probe results into: " + file.getAbsolutePath());
+               }
+               compact(channel);
+            }
+            finally
+            {
+               lock.release();
+            }
+         }
+         finally
+         {
+            raf.close();
+         }
+      }
+   }
+
+   /**
+    * Rewrites the file without overridden and expired records when it grows too much, the exclusive lock is held.
+    */
+   private void compact(FileChannel channel) throws IOException
+   {
+      Map<Long, Entry> live = new HashMap<Long, Entry>();
+      readRecords(channel, live);
+      if (recordsInFile <= (long)live.size() * COMPACT_RATIO)
+      {
+         return;
+      }
+      long now = System.currentTimeMillis();
+      ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + live.size() * RECORD_SIZE);
+      buffer.putInt(MAGIC).putInt(FORMAT_VERSION);
+      int count = 0;
+      for (Iterator<Map.Entry<Long, Entry>> it = live.entrySet().iterator(); it.hasNext();)
+      {
+         Map.Entry<Long, Entry> record = it.next();
+         // whether the artifact is a SNAPSHOT is unknown here, keeps what a SNAPSHOT may still use
+         if (isExpired(record.getValue(), true, now) && isExpired(record.getValue(), false, now))
+         {
+            continue;
+         }
+         buffer.putLong(record.getKey()).putLong(record.getValue().time).putInt(record.getValue().responseCode);
+         count++;
+      }
+      buffer.flip();
+      long end = writeFully(channel, buffer, 0);
+      channel.truncate(end);
+      channel.force(false);
+      if (logger != null)
+      {
+         logger.debug("Compacted probe cache: " + file.getAbsolutePath() + " from " + recordsInFile + " to " + count + " records.");
+      }
+      recordsInFile = count;
+   }
+
+   private boolean hasValidHeader(FileChannel channel) throws IOException
+   {
+      if (channel.size() < HEADER_SIZE)
+      {
+         return false;
+      }
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      while (header.hasRemaining() && channel.read(header, header.position()) != -1)
+      {
+         // read the whole header
+      }
+      header.flip();
+      return header.remaining() == HEADER_SIZE && header.getInt() == MAGIC && header.getInt() == FORMAT_VERSION;
+   }
+
+   private long readRecords(FileChannel channel, Map<Long, Entry> map) throws IOException
+   {
+      if (!hasValidHeader(channel))
+      {
+         if (channel.size() > 0 && logger != null)
+         {
+            logger.warn("Unknown format of probe cache: " + file.getAbsolutePath() + ", it will be overridden.");
+         }
+         return 0;
+      }
+      // read through the channel, a mapping would stay alive until it is garbage collected and block the truncate
+      ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 4096);
+      long position = HEADER_SIZE;
+      long count = 0;
+      int read = 0;
+      while ((read = channel.read(buffer, position)) != -1)
+      {
+         position += read;
+         buffer.flip();
+         while (buffer.remaining() >= RECORD_SIZE)
+         {
+            long hash = buffer.getLong();
+            long time = buffer.getLong();
+            int code = buffer.getInt();
+            map.put(hash, new Entry(time, code));
+            count++;
+         }
+         buffer.compact();
+      }
+      return count;
+   }
+
+   private boolean isExpired(Entry entry, boolean snapshot, long now)
+   {
+      if (entry.responseCode >= 400)
+      {
+         return now - entry.time > negativeTtl;
+      }
+      if (!snapshot)
+      {
+         return false;
+      }
+      return now - entry.time > positiveTtl;
+   }
+
+   private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+   {
+      int written = 0;
+      while (buffer.hasRemaining())
+      {
+         written += channel.write(buffer, position + written);
+      }
+      return written;
+   }
+
+   /**
+    * 64 bits FNV-1a hash of the key.
+    */
+   static long hash(String key)
+   {
+      byte[] bytes;
+      try
+      {
+         bytes = key.getBytes("UTF-8");
+      }
+      catch (UnsupportedEncodingException e)
+      {
+         throw new IllegalStateException(e);
+      }
+      long hash = 0xcbf29ce484222325L;
+      for (byte b: bytes)
+      {
+         hash ^= (b & 0xff);
+         hash *= 0x100000001b3L;
+      }
+      return hash;
+   }
+
+   /**
+    * @return the file
+    */
+   public File getFile()
+   {
+      return file;
+   }
+
+   /**
+    * @return the logger
+    */
+   public Log getLogger()
+   {
+      return logger;
+   }
+
+   /**
+    * @param logger the logger to set
+    */
+   public void setLogger(Log logger)
+   {
+      this.logger = logger;
+   }
+
+   private static class Entry
+   {
+      private final long time;
+
+      private final int responseCode;
+
+      private Entry(long time, int responseCode)
+      {
+         this.time = time;
+         this.responseCode = responseCode;
+      }
+   }
+
+   private static class Record
+   {
+      private final long hash;
+
+      private final Entry entry;
+
+      private Record(long hash, Entry entry)
+      {
+         this.hash = hash;
+         this.entry = entry;
+      }
+   }
+
+}
@@ -0,0 +1,126 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+
+/**
+ * Resolved plugins and report plugins, together with their dependencies, shared by all executions of the check goal
+ * in one Maven session.
+ *
+ * Most modules of a reactor use the same plugins, so each plugin GAV is resolved once, the modules resolving it at the
+ * same time wait for that single resolution. Failed resolutions are forgotten, so that the next module tries again.
+ *
+ * @author lgao
+ *
+ */
+public class PluginClosureCache
+{
+
+   private static final Map<Object, PluginClosureCache> CACHES = new WeakHashMap<Object, PluginClosureCache>();
+
+   private final ConcurrentMap<String, FutureTask<Set<Artifact>>> closures = new ConcurrentHashMap<String, FutureTask<Set<Artifact>>>();
+
+   private final AtomicLong lookups = new AtomicLong();
+
+   private final AtomicLong hits = new AtomicLong();
+
+   /**
+    * Gets the cache of the Maven session, it is created on first use and released together with the session.
+    */
+   public static PluginClosureCache forSession(MavenSession session)
+   {
+      Object key = ReactorProbeCache.sessionKey(session);
+      synchronized (CACHES)
+      {
+         PluginClosureCache cache = CACHES.get(key);
+         if (cache == null)
+         {
+            cache = new PluginClosureCache();
+            CACHES.put(key, cache);
+         }
+         return cache;
+      }
+   }
+
+   /**
+    * Gets the artifacts of the plugin, runs the resolution only when no other thread did or is doing it.
+    *
+    * @param plugin the plugin or report plugin
+    * @param mode how the plugin is resolved, like 'resolved' or 'collected', the closures of different modes are kept
+    *           apart
+    * @param transitive whether the dependencies of the plugin are resolved as well
+    * @param resolution resolves the plugin, returns it and its dependencies
+    */
+   public Set<Artifact> resolve(Artifact plugin, String mode, boolean transitive, Callable<Set<Artifact>> resolution) throws Exception
+   {
+      String key = mode + " " + plugin.getGroupId() + ":" + plugin.getArtifactId() + ":" + plugin.getVersion() + (transitive ? "|transitive" : "");
+      FutureTask<Set<Artifact>> task = new FutureTask<Set<Artifact>>(resolution);
+      lookups.incrementAndGet();
+      FutureTask<Set<Artifact>> existing = closures.putIfAbsent(key, task);
+      if (existing == null)
+      {
+         task.run();
+         existing = task;
+      }
+      else
+      {
+         hits.incrementAndGet();
+      }
+      try
+      {
+         return existing.get();
+      }
+      catch (ExecutionException e)
+      {
+         closures.remove(key, existing);
+         Throwable cause = e.getCause();
+         if (cause instanceof Exception)
+         {
+            throw (Exception)cause;
+         }
+         if (cause instanceof Error)
+         {
+            throw (Error)cause;
+         }
+         throw new IllegalStateException("Plugin resolution failed", cause);
+      }
+   }
+
+   /**
+    * @return how many plugins looked up the cache
+    */
+   public long getLookups()
+   {
+      return lookups.get();
+   }
+
+   /**
+    * @return how many plugins were answered by a resolution of another module, or another thread
+    */
+   public long getHits()
+   {
+      return hits.get();
+   }
+
+   /**
+    * @return how many plugins are known
+    */
+   public int size()
+   {
+      return closures.size();
+   }
+
+}
@@ -0,0 +1,187 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The parts of a pom which are needed to collect its managed artifacts, as they are written in the pom.
+ *
+ * Values are not interpolated, the sections of the selected profile are merged already.
+ *
+ * @author lgao
+ *
+ */
+public class PomInfo
+{
+
+   private String groupId;
+
+   private String artifactId;
+
+   private String version;
+
+   private String parentGroupId;
+
+   private String parentArtifactId;
+
+   private String parentVersion;
+
+   private final Map<String, String> properties = new LinkedHashMap<String, String>();
+
+   /**
+    * groupId:artifactId -> version of &lt;dependencyManagement&gt;
+    */
+   private final Map<String, String> dependencies = new LinkedHashMap<String, String>();
+
+   /**
+    * groupId:artifactId -> version of &lt;pluginManagement&gt;
+    */
+   private final Map<String, String> plugins = new LinkedHashMap<String, String>();
+
+   /**
+    * groupId:artifactId:version of the <b>import</b> scoped dependencies in &lt;dependencyManagement&gt;
+    */
+   private final List<String> imports = new ArrayList<String>();
+
+   /**
+    * @return the groupId, or the groupId of the parent if it is not specified
+    */
+   public String getGroupId()
+   {
+      return groupId != null ? groupId : parentGroupId;
+   }
+
+   /**
+    * @param groupId the groupId to set
+    */
+   public void setGroupId(String groupId)
+   {
+      this.groupId = groupId;
+   }
+
+   /**
+    * @return the artifactId
+    */
+   public String getArtifactId()
+   {
+      return artifactId;
+   }
+
+   /**
+    * @param artifactId the artifactId to set
+    */
+   public void setArtifactId(String artifactId)
+   {
+      this.artifactId = artifactId;
+   }
+
+   /**
+    * @return the version, or the version of the parent if it is not specified
+    */
+   public String getVersion()
+   {
+      return version != null ? version : parentVersion;
+   }
+
+   /**
+    * @param version the version to set
+    */
+   public void setVersion(String version)
+   {
+      this.version = version;
+   }
+
+   /**
+    * @return whether a parent is declared
+    */
+   public boolean hasParent()
+   {
+      return parentGroupId != null && parentArtifactId != null && parentVersion != null;
+   }
+
+   /**
+    * @return the parentGroupId
+    */
+   public String getParentGroupId()
+   {
+      return parentGroupId;
+   }
+
+   /**
+    * @param parentGroupId the parentGroupId to set
+    */
+   public void setParentGroupId(String parentGroupId)
+   {
+      this.parentGroupId = parentGroupId;
+   }
+
+   /**
+    * @return the parentArtifactId
+    */
+   public String getParentArtifactId()
+   {
+      return parentArtifactId;
+   }
+
+   /**
+    * @param parentArtifactId the parentArtifactId to set
+    */
+   public void setParentArtifactId(String parentArtifactId)
+   {
+      this.parentArtifactId = parentArtifactId;
+   }
+
+   /**
+    * @return the parentVersion
+    */
+   public String getParentVersion()
+   {
+      return parentVersion;
+   }
+
+   /**
+    * @param parentVersion the parentVersion to set
+    */
+   public void setParentVersion(String parentVersion)
+   {
+      this.parentVersion = parentVersion;
+   }
+
+   /**
+    * @return the properties
+    */
+   public Map<String, String> getProperties()
+   {
+      return properties;
+   }
+
+   /**
+    * @return the dependencies
+    */
+   public Map<String, String> getDependencies()
+   {
+      return dependencies;
+   }
+
+   /**
+    * @return the plugins
+    */
+   public Map<String, String> getPlugins()
+   {
+      return plugins;
+   }
+
+   /**
+    * @return the imports
+    */
+   public List<String> getImports()
+   {
+      return imports;
+   }
+
+}
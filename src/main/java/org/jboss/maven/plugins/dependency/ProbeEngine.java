@@ -0,0 +1,175 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Runs the probes of a list of artifacts concurrently, with at most <code>parallelism</code> probes in flight.
+ *
+ * The results are returned in the same order as the artifacts are given, so that the output does not depend on
+ * which probe finishes first.
+ *
+ * @author lgao
+ *
+ */
+public class ProbeEngine
+{
+
+   private final ArtifactProber prober;
+
+   private final int parallelism;
+
+   private final boolean virtualThreads;
+
+   private Log logger;
+
+   public ProbeEngine(ArtifactProber prober, int parallelism, boolean virtualThreads)
+   {
+      super();
+      this.prober = prober;
+      this.parallelism = parallelism < 1 ? 1 : parallelism;
+      this.virtualThreads = virtualThreads;
+   }
+
+   /**
+    * Probes all artifacts, returns the results in the order of the artifacts.
+    */
+   public List<ProbeResult> probeAll(List<Artifact> artifacts) throws InterruptedException
+   {
+      List<ProbeResult> results = new ArrayList<ProbeResult>(artifacts.size());
+      if (parallelism == 1 || artifacts.size() <= 1)
+      {
+         for (Artifact artifact: artifacts)
+         {
+            results.add(prober.probe(artifact));
+         }
+         return results;
+      }
+      ExecutorService executor = createExecutor();
+      try
+      {
+         final Semaphore inFlight = new Semaphore(parallelism);
+         List<Future<ProbeResult>> futures = new ArrayList<Future<ProbeResult>>(artifacts.size());
+         for (final Artifact artifact: artifacts)
+         {
+            inFlight.acquire();
+            futures.add(executor.submit(new Callable<ProbeResult>()
+            {
+               public ProbeResult call() throws Exception
+               {
+                  try
+                  {
+                     return prober.probe(artifact);
+                  }
+                  finally
+                  {
+                     inFlight.release();
+                  }
+               }
+            }));
+         }
+         for (Future<ProbeResult> future: futures)
+         {
+            results.add(getResult(future));
+         }
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+      return results;
+   }
+
+   static <T> T getResult(Future<T> future) throws InterruptedException
+   {
+      try
+      {
+         return future.get();
+      }
+      catch (ExecutionException e)
+      {
+         Throwable cause = e.getCause();
+         if (cause instanceof RuntimeException)
+         {
+            throw (RuntimeException)cause;
+         }
+         if (cause instanceof Error)
+         {
+            throw (Error)cause;
+         }
+         throw new IllegalStateException("Probe failed", cause);
+      }
+   }
+
+   private ExecutorService createExecutor()
+   {
+      return createExecutor(parallelism, virtualThreads, logger);
+   }
+
+   /**
+    * Creates the executor of the probes, virtual threads are used only when current JVM supports them.
+    */
+   static ExecutorService createExecutor(int threads, boolean virtualThreads, Log logger)
+   {
+      if (virtualThreads)
+      {
+         try
+         {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService)method.invoke(null);
+         }
+         catch (Exception e)
+         {
+            if (logger != null)
+            {
+               logger.warn("Virtual threads are not supported by current JVM, uses platform threads instead.");
+            }
+         }
+      }
+      return Executors.newFixedThreadPool(threads, new ProbeThreadFactory());
+   }
+
+   /**
+    * @return the logger
+    */
+   public Log getLogger()
+   {
+      return logger;
+   }
+
+   /**
+    * @param logger the logger to set
+    */
+   public void setLogger(Log logger)
+   {
+      this.logger = logger;
+   }
+
+   private static class ProbeThreadFactory implements ThreadFactory
+   {
+      private final AtomicInteger counter = new AtomicInteger();
+
+      public Thread newThread(Runnable r)
+      {
+         Thread thread = new Thread(r, "dependency-check-probe-" + counter.incrementAndGet());
+         thread.setDaemon(true);
+         return thread;
+      }
+   }
+
+}
@@ -0,0 +1,375 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Probes the artifacts while they are still being resolved.
+ *
+ * The resolution thread offers each artifact once into a bounded queue, it blocks when the probes fall behind. A
+ * dispatcher thread takes the artifacts from the queue, skips the ones not accepted by the filter, and probes the
+ * others. At most <code>parallelism</code> probes per repository are in flight.
+ *
+ * The dispatcher never waits for a {@link WaitingFilter} which is not ready: the artifacts taken before it is ready
+ * are probed anyway, and filtered in {@link #finish()} once all artifacts are offered.
+ *
+ * Like {@link RepositoryFanOut} does, all repositories of an artifact are probed at the same time by default, and one
+ * after another in the given order when <code>stopOnFirstFound</code> is set. The results are returned in the order
+ * the artifacts are offered.
+ *
+ * If the dispatcher dies, the resolution thread gets its failure on the next offer instead of waiting forever.
+ *
+ * @author lgao
+ *
+ */
+public class ProbePipeline
+{
+
+   /**
+    * Ends the stream of artifacts in the queue.
+    */
+   private static final Artifact[] END = new Artifact[0];
+
+   /**
+    * How often a blocked offer checks whether the dispatcher is still alive.
+    */
+   private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+   private final List<ArtifactProber> probers;
+
+   private final int parallelism;
+
+   private final boolean virtualThreads;
+
+   private final boolean stopOnFirstFound;
+
+   private final BlockingQueue<Artifact[]> queue;
+
+   private final List<Artifact> artifacts = new ArrayList<Artifact>();
+
+   private final List<ProbeResult[]> rows = new ArrayList<ProbeResult[]>();
+
+   /**
+    * The probes of each row, one per repository when they are probed at the same time.
+    */
+   private final List<List<Future<?>>> futures = new ArrayList<List<Future<?>>>();
+
+   /**
+    * The rows probed before the filter was ready, they are filtered when the stream ends.
+    */
+   private final BitSet unfiltered = new BitSet();
+
+   private ArtifactFilter filter;
+
+   private ExecutorService executor;
+
+   private Thread dispatcher;
+
+   private volatile RuntimeException dispatchError;
+
+   /**
+    * Why the dispatcher stopped before the end of the stream, the queue is not drained any more.
+    */
+   private volatile Throwable dispatcherFailure;
+
+   private Log logger;
+
+   /**
+    * @param probers one prober per repository
+    * @param parallelism how many probes are in flight per repository
+    * @param virtualThreads whether to use virtual threads when current JVM supports them
+    * @param stopOnFirstFound whether to stop probing an artifact once a repository has it
+    * @param capacity how many offered artifacts wait in the queue at most
+    */
+   public ProbePipeline(List<ArtifactProber> probers, int parallelism, boolean virtualThreads, boolean stopOnFirstFound, int capacity)
+   {
+      super();
+      this.probers = probers;
+      this.parallelism = parallelism < 1 ? 1 : parallelism;
+      this.virtualThreads = virtualThreads;
+      this.stopOnFirstFound = stopOnFirstFound;
+      this.queue = new ArrayBlockingQueue<Artifact[]>(capacity < 1 ? 1 : capacity);
+   }
+
+   /**
+    * Starts the dispatcher, artifacts can be offered after it.
+    */
+   public void start()
+   {
+      final Semaphore[] inFlight = new Semaphore[isInOrder() ? 1 : probers.size()];
+      for (int repo = 0; repo < inFlight.length; repo++)
+      {
+         inFlight[repo] = new Semaphore(parallelism);
+      }
+      executor = ProbeEngine.createExecutor(parallelism * inFlight.length, virtualThreads, logger);
+      dispatcher = new Thread(new Runnable()
+      {
+         public void run()
+         {
+            try
+            {
+               dispatch(inFlight);
+            }
+            catch (InterruptedException e)
+            {
+               dispatcherFailure = e;
+               Thread.currentThread().interrupt();
+            }
+            catch (Throwable e)
+            {
+               dispatcherFailure = e;
+            }
+         }
+      }, "dependency-check-pipeline");
+      dispatcher.setDaemon(true);
+      dispatcher.start();
+   }
+
+   /**
+    * Offers an artifact to probe, waits while the queue is full. Each artifact must be offered only once.
+    *
+    * @throws IllegalStateException if the dispatcher died
+    */
+   public void offer(Artifact artifact) throws InterruptedException
+   {
+      put(new Artifact[] {artifact});
+   }
+
+   /**
+    * Waits until all offered artifacts are probed, returns one row per probed artifact, and one column per repository.
+    *
+    * A column is null when the artifact is not probed against that repository. The artifacts probed before the filter
+    * was ready are filtered here, this waits for the filter.
+    */
+   public List<ProbeResult[]> finish() throws InterruptedException
+   {
+      put(END);
+      dispatcher.join();
+      checkDispatcher();
+      if (dispatchError != null)
+      {
+         throw dispatchError;
+      }
+      for (List<Future<?>> probes: futures)
+      {
+         for (Future<?> future: probes)
+         {
+            ProbeEngine.getResult(future);
+         }
+      }
+      if (!unfiltered.isEmpty())
+      {
+         // in the offer order, the rows kept are moved to the front
+         int kept = 0;
+         for (int i = 0; i < rows.size(); i++)
+         {
+            if (!unfiltered.get(i) || filter.include(artifacts.get(i)))
+            {
+               artifacts.set(kept, artifacts.get(i));
+               rows.set(kept, rows.get(i));
+               kept++;
+            }
+         }
+         artifacts.subList(kept, artifacts.size()).clear();
+         rows.subList(kept, rows.size()).clear();
+         futures.clear();
+         unfiltered.clear();
+      }
+      return rows;
+   }
+
+   /**
+    * Puts the item into the queue, checks the dispatcher while the queue is full.
+    */
+   private void put(Artifact[] item) throws InterruptedException
+   {
+      while (!queue.offer(item, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+      {
+         checkDispatcher();
+      }
+   }
+
+   private void checkDispatcher()
+   {
+      Throwable failure = dispatcherFailure;
+      if (failure != null)
+      {
+         throw new IllegalStateException("Probe pipeline stopped: " + failure, failure);
+      }
+   }
+
+   /**
+    * Stops the dispatcher and the probes which are still running.
+    */
+   public void shutdown()
+   {
+      if (dispatcher != null)
+      {
+         dispatcher.interrupt();
+      }
+      if (executor != null)
+      {
+         executor.shutdownNow();
+      }
+   }
+
+   private void dispatch(final Semaphore[] inFlight) throws InterruptedException
+   {
+      while (true)
+      {
+         Artifact[] item = queue.take();
+         if (item == END)
+         {
+            return;
+         }
+         if (dispatchError != null)
+         {
+            // keeps draining the queue after a failure, so the resolution thread is never blocked
+            continue;
+         }
+         final Artifact artifact = item[0];
+         try
+         {
+            if (filter != null && !isFilterReady())
+            {
+               unfiltered.set(rows.size());
+            }
+            else if (filter != null && !filter.include(artifact))
+            {
+               continue;
+            }
+         }
+         catch (RuntimeException e)
+         {
+            dispatchError = e;
+            continue;
+         }
+         final ProbeResult[] row = new ProbeResult[probers.size()];
+         List<Future<?>> probes = new ArrayList<Future<?>>(inFlight.length);
+         for (int i = 0; i < inFlight.length; i++)
+         {
+            final int repo = i;
+            final Semaphore permits = inFlight[i];
+            permits.acquire();
+            probes.add(executor.submit(new Callable<Void>()
+            {
+               public Void call() throws Exception
+               {
+                  try
+                  {
+                     if (isInOrder())
+                     {
+                        probeInOrder(artifact, row);
+                     }
+                     else
+                     {
+                        row[repo] = probers.get(repo).probe(artifact);
+                     }
+                     return null;
+                  }
+                  finally
+                  {
+                     permits.release();
+                  }
+               }
+            }));
+         }
+         artifacts.add(artifact);
+         rows.add(row);
+         futures.add(probes);
+      }
+   }
+
+   private void probeInOrder(Artifact artifact, ProbeResult[] row)
+   {
+      for (int repo = 0; repo < probers.size(); repo++)
+      {
+         ProbeResult result = probers.get(repo).probe(artifact);
+         row[repo] = result;
+         if (stopOnFirstFound && !result.isMissing() && !result.isFailed())
+         {
+            break;
+         }
+      }
+   }
+
+   private boolean isFilterReady()
+   {
+      return !(filter instanceof WaitingFilter) || ((WaitingFilter)filter).isReady();
+   }
+
+   private boolean isInOrder()
+   {
+      return stopOnFirstFound || probers.size() == 1;
+   }
+
+   /**
+    * Gets the probed artifacts, in the same order as the rows returned by {@link #finish()}.
+    *
+    * @return the artifacts
+    */
+   public List<Artifact> getArtifacts()
+   {
+      return artifacts;
+   }
+
+   /**
+    * @return the filter
+    */
+   public ArtifactFilter getFilter()
+   {
+      return filter;
+   }
+
+   /**
+    * @param filter the filter to set, only the artifacts it includes are returned, a {@link WaitingFilter} can be
+    *           applied after the probes
+    */
+   public void setFilter(ArtifactFilter filter)
+   {
+      this.filter = filter;
+   }
+
+   /**
+    * @return the logger
+    */
+   public Log getLogger()
+   {
+      return logger;
+   }
+
+   /**
+    * @param logger the logger to set
+    */
+   public void setLogger(Log logger)
+   {
+      this.logger = logger;
+   }
+
+   /**
+    * A filter which has to wait for something before it can answer, like the excluded poms being loaded.
+    */
+   public interface WaitingFilter extends ArtifactFilter
+   {
+      /**
+       * @return whether {@link #include(Artifact)} answers without waiting
+       */
+      boolean isReady();
+   }
+
+}
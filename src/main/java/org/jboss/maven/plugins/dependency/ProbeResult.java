@@ -0,0 +1,165 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+import org.apache.maven.artifact.Artifact;
+
+/**
+ * Outcome of checking one artifact against a Maven Repository.
+ *
+ * @author lgao
+ *
+ */
+public class ProbeResult
+{
+
+   private final Artifact artifact;
+
+   private final String link;
+
+   private final int responseCode;
+
+   private final IOException error;
+
+   private final long length;
+
+   private final long time;
+
+   private ProbeResult(Artifact artifact, String link, int responseCode, IOException error, long length, long time)
+   {
+      super();
+      this.artifact = artifact;
+      this.link = link;
+      this.responseCode = responseCode;
+      this.error = error;
+      this.length = length;
+      this.time = time;
+   }
+
+   /**
+    * The repository answered the probe with the specified response code.
+    */
+   public static ProbeResult answered(Artifact artifact, String link, int responseCode)
+   {
+      return new ProbeResult(artifact, link, responseCode, null, -1, System.currentTimeMillis());
+   }
+
+   /**
+    * The repository answered the probe with the specified response code, and told the size of the file.
+    */
+   public static ProbeResult answered(Artifact artifact, String link, int responseCode, long length)
+   {
+      return new ProbeResult(artifact, link, responseCode, null, length, System.currentTimeMillis());
+   }
+
+   /**
+    * The repository answered the probe with the specified response code at an earlier time, like an answer kept in a
+    * cache.
+    */
+   public static ProbeResult remembered(Artifact artifact, String link, int responseCode, long time)
+   {
+      return new ProbeResult(artifact, link, responseCode, null, -1, time);
+   }
+
+   /**
+    * The probe could not be completed.
+    */
+   public static ProbeResult failed(Artifact artifact, String link, IOException error)
+   {
+      return new ProbeResult(artifact, link, -1, error, -1, System.currentTimeMillis());
+   }
+
+   /**
+    * Gets the same result for another artifact which has the same coordinates.
+    */
+   public ProbeResult forArtifact(Artifact other)
+   {
+      if (other == artifact)
+      {
+         return this;
+      }
+      return new ProbeResult(other, link, responseCode, error, length, time);
+   }
+
+   /**
+    * @return true if the artifact does not exist in the repository
+    */
+   public boolean isMissing()
+   {
+      return error == null && (responseCode == HttpURLConnection.HTTP_NOT_FOUND || responseCode == HttpURLConnection.HTTP_GONE);
+   }
+
+   /**
+    * @return true if the probe failed before the repository answered, or the repository answered with an error which
+    *         does not tell whether the artifact exists, like 403, 429 or 5xx
+    */
+   public boolean isFailed()
+   {
+      return error != null || (responseCode >= 400 && !isMissing());
+   }
+
+   /**
+    * @return why the probe failed
+    */
+   public String getFailure()
+   {
+      if (error != null)
+      {
+         return error.getMessage();
+      }
+      return "response code: " + responseCode;
+   }
+
+   /**
+    * @return the artifact
+    */
+   public Artifact getArtifact()
+   {
+      return artifact;
+   }
+
+   /**
+    * @return the link
+    */
+   public String getLink()
+   {
+      return link;
+   }
+
+   /**
+    * @return the responseCode
+    */
+   public int getResponseCode()
+   {
+      return responseCode;
+   }
+
+   /**
+    * @return the error
+    */
+   public IOException getError()
+   {
+      return error;
+   }
+
+   /**
+    * @return the size of the file in bytes, -1 if the repository did not tell it
+    */
+   public long getLength()
+   {
+      return length;
+   }
+
+   /**
+    * @return when the repository answered, in milliseconds since the epoch
+    */
+   public long getTime()
+   {
+      return time;
+   }
+
+}
@@ -0,0 +1,143 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+
+/**
+ * Probe results shared by all executions of the check goal in one Maven session.
+ *
+ * Concurrent probes of the same key, from different modules built in parallel, wait for one single request to the
+ * repository. The answers are kept for the modules built later.
+ *
+ * @author lgao
+ *
+ */
+public class ReactorProbeCache
+{
+
+   private static final Map<Object, ReactorProbeCache> CACHES = new WeakHashMap<Object, ReactorProbeCache>();
+
+   private final ConcurrentMap<String, FutureTask<ProbeResult>> results = new ConcurrentHashMap<String, FutureTask<ProbeResult>>();
+
+   private final AtomicLong lookups = new AtomicLong();
+
+   private final AtomicLong hits = new AtomicLong();
+
+   /**
+    * Gets the cache of the Maven session, it is created on first use and released together with the session.
+    */
+   public static ReactorProbeCache forSession(MavenSession session)
+   {
+      Object key = sessionKey(session);
+      synchronized (CACHES)
+      {
+         ReactorProbeCache cache = CACHES.get(key);
+         if (cache == null)
+         {
+            cache = new ReactorProbeCache();
+            CACHES.put(key, cache);
+         }
+         return cache;
+      }
+   }
+
+   /**
+    * Gets an object which identifies the Maven session, and is shared by all its clones.
+    *
+    * From Maven 3.1 to 3.8, each project is built with its own clone of the session, so the session itself can not be
+    * the key of what is shared across the reactor. The clones are shallow copies which keep the settings of the
+    * session, which are created once per build.
+    */
+   static Object sessionKey(MavenSession session)
+   {
+      Object settings = session.getSettings();
+      return settings == null ? session : settings;
+   }
+
+   /**
+    * Gets the result of the key, asks the delegate only when no other thread did or is doing it.
+    *
+    * Failed probes are forgotten once they complete, so that they are tried again by the next module.
+    */
+   public ProbeResult probe(final String key, final Artifact artifact, final ArtifactProber delegate) throws InterruptedException
+   {
+      FutureTask<ProbeResult> task = new FutureTask<ProbeResult>(new Callable<ProbeResult>()
+      {
+         public ProbeResult call() throws Exception
+         {
+            return delegate.probe(artifact);
+         }
+      });
+      lookups.incrementAndGet();
+      FutureTask<ProbeResult> existing = results.putIfAbsent(key, task);
+      if (existing == null)
+      {
+         task.run();
+         existing = task;
+      }
+      else
+      {
+         hits.incrementAndGet();
+      }
+      try
+      {
+         ProbeResult result = existing.get();
+         if (result.isFailed())
+         {
+            results.remove(key, existing);
+         }
+         return result.forArtifact(artifact);
+      }
+      catch (ExecutionException e)
+      {
+         results.remove(key, existing);
+         Throwable cause = e.getCause();
+         if (cause instanceof RuntimeException)
+         {
+            throw (RuntimeException)cause;
+         }
+         if (cause instanceof Error)
+         {
+            throw (Error)cause;
+         }
+         throw new IllegalStateException("Probe failed", cause);
+      }
+   }
+
+   /**
+    * @return how many probes looked up the cache
+    */
+   public long getLookups()
+   {
+      return lookups.get();
+   }
+
+   /**
+    * @return how many probes were answered by another probe of the same key
+    */
+   public long getHits()
+   {
+      return hits.get();
+   }
+
+   /**
+    * @return how many keys are known
+    */
+   public int size()
+   {
+      return results.size();
+   }
+
+}
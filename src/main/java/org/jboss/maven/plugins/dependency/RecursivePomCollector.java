@@ -0,0 +1,444 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * Collects the managed artifacts of a pom together with the ones inherited from its parents and the ones of the
+ * <b>import</b> scoped BOMs in its &lt;dependencyManagement&gt;.
+ *
+ * The managed versions inherited from the parents are interpolated with the properties of the child, which override
+ * the ones of the parents, like Maven does. The imported BOMs are fetched and parsed in parallel, each of them is
+ * interpolated with its own properties. Each groupId:artifactId:version is processed only once per profile, so a
+ * parent shared by many poms is read once. The parents and BOMs are searched in the repository of the referring pom
+ * first.
+ *
+ * @author lgao
+ *
+ */
+public class RecursivePomCollector
+{
+
+   private static final Pattern EXPRESSION = Pattern.compile("\\$\\{([^}]+)\\}");
+
+   private final String profile;
+
+   private final List<String> repositories;
+
+   private final RemotePomCache pomCache;
+
+   private final ConcurrentMap<String, FutureTask<EffectivePom>> poms = new ConcurrentHashMap<String, FutureTask<EffectivePom>>();
+
+   /**
+    * The poms each pom needs: its parent and its imported BOMs, used to find cycles before waiting for them.
+    */
+   private final Map<String, Set<String>> needs = new HashMap<String, Set<String>>();
+
+   private final ExecutorService executor;
+
+   private Log logger;
+
+   /**
+    * @param profile the selected profile, may be null
+    * @param repositories URLs of the repositories where the parents and the BOMs are searched, end with '/'
+    * @param pomCache where the remote poms are cached, may be null
+    */
+   public RecursivePomCollector(String profile, List<String> repositories, RemotePomCache pomCache)
+   {
+      super();
+      this.profile = profile;
+      this.repositories = repositories;
+      this.pomCache = pomCache;
+      this.executor = Executors.newCachedThreadPool(new ThreadFactory()
+      {
+         public Thread newThread(Runnable r)
+         {
+            Thread thread = new Thread(r, "dependency-check-pom-collector");
+            thread.setDaemon(true);
+            return thread;
+         }
+      });
+   }
+
+   /**
+    * Collects the managed dependencies and plugins of the pom, keyed by groupId:artifactId, the values are versions.
+    *
+    * @param pomURL the remote URL of the pom, its repository is searched first for the parents and the BOMs
+    */
+   public void collect(URL pomURL, Map<String, String> dependencies, Map<String, String> plugins) throws IOException, XmlPullParserException
+   {
+      PomInfo info = read(pomURL);
+      String hint = repositoryOf(pomURL, info);
+      String node = "pom:" + pomURL;
+      EffectivePom pom = effective(inherit(info, hint, node), hint, node);
+      dependencies.putAll(pom.dependencies);
+      plugins.putAll(pom.plugins);
+   }
+
+   /**
+    * Stops the background threads.
+    */
+   public void shutdown()
+   {
+      executor.shutdownNow();
+   }
+
+   /**
+    * Gets the pom of the coordinates merged with its parents, not interpolated yet, waits if another thread is
+    * processing it.
+    */
+   private EffectivePom resolveInherited(final String gav, final String hint, String from) throws IOException, XmlPullParserException
+   {
+      final String node = "parent:" + gav;
+      dependsOn(from, node);
+      return singleFlight(node, new Callable<EffectivePom>()
+      {
+         public EffectivePom call() throws Exception
+         {
+            return inherit(load(gav, hint), hint, node);
+         }
+      });
+   }
+
+   /**
+    * Gets the interpolated pom of the coordinates with its imported BOMs, waits if another thread is processing it.
+    */
+   private EffectivePom resolveImported(final String gav, final String hint, String from) throws IOException, XmlPullParserException
+   {
+      final String node = "import:" + gav;
+      dependsOn(from, node);
+      return singleFlight(node, new Callable<EffectivePom>()
+      {
+         public EffectivePom call() throws Exception
+         {
+            return effective(inherit(load(gav, hint), hint, node), hint, node);
+         }
+      });
+   }
+
+   private EffectivePom singleFlight(String node, Callable<EffectivePom> processing) throws IOException, XmlPullParserException
+   {
+      String key = node + "|" + profile;
+      FutureTask<EffectivePom> task = new FutureTask<EffectivePom>(processing);
+      FutureTask<EffectivePom> existing = poms.putIfAbsent(key, task);
+      if (existing == null)
+      {
+         task.run();
+         existing = task;
+      }
+      return get(existing);
+   }
+
+   /**
+    * Records that the pom of <code>from</code> needs the pom of <code>to</code>. A cycle is reported instead of
+    * waiting for it, as the poms in the cycle would wait for each other forever, even in different threads.
+    */
+   private void dependsOn(String from, String to) throws IOException
+   {
+      synchronized (needs)
+      {
+         if (from.equals(to) || reaches(to, from))
+         {
+            throw new IOException("Cyclic parent or import of pom: " + to + " needed by: " + from);
+         }
+         Set<String> targets = needs.get(from);
+         if (targets == null)
+         {
+            targets = new HashSet<String>();
+            needs.put(from, targets);
+         }
+         targets.add(to);
+      }
+   }
+
+   /**
+    * Whether the pom of <code>from</code> needs the pom of <code>to</code>, directly or not.
+    */
+   private boolean reaches(String from, String to)
+   {
+      Set<String> visited = new HashSet<String>();
+      List<String> pending = new ArrayList<String>();
+      pending.add(from);
+      while (!pending.isEmpty())
+      {
+         String node = pending.remove(pending.size() - 1);
+         if (node.equals(to))
+         {
+            return true;
+         }
+         Set<String> targets = needs.get(node);
+         if (targets != null && visited.add(node))
+         {
+            pending.addAll(targets);
+         }
+      }
+      return false;
+   }
+
+   /**
+    * Merges the pom with its parents, a child overrides the properties and the managed versions of its parents. The
+    * versions are kept as they are written, so that they are interpolated with the properties of the child.
+    */
+   private EffectivePom inherit(PomInfo info, String hint, String node) throws IOException, XmlPullParserException
+   {
+      EffectivePom pom = new EffectivePom();
+      if (info.hasParent())
+      {
+         EffectivePom parent = resolveInherited(info.getParentGroupId() + ":" + info.getParentArtifactId() + ":" + info.getParentVersion(), hint, node);
+         pom.properties.putAll(parent.properties);
+         pom.dependencies.putAll(parent.dependencies);
+         pom.plugins.putAll(parent.plugins);
+         pom.imports.addAll(parent.imports);
+      }
+      pom.properties.putAll(info.getProperties());
+      pom.properties.put("project.groupId", info.getGroupId());
+      pom.properties.put("project.artifactId", info.getArtifactId());
+      pom.properties.put("project.version", info.getVersion());
+      pom.properties.put("pom.version", info.getVersion());
+      if (info.hasParent())
+      {
+         pom.properties.put("project.parent.version", info.getParentVersion());
+         pom.properties.put("parent.version", info.getParentVersion());
+      }
+      pom.dependencies.putAll(info.getDependencies());
+      pom.plugins.putAll(info.getPlugins());
+      pom.imports.addAll(info.getImports());
+      return pom;
+   }
+
+   /**
+    * Interpolates the merged pom with its own properties, then adds the entries of the imported BOMs which are not
+    * managed by the pom.
+    */
+   private EffectivePom effective(EffectivePom merged, final String hint, final String node) throws IOException, XmlPullParserException
+   {
+      EffectivePom pom = new EffectivePom();
+      pom.properties.putAll(merged.properties);
+      for (Map.Entry<String, String> entry: merged.dependencies.entrySet())
+      {
+         pom.dependencies.put(entry.getKey(), interpolate(entry.getValue(), pom.properties));
+      }
+      for (Map.Entry<String, String> entry: merged.plugins.entrySet())
+      {
+         pom.plugins.put(entry.getKey(), interpolate(entry.getValue(), pom.properties));
+      }
+
+      // imported BOMs are processed in parallel, their entries do not override the ones of this pom
+      List<Future<EffectivePom>> imports = new ArrayList<Future<EffectivePom>>();
+      for (String bom: merged.imports)
+      {
+         final String gav = interpolate(bom, pom.properties);
+         imports.add(executor.submit(new Callable<EffectivePom>()
+         {
+            public EffectivePom call() throws Exception
+            {
+               return resolveImported(gav, hint, node);
+            }
+         }));
+      }
+      for (Future<EffectivePom> future: imports)
+      {
+         EffectivePom bom = get(future);
+         for (Map.Entry<String, String> entry: bom.dependencies.entrySet())
+         {
+            if (!pom.dependencies.containsKey(entry.getKey()))
+            {
+               pom.dependencies.put(entry.getKey(), entry.getValue());
+            }
+         }
+      }
+      return pom;
+   }
+
+   private PomInfo read(URL pomURL) throws IOException, XmlPullParserException
+   {
+      if (logger != null)
+      {
+         logger.debug("Reading pom: " + pomURL);
+      }
+      URL localURL = pomURL;
+      if (pomCache != null)
+      {
+         File pomFile = pomCache.fetch(pomURL);
+         localURL = pomFile.toURI().toURL();
+      }
+      return new StreamingPomReader(profile).read(localURL);
+   }
+
+   /**
+    * Reads the pom of the coordinates from the repository of the referring pom first, then from the other repositories.
+    */
+   private PomInfo load(String gav, String hint) throws IOException, XmlPullParserException
+   {
+      String[] coordinates = gav.split(":");
+      if (coordinates.length != 3)
+      {
+         throw new IOException("Wrong coordinates of pom: " + gav);
+      }
+      String path = coordinates[0].replace('.', '/') + "/" + coordinates[1] + "/" + coordinates[2] + "/" + coordinates[1] + "-" + coordinates[2] + ".pom";
+      List<String> candidates = new ArrayList<String>();
+      if (hint != null)
+      {
+         candidates.add(hint);
+      }
+      for (String repo: repositories)
+      {
+         if (!candidates.contains(repo))
+         {
+            candidates.add(repo);
+         }
+      }
+      IOException lastError = null;
+      for (String repo: candidates)
+      {
+         try
+         {
+            return read(new URL(repo + path));
+         }
+         catch (IOException e)
+         {
+            lastError = e;
+         }
+      }
+      throw new IOException("Can't find pom: " + gav + " in repositories: " + candidates + (lastError == null ? "" : " (" + lastError.getMessage() + ")"));
+   }
+
+   /**
+    * Gets the repository the pom is downloaded from: one of the repositories, or the root of the repository derived
+    * from the coordinates of the pom. It is null when the URL does not follow the repository layout.
+    */
+   static String repositoryOf(URL pomURL, PomInfo info)
+   {
+      String url = pomURL.toString();
+      String path = "/" + info.getGroupId().replace('.', '/') + "/" + info.getArtifactId() + "/" + info.getVersion() + "/" + info.getArtifactId() + "-"
+            + info.getVersion() + ".pom";
+      if (url.endsWith(path))
+      {
+         return url.substring(0, url.length() - path.length() + 1);
+      }
+      return null;
+   }
+
+   private static String interpolate(String value, Map<String, String> properties)
+   {
+      if (value == null || value.indexOf("${") == -1)
+      {
+         return value;
+      }
+      String result = value;
+      // nested expressions are resolved by several passes
+      for (int pass = 0; pass < 10 && result.indexOf("${") != -1; pass++)
+      {
+         Matcher matcher = EXPRESSION.matcher(result);
+         StringBuffer sb = new StringBuffer();
+         boolean changed = false;
+         while (matcher.find())
+         {
+            String replacement = properties.get(matcher.group(1));
+            if (replacement == null)
+            {
+               replacement = matcher.group();
+            }
+            else
+            {
+               changed = true;
+            }
+            matcher.appendReplacement(sb, Matcher.quoteReplacement(replacement));
+         }
+         matcher.appendTail(sb);
+         result = sb.toString();
+         if (!changed)
+         {
+            break;
+         }
+      }
+      return result;
+   }
+
+   private static EffectivePom get(Future<EffectivePom> future) throws IOException, XmlPullParserException
+   {
+      try
+      {
+         return future.get();
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw new IOException("Interrupted when collecting poms");
+      }
+      catch (ExecutionException e)
+      {
+         Throwable cause = e.getCause();
+         if (cause instanceof IOException)
+         {
+            throw (IOException)cause;
+         }
+         if (cause instanceof XmlPullParserException)
+         {
+            throw (XmlPullParserException)cause;
+         }
+         if (cause instanceof RuntimeException)
+         {
+            throw (RuntimeException)cause;
+         }
+         throw new IllegalStateException("Error when collecting poms", cause);
+      }
+   }
+
+   /**
+    * @return the logger
+    */
+   public Log getLogger()
+   {
+      return logger;
+   }
+
+   /**
+    * @param logger the logger to set
+    */
+   public void setLogger(Log logger)
+   {
+      this.logger = logger;
+   }
+
+   /**
+    * Properties, managed artifacts and imported BOMs of a pom, including the inherited ones. The imported entries are
+    * added once it is interpolated.
+    */
+   private static class EffectivePom
+   {
+      private final Map<String, String> properties = new LinkedHashMap<String, String>();
+
+      private final Map<String, String> dependencies = new LinkedHashMap<String, String>();
+
+      private final Map<String, String> plugins = new LinkedHashMap<String, String>();
+
+      private final List<String> imports = new ArrayList<String>();
+   }
+
+}
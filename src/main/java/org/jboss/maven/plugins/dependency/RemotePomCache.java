@@ -0,0 +1,430 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Local copies of remote pom files, revalidated with <b>ETag</b> and <b>Last-Modified</b> on each use.
+ *
+ * The copies are named after the SHA-1 of their content, and the validators of each URL point to the copy of its
+ * latest content. A copy never changes once it is written, so the keys collected from a pom, which are stored next to
+ * its copy, always match the content they were collected from, even when another process downloads a new version of
+ * the pom at the same time. An unchanged pom is neither downloaded nor parsed again.
+ *
+ * @author lgao
+ *
+ */
+public class RemotePomCache
+{
+
+   private final File directory;
+
+   private int connectTimeout;
+
+   private int readTimeout;
+
+   private Log logger;
+
+   public RemotePomCache(File directory)
+   {
+      super();
+      this.directory = directory;
+   }
+
+   /**
+    * Gets the local copy of the pom, downloads it only when it is changed since last time.
+    *
+    * Local files are returned as they are.
+    */
+   public File fetch(URL pomURL) throws IOException
+   {
+      if ("file".equals(pomURL.getProtocol()))
+      {
+         return FileUtils.toFile(pomURL);
+      }
+      if (!directory.exists())
+      {
+         directory.mkdirs();
+      }
+      File infoFile = new File(directory, digest(pomURL.toString()) + ".properties");
+      Properties info = readInfo(infoFile);
+      File pomFile = info.getProperty("sha1") == null ? null : new File(directory, info.getProperty("sha1") + ".pom");
+      if (pomFile == null || !pomFile.exists())
+      {
+         info.clear();
+         pomFile = null;
+      }
+
+      HttpURLConnection urlConn = null;
+      try
+      {
+         URLConnection conn = pomURL.openConnection();
+         conn.setConnectTimeout(connectTimeout);
+         conn.setReadTimeout(readTimeout);
+         if (!(conn instanceof HttpURLConnection))
+         {
+            return download(conn, pomURL, infoFile, new Properties());
+         }
+         urlConn = (HttpURLConnection)conn;
+         if (info.getProperty("etag") != null)
+         {
+            urlConn.setRequestProperty("If-None-Match", info.getProperty("etag"));
+         }
+         if (info.getProperty("lastModified") != null)
+         {
+            urlConn.setRequestProperty("If-Modified-Since", info.getProperty("lastModified"));
+         }
+         int code = urlConn.getResponseCode();
+         if (code == HttpURLConnection.HTTP_NOT_MODIFIED)
+         {
+            consume(urlConn, code);
+            debug("Pom: " + pomURL + " is not modified, uses: " + pomFile.getAbsolutePath());
+            return pomFile;
+         }
+         if (code >= 400)
+         {
+            consume(urlConn, code);
+            throw new IOException("Can't download pom: " + pomURL + ", response code: " + code);
+         }
+         Properties newInfo = new Properties();
+         if (urlConn.getHeaderField("ETag") != null)
+         {
+            newInfo.setProperty("etag", urlConn.getHeaderField("ETag"));
+         }
+         if (urlConn.getHeaderField("Last-Modified") != null)
+         {
+            newInfo.setProperty("lastModified", urlConn.getHeaderField("Last-Modified"));
+         }
+         return download(urlConn, pomURL, infoFile, newInfo);
+      }
+      catch (IOException e)
+      {
+         if (pomFile != null)
+         {
+            if (logger != null)
+            {
+               logger.warn("Can't check pom: " + pomURL + ", uses the local copy: " + pomFile.getAbsolutePath() + " (" + e.getMessage() + ")");
+            }
+            return pomFile;
+         }
+         throw e;
+      }
+   }
+
+   /**
+    * Downloads the pom into the copy named after its content, then points the validators of the URL to it.
+    */
+   private File download(URLConnection conn, URL pomURL, File infoFile, Properties info) throws IOException
+   {
+      debug("Downloading pom: " + pomURL);
+      File tmpFile = File.createTempFile("pom", ".tmp", directory);
+      MessageDigest md = newDigest();
+      InputStream input = null;
+      OutputStream output = null;
+      try
+      {
+         input = conn.getInputStream();
+         output = new FileOutputStream(tmpFile);
+         byte[] buffer = new byte[8192];
+         int len = -1;
+         while ((len = input.read(buffer)) != -1)
+         {
+            md.update(buffer, 0, len);
+            output.write(buffer, 0, len);
+         }
+      }
+      catch (IOException e)
+      {
+         IOUtil.close(output);
+         tmpFile.delete();
+         throw e;
+      }
+      finally
+      {
+         IOUtil.close(input);
+         IOUtil.close(output);
+      }
+      String sha1 = hex(md.digest());
+      File pomFile = new File(directory, sha1 + ".pom");
+      if (pomFile.exists())
+      {
+         // same content downloaded before, or by another process at the same time
+         tmpFile.delete();
+      }
+      else if (!tmpFile.renameTo(pomFile))
+      {
+         tmpFile.delete();
+         if (!pomFile.exists())
+         {
+            throw new IOException("Can't store pom: " + pomFile.getAbsolutePath());
+         }
+      }
+      info.setProperty("url", pomURL.toString());
+      info.setProperty("sha1", sha1);
+      File tmpInfoFile = File.createTempFile(infoFile.getName(), ".tmp", directory);
+      OutputStream infoOut = null;
+      try
+      {
+         infoOut = new FileOutputStream(tmpInfoFile);
+         info.store(infoOut, null);
+      }
+      finally
+      {
+         IOUtil.close(infoOut);
+      }
+      infoFile.delete();
+      if (!tmpInfoFile.renameTo(infoFile))
+      {
+         // the pom is still returned, it is only revalidated less efficiently next time
+         tmpInfoFile.delete();
+      }
+      debug("Stored pom: " + pomURL + " as: " + pomFile.getAbsolutePath());
+      return pomFile;
+   }
+
+   /**
+    * Reads the rest of a response without content and closes it, so that the connection can be reused.
+    */
+   private static void consume(HttpURLConnection urlConn, int code)
+   {
+      InputStream input = null;
+      try
+      {
+         input = code >= 400 ? urlConn.getErrorStream() : urlConn.getInputStream();
+         if (input != null)
+         {
+            byte[] buffer = new byte[1024];
+            while (input.read(buffer) != -1)
+            {
+               // discard
+            }
+         }
+      }
+      catch (IOException e)
+      {
+         // the connection won't be reused
+         urlConn.disconnect();
+      }
+      finally
+      {
+         IOUtil.close(input);
+      }
+   }
+
+   /**
+    * Gets the keys collected before from the pom with the same content and the same collect config, or null.
+    */
+   public List<String> readCollected(File pomFile, CollectConfig config) throws IOException
+   {
+      File collectedFile = collectedFile(pomFile, config);
+      if (collectedFile == null || !collectedFile.exists())
+      {
+         return null;
+      }
+      List<String> list = new ArrayList<String>();
+      BufferedReader reader = null;
+      try
+      {
+         reader = new BufferedReader(new FileReader(collectedFile));
+         String line = null;
+         while ((line = reader.readLine()) != null)
+         {
+            list.add(line);
+         }
+      }
+      finally
+      {
+         IOUtil.close(reader);
+      }
+      return list;
+   }
+
+   /**
+    * Stores the keys collected from the pom.
+    */
+   public void writeCollected(File pomFile, CollectConfig config, List<String> collected) throws IOException
+   {
+      File collectedFile = collectedFile(pomFile, config);
+      if (collectedFile == null)
+      {
+         return;
+      }
+      File tmpFile = File.createTempFile(collectedFile.getName(), ".tmp", directory);
+      PrintWriter writer = null;
+      try
+      {
+         writer = new PrintWriter(new FileWriter(tmpFile));
+         for (String line: collected)
+         {
+            writer.println(line);
+         }
+      }
+      finally
+      {
+         IOUtil.close(writer);
+      }
+      collectedFile.delete();
+      if (!tmpFile.renameTo(collectedFile))
+      {
+         tmpFile.delete();
+      }
+   }
+
+   /**
+    * The collected keys are named after the content of the pom, the collect config and the format of the collector, so
+    * they are out of date as soon as the pom or the collector changes.
+    */
+   private File collectedFile(File pomFile, CollectConfig config) throws IOException
+   {
+      if (!pomFile.getParentFile().equals(directory))
+      {
+         return null;
+      }
+      String sha1 = pomFile.getName().substring(0, pomFile.getName().length() - ".pom".length());
+      String configKey = MavenDependencyCollector.FORMAT_VERSION + ":" + config.getProfile() + ":" + config.isIncludeVersion();
+      return new File(directory, sha1 + "-" + digest(configKey) + ".collected");
+   }
+
+   private Properties readInfo(File infoFile) throws IOException
+   {
+      Properties info = new Properties();
+      if (infoFile.exists())
+      {
+         InputStream input = null;
+         try
+         {
+            input = new FileInputStream(infoFile);
+            info.load(input);
+         }
+         finally
+         {
+            IOUtil.close(input);
+         }
+      }
+      return info;
+   }
+
+   private void debug(String message)
+   {
+      if (logger != null)
+      {
+         logger.debug(message);
+      }
+   }
+
+   private static MessageDigest newDigest()
+   {
+      try
+      {
+         return MessageDigest.getInstance("SHA-1");
+      }
+      catch (NoSuchAlgorithmException e)
+      {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   private static String digest(String str)
+   {
+      try
+      {
+         return hex(newDigest().digest(str.getBytes("UTF-8")));
+      }
+      catch (UnsupportedEncodingException e)
+      {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   private static String hex(byte[] bytes)
+   {
+      StringBuilder sb = new StringBuilder();
+      for (byte b: bytes)
+      {
+         sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+         sb.append(Character.forDigit(b & 0xf, 16));
+      }
+      return sb.toString();
+   }
+
+   /**
+    * @return the directory
+    */
+   public File getDirectory()
+   {
+      return directory;
+   }
+
+   /**
+    * @return the connectTimeout
+    */
+   public int getConnectTimeout()
+   {
+      return connectTimeout;
+   }
+
+   /**
+    * @param connectTimeout milliseconds to wait for a connection, 0 to wait forever
+    */
+   public void setConnectTimeout(int connectTimeout)
+   {
+      this.connectTimeout = connectTimeout;
+   }
+
+   /**
+    * @return the readTimeout
+    */
+   public int getReadTimeout()
+   {
+      return readTimeout;
+   }
+
+   /**
+    * @param readTimeout milliseconds to wait for data of a response, 0 to wait forever
+    */
+   public void setReadTimeout(int readTimeout)
+   {
+      this.readTimeout = readTimeout;
+   }
+
+   /**
+    * @return the logger
+    */
+   public Log getLogger()
+   {
+      return logger;
+   }
+
+   /**
+    * @param logger the logger to set
+    */
+   public void setLogger(Log logger)
+   {
+      this.logger = logger;
+   }
+
+}
@@ -0,0 +1,55 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.IOException;
+
+import org.apache.maven.artifact.Artifact;
+
+/**
+ * Appends each probe to the {@link CheckReport} as soon as it completes.
+ *
+ * The latency covers the whole probe, including the answers of the caches, which take almost no time.
+ *
+ * @author lgao
+ *
+ */
+public class ReportingArtifactProber implements ArtifactProber
+{
+
+   private final ArtifactProber delegate;
+
+   private final String repoURL;
+
+   private final CheckReport report;
+
+   /**
+    * @param delegate the prober of the repository
+    * @param repoURL the repository URL, ends with '/'
+    * @param report the open report
+    */
+   public ReportingArtifactProber(ArtifactProber delegate, String repoURL, CheckReport report)
+   {
+      super();
+      this.delegate = delegate;
+      this.repoURL = repoURL;
+      this.report = report;
+   }
+
+   public ProbeResult probe(Artifact artifact)
+   {
+      long start = System.nanoTime();
+      ProbeResult result = delegate.probe(artifact);
+      try
+      {
+         report.probed(artifact, repoURL, result, System.nanoTime() - start);
+      }
+      catch (IOException e)
+      {
+         throw new IllegalStateException("Can't write report: " + report.getFile().getAbsolutePath(), e);
+      }
+      return result;
+   }
+
+}
@@ -0,0 +1,485 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Random;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * HTTP client used to check whether files exist in a remote Maven Repository, and to download small files like
+ * <b>maven-metadata.xml</b>.
+ *
+ * It sends <b>HEAD</b> requests, and falls back to a ranged <b>GET</b> once the repository rejects <b>HEAD</b>.
+ *
+ * Throttled (429, 503) and failed (IOException, 500, 502, 504) requests are retried, the concurrent requests to the
+ * host are limited by an {@link AdaptiveLimiter} if it is set.
+ *
+ * The connections are never disconnected explicitly, the response of each request is consumed so that the underlying
+ * socket goes back to the keep-alive pool of the JDK and is reused by the next request to the same host. The JDK keeps
+ * at most <b>http.maxConnections</b> idle sockets per host (5 by default), see {@link #getKeepAlivePoolSize()}, the
+ * sockets of the concurrent requests above it are closed after their request, and the next ones connect again.
+ *
+ * @author lgao
+ *
+ */
+public class RepositoryClient
+{
+
+   private final String repoURL;
+
+   private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+   private static final long BASE_BACKOFF_MILLIS = 200;
+
+   private static final long MAX_BACKOFF_MILLIS = 10 * 1000L;
+
+   private static final long MAX_RETRY_AFTER_MILLIS = 120 * 1000L;
+
+   private static final Random RANDOM = new Random();
+
+   private static final int DEFAULT_KEEP_ALIVE_POOL_SIZE = 5;
+
+   private volatile boolean headRejected;
+
+   private AdaptiveLimiter limiter;
+
+   private int retries;
+
+   private int connectTimeout;
+
+   private int readTimeout;
+
+   private Log logger;
+
+   /**
+    * @param repoURL the repository URL, ends with '/'
+    */
+   public RepositoryClient(String repoURL)
+   {
+      super();
+      this.repoURL = repoURL;
+   }
+
+   /**
+    * Checks the file of the artifact at the link, returns the HTTP response code and the size of the file if the
+    * repository tells it.
+    */
+   public ProbeResult check(Artifact artifact, String link) throws IOException
+   {
+      URL url = new URL(link);
+      if (!headRejected)
+      {
+         Response response = send(url, "HEAD", false);
+         if (response.code != HttpURLConnection.HTTP_BAD_METHOD && response.code != HttpURLConnection.HTTP_NOT_IMPLEMENTED)
+         {
+            return ProbeResult.answered(artifact, link, response.code, response.length);
+         }
+         if (logger != null)
+         {
+            logger.debug("Repository: " + repoURL + " rejects HEAD requests, uses ranged GET instead.");
+         }
+         headRejected = true;
+      }
+      Response response = send(url, "GET", false);
+      return ProbeResult.answered(artifact, link, response.code, response.length);
+   }
+
+   /**
+    * Downloads the file at the link, returns null when it does not exist.
+    */
+   public byte[] fetch(String link) throws IOException
+   {
+      Response response = send(new URL(link), "GET", true);
+      if (response.code == HttpURLConnection.HTTP_NOT_FOUND || response.code == HttpURLConnection.HTTP_GONE)
+      {
+         return null;
+      }
+      if (response.code >= 400)
+      {
+         throw new IOException("Can't download: " + link + ", response code: " + response.code);
+      }
+      return response.content;
+   }
+
+   /**
+    * Sends the request, retries when the host throttles or fails, waits with a jittered exponential backoff or as long
+    * as the <b>Retry-After</b> of the host asks.
+    *
+    * The last answer is returned when all retries are used, the last IOException is thrown if there is no answer.
+    */
+   private Response send(URL url, String method, boolean download) throws IOException
+   {
+      for (int attempt = 0;; attempt++)
+      {
+         acquire();
+         Response response = null;
+         IOException failure = null;
+         try
+         {
+            response = request(url, method, download);
+         }
+         catch (IOException e)
+         {
+            failure = e;
+         }
+         finally
+         {
+            if (response == null && failure == null && limiter != null)
+            {
+               // neither answered nor failed, like a RuntimeException, gives the permit back
+               limiter.release();
+            }
+         }
+         if (failure != null)
+         {
+            if (limiter != null)
+            {
+               limiter.onFailure();
+            }
+            if (attempt >= retries)
+            {
+               throw failure;
+            }
+            retryLater(url, failure.toString(), backoff(attempt));
+            continue;
+         }
+         if (response.code == HTTP_TOO_MANY_REQUESTS || response.code == HttpURLConnection.HTTP_UNAVAILABLE)
+         {
+            long delay = response.retryAfter >= 0 ? response.retryAfter : backoff(attempt);
+            if (limiter != null)
+            {
+               // the limiter makes all requests to the host wait, not only this one
+               limiter.onThrottled(delay);
+               delay = 0;
+            }
+            if (attempt >= retries)
+            {
+               return response;
+            }
+            retryLater(url, "response code: " + response.code, delay);
+         }
+         else if (response.code == HttpURLConnection.HTTP_INTERNAL_ERROR || response.code == HttpURLConnection.HTTP_BAD_GATEWAY || response.code == HttpURLConnection.HTTP_GATEWAY_TIMEOUT)
+         {
+            if (limiter != null)
+            {
+               limiter.onFailure();
+            }
+            if (attempt >= retries)
+            {
+               return response;
+            }
+            retryLater(url, "response code: " + response.code, backoff(attempt));
+         }
+         else
+         {
+            if (limiter != null)
+            {
+               limiter.onSuccess();
+            }
+            return response;
+         }
+      }
+   }
+
+   private void acquire() throws IOException
+   {
+      if (limiter == null)
+      {
+         return;
+      }
+      try
+      {
+         limiter.acquire();
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Interrupted when waiting for host: " + limiter.getHost());
+      }
+   }
+
+   private void retryLater(URL url, String reason, long delay) throws IOException
+   {
+      if (logger != null)
+      {
+         logger.debug("Retries: " + url + " in " + delay + " ms (" + reason + ")");
+      }
+      if (delay <= 0)
+      {
+         return;
+      }
+      try
+      {
+         Thread.sleep(delay);
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Interrupted when retrying: " + url);
+      }
+   }
+
+   /**
+    * Gets how many idle sockets per host the JDK keeps alive, it is read by the JDK once, before the first request of
+    * the JVM, so it is set on the command line, like -Dhttp.maxConnections=32 in MAVEN_OPTS.
+    */
+   public static int getKeepAlivePoolSize()
+   {
+      int size = Integer.getInteger("http.maxConnections", DEFAULT_KEEP_ALIVE_POOL_SIZE);
+      return size > 0 ? size : DEFAULT_KEEP_ALIVE_POOL_SIZE;
+   }
+
+   /**
+    * Full jitter: a random delay up to the exponential backoff of the attempt.
+    */
+   private static long backoff(int attempt)
+   {
+      long max = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt, 16));
+      return (long)(RANDOM.nextDouble() * max);
+   }
+
+   private Response request(URL url, String method, boolean download) throws IOException
+   {
+      HttpURLConnection urlConn = (HttpURLConnection)url.openConnection();
+      urlConn.setConnectTimeout(connectTimeout);
+      urlConn.setReadTimeout(readTimeout);
+      urlConn.setRequestMethod(method);
+      if ("GET".equals(method) && !download)
+      {
+         urlConn.setRequestProperty("Range", "bytes=0-0");
+      }
+      Response response = new Response();
+      response.code = urlConn.getResponseCode();
+      response.retryAfter = retryAfter(urlConn);
+      response.length = response.code < 400 ? length(urlConn) : -1;
+      if (download && response.code < 400)
+      {
+         response.content = read(urlConn);
+      }
+      else
+      {
+         consume(urlConn, response.code);
+      }
+      return response;
+   }
+
+   /**
+    * Gets the milliseconds of the <b>Retry-After</b> header, either seconds or a date, -1 if there is none.
+    */
+   private static long retryAfter(HttpURLConnection urlConn)
+   {
+      String value = urlConn.getHeaderField("Retry-After");
+      if (value == null)
+      {
+         return -1;
+      }
+      long millis = -1;
+      try
+      {
+         millis = Long.parseLong(value.trim()) * 1000L;
+      }
+      catch (NumberFormatException e)
+      {
+         long date = urlConn.getHeaderFieldDate("Retry-After", -1);
+         if (date == -1)
+         {
+            return -1;
+         }
+         millis = date - System.currentTimeMillis();
+      }
+      return Math.max(0, Math.min(millis, MAX_RETRY_AFTER_MILLIS));
+   }
+
+   /**
+    * Gets the size of the file, from the <b>Content-Range</b> of a ranged GET or the <b>Content-Length</b>, -1 if
+    * there is none.
+    */
+   private static long length(HttpURLConnection urlConn)
+   {
+      String range = urlConn.getHeaderField("Content-Range");
+      String value = range == null ? urlConn.getHeaderField("Content-Length") : range.substring(range.lastIndexOf('/') + 1);
+      if (value == null)
+      {
+         return -1;
+      }
+      try
+      {
+         return Long.parseLong(value.trim());
+      }
+      catch (NumberFormatException e)
+      {
+         // like '*' for an unknown size
+         return -1;
+      }
+   }
+
+   private byte[] read(HttpURLConnection urlConn) throws IOException
+   {
+      InputStream input = null;
+      try
+      {
+         input = urlConn.getInputStream();
+         ByteArrayOutputStream output = new ByteArrayOutputStream();
+         byte[] buffer = new byte[8192];
+         int len = -1;
+         while ((len = input.read(buffer)) != -1)
+         {
+            output.write(buffer, 0, len);
+         }
+         return output.toByteArray();
+      }
+      finally
+      {
+         IOUtil.close(input);
+      }
+   }
+
+   /**
+    * Reads the rest of the response, so that the connection can be reused.
+    */
+   private void consume(HttpURLConnection urlConn, int code)
+   {
+      InputStream input = null;
+      try
+      {
+         input = code >= 400 ? urlConn.getErrorStream() : urlConn.getInputStream();
+         if (input != null)
+         {
+            byte[] buffer = new byte[1024];
+            while (input.read(buffer) != -1)
+            {
+               // discard
+            }
+         }
+      }
+      catch (IOException e)
+      {
+         // the connection won't be reused
+         urlConn.disconnect();
+      }
+      finally
+      {
+         if (input != null)
+         {
+            try
+            {
+               input.close();
+            }
+            catch (IOException e)
+            {
+               urlConn.disconnect();
+            }
+         }
+      }
+   }
+
+   /**
+    * @return the repoURL
+    */
+   public String getRepoURL()
+   {
+      return repoURL;
+   }
+
+   /**
+    * @return the limiter
+    */
+   public AdaptiveLimiter getLimiter()
+   {
+      return limiter;
+   }
+
+   /**
+    * @param limiter the limiter of the repository host, null to send requests without limit
+    */
+   public void setLimiter(AdaptiveLimiter limiter)
+   {
+      this.limiter = limiter;
+   }
+
+   /**
+    * @return the retries
+    */
+   public int getRetries()
+   {
+      return retries;
+   }
+
+   /**
+    * @param retries how many times a throttled or failed request is sent again
+    */
+   public void setRetries(int retries)
+   {
+      this.retries = retries;
+   }
+
+   /**
+    * @return the milliseconds to wait for a connection, 0 waits forever
+    */
+   public int getConnectTimeout()
+   {
+      return connectTimeout;
+   }
+
+   /**
+    * @param connectTimeout the milliseconds to wait for a connection, 0 waits forever
+    */
+   public void setConnectTimeout(int connectTimeout)
+   {
+      this.connectTimeout = connectTimeout;
+   }
+
+   /**
+    * @return the milliseconds to wait for data of a response, 0 waits forever
+    */
+   public int getReadTimeout()
+   {
+      return readTimeout;
+   }
+
+   /**
+    * @param readTimeout the milliseconds to wait for data of a response, 0 waits forever
+    */
+   public void setReadTimeout(int readTimeout)
+   {
+      this.readTimeout = readTimeout;
+   }
+
+   /**
+    * @return the logger
+    */
+   public Log getLogger()
+   {
+      return logger;
+   }
+
+   /**
+    * @param logger the logger to set
+    */
+   public void setLogger(Log logger)
+   {
+      this.logger = logger;
+   }
+
+   private static class Response
+   {
+      private int code;
+
+      private long retryAfter;
+
+      private long length;
+
+      private byte[] content;
+   }
+
+}
@@ -0,0 +1,170 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Probes a list of artifacts against several repositories, each repository has its own {@link ProbeEngine}.
+ *
+ * By default all repositories are probed at the same time. When <code>stopOnFirstFound</code> is set, the
+ * repositories are probed one after another in the given order, and only the artifacts which are not found yet are
+ * probed against the next repository.
+ *
+ * @author lgao
+ *
+ */
+public class RepositoryFanOut
+{
+
+   private final List<ArtifactProber> probers;
+
+   private final int parallelism;
+
+   private final boolean virtualThreads;
+
+   private final boolean stopOnFirstFound;
+
+   private Log logger;
+
+   /**
+    * @param probers one prober per repository
+    * @param parallelism how many probes are in flight per repository
+    * @param virtualThreads whether to use virtual threads when current JVM supports them
+    * @param stopOnFirstFound whether to stop probing an artifact once a repository has it
+    */
+   public RepositoryFanOut(List<ArtifactProber> probers, int parallelism, boolean virtualThreads, boolean stopOnFirstFound)
+   {
+      super();
+      this.probers = probers;
+      this.parallelism = parallelism;
+      this.virtualThreads = virtualThreads;
+      this.stopOnFirstFound = stopOnFirstFound;
+   }
+
+   /**
+    * Probes all artifacts, returns one row per artifact in the order of the artifacts, and one column per repository.
+    *
+    * A column is null when the artifact is not probed against that repository.
+    */
+   public List<ProbeResult[]> probeAll(List<Artifact> artifacts) throws InterruptedException
+   {
+      List<ProbeResult[]> rows = new ArrayList<ProbeResult[]>(artifacts.size());
+      for (int i = 0; i < artifacts.size(); i++)
+      {
+         rows.add(new ProbeResult[probers.size()]);
+      }
+      if (stopOnFirstFound || probers.size() == 1)
+      {
+         probeInOrder(artifacts, rows);
+      }
+      else
+      {
+         probeAtOnce(artifacts, rows);
+      }
+      return rows;
+   }
+
+   private void probeInOrder(List<Artifact> artifacts, List<ProbeResult[]> rows) throws InterruptedException
+   {
+      List<Integer> pending = new ArrayList<Integer>(artifacts.size());
+      for (int i = 0; i < artifacts.size(); i++)
+      {
+         pending.add(i);
+      }
+      for (int repo = 0; repo < probers.size() && !pending.isEmpty(); repo++)
+      {
+         List<Artifact> batch = new ArrayList<Artifact>(pending.size());
+         for (Integer index: pending)
+         {
+            batch.add(artifacts.get(index));
+         }
+         List<ProbeResult> results = createEngine(repo).probeAll(batch);
+         List<Integer> notFound = new ArrayList<Integer>();
+         for (int i = 0; i < results.size(); i++)
+         {
+            ProbeResult result = results.get(i);
+            rows.get(pending.get(i))[repo] = result;
+            if (!stopOnFirstFound || result.isMissing() || result.isFailed())
+            {
+               notFound.add(pending.get(i));
+            }
+         }
+         pending = notFound;
+      }
+   }
+
+   private void probeAtOnce(final List<Artifact> artifacts, List<ProbeResult[]> rows) throws InterruptedException
+   {
+      ExecutorService executor = Executors.newFixedThreadPool(probers.size(), new ThreadFactory()
+      {
+         public Thread newThread(Runnable r)
+         {
+            Thread thread = new Thread(r, "dependency-check-repository");
+            thread.setDaemon(true);
+            return thread;
+         }
+      });
+      try
+      {
+         List<Future<List<ProbeResult>>> futures = new ArrayList<Future<List<ProbeResult>>>(probers.size());
+         for (int repo = 0; repo < probers.size(); repo++)
+         {
+            final ProbeEngine engine = createEngine(repo);
+            futures.add(executor.submit(new Callable<List<ProbeResult>>()
+            {
+               public List<ProbeResult> call() throws Exception
+               {
+                  return engine.probeAll(artifacts);
+               }
+            }));
+         }
+         for (int repo = 0; repo < futures.size(); repo++)
+         {
+            List<ProbeResult> results = ProbeEngine.getResult(futures.get(repo));
+            for (int i = 0; i < results.size(); i++)
+            {
+               rows.get(i)[repo] = results.get(i);
+            }
+         }
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+
+   private ProbeEngine createEngine(int repo)
+   {
+      ProbeEngine engine = new ProbeEngine(probers.get(repo), parallelism, virtualThreads);
+      engine.setLogger(logger);
+      return engine;
+   }
+
+   /**
+    * @return the logger
+    */
+   public Log getLogger()
+   {
+      return logger;
+   }
+
+   /**
+    * @param logger the logger to set
+    */
+   public void setLogger(Log logger)
+   {
+      this.logger = logger;
+   }
+
+}
@@ -0,0 +1,27 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import org.apache.maven.artifact.Artifact;
+
+/**
+ * Checks the pom of an artifact, and any other file of it, like the jar, the sources or the checksums.
+ *
+ * Implementations are called from several threads at the same time.
+ *
+ * @author lgao
+ *
+ */
+public interface RepositoryFileProber extends ArtifactProber
+{
+
+   /**
+    * Checks a file of the artifact, the returned result is never null.
+    *
+    * @param artifact the artifact owning the file
+    * @param path the path of the file, relative to the repository root
+    */
+   ProbeResult probeFile(Artifact artifact, String path);
+
+}
@@ -0,0 +1,285 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.ReaderFactory;
+import org.codehaus.plexus.util.xml.pull.MXParser;
+import org.codehaus.plexus.util.xml.pull.XmlPullParser;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * The versions listed in the <b>maven-metadata.xml</b> of each groupId:artifactId of a remote Maven Repository.
+ *
+ * The metadata of a groupId:artifactId is downloaded once per Maven session, and answers the checks of all its
+ * versions in all modules. Concurrent checks of the same groupId:artifactId wait for one single download.
+ *
+ * A listed version is trusted only once the pom of a listed version of the same groupId:artifactId is confirmed to
+ * exist, see {@link #confirm(Artifact, boolean)}, and never after a listed pom was missing.
+ *
+ * @author lgao
+ *
+ */
+public class RepositoryMetadata
+{
+
+   private static final String METADATA_FILE = "maven-metadata.xml";
+
+   private static final Map<Object, Map<String, RepositoryMetadata>> SESSIONS = new WeakHashMap<Object, Map<String, RepositoryMetadata>>();
+
+   private final String repoURL;
+
+   /**
+    * groupId:artifactId -> listed versions, or null when there is no usable metadata
+    */
+   private final ConcurrentMap<String, FutureTask<Set<String>>> versions = new ConcurrentHashMap<String, FutureTask<Set<String>>>();
+
+   /**
+    * groupId:artifactId -> whether the pom of a listed version was found
+    */
+   private final ConcurrentMap<String, Boolean> confirmed = new ConcurrentHashMap<String, Boolean>();
+
+   private final AtomicLong downloads = new AtomicLong();
+
+   private final AtomicLong lookups = new AtomicLong();
+
+   private final AtomicLong hits = new AtomicLong();
+
+   private Log logger;
+
+   /**
+    * @param repoURL the repository URL, ends with '/'
+    */
+   public RepositoryMetadata(String repoURL)
+   {
+      super();
+      this.repoURL = repoURL;
+   }
+
+   /**
+    * Gets the metadata of the repository in the Maven session, it is created on first use and released together with
+    * the session.
+    */
+   public static RepositoryMetadata forSession(MavenSession session, String repoURL)
+   {
+      Object key = ReactorProbeCache.sessionKey(session);
+      synchronized (SESSIONS)
+      {
+         Map<String, RepositoryMetadata> repos = SESSIONS.get(key);
+         if (repos == null)
+         {
+            repos = new HashMap<String, RepositoryMetadata>();
+            SESSIONS.put(key, repos);
+         }
+         RepositoryMetadata metadata = repos.get(repoURL);
+         if (metadata == null)
+         {
+            metadata = new RepositoryMetadata(repoURL);
+            repos.put(repoURL, metadata);
+         }
+         return metadata;
+      }
+   }
+
+   /**
+    * Whether the version of the artifact is listed in the metadata of its groupId:artifactId.
+    *
+    * @return TRUE if it is listed, FALSE if it is not, null if the repository has no usable metadata of it
+    */
+   public Boolean isListed(final Artifact artifact, final RepositoryClient client) throws InterruptedException
+   {
+      final String ga = artifact.getGroupId() + ":" + artifact.getArtifactId();
+      FutureTask<Set<String>> task = new FutureTask<Set<String>>(new Callable<Set<String>>()
+      {
+         public Set<String> call() throws Exception
+         {
+            return download(artifact, client);
+         }
+      });
+      FutureTask<Set<String>> existing = versions.putIfAbsent(ga, task);
+      if (existing == null)
+      {
+         task.run();
+         existing = task;
+      }
+      Set<String> listed = null;
+      try
+      {
+         listed = existing.get();
+      }
+      catch (ExecutionException e)
+      {
+         // tried again by the next check
+         versions.remove(ga, existing);
+         if (logger != null)
+         {
+            logger.debug("Can't read metadata of: " + ga + " (" + e.getCause() + ")");
+         }
+         return null;
+      }
+      lookups.incrementAndGet();
+      if (listed == null || !listed.contains(artifact.getVersion()))
+      {
+         return listed == null ? null : Boolean.FALSE;
+      }
+      return Boolean.TRUE;
+   }
+
+   /**
+    * Records that a check was answered by the metadata, and its pom was not checked.
+    */
+   public void answered()
+   {
+      hits.incrementAndGet();
+   }
+
+   /**
+    * Whether the listed versions of the groupId:artifactId of the artifact can be trusted without checking their poms.
+    */
+   public boolean isConfirmed(Artifact artifact)
+   {
+      return Boolean.TRUE.equals(confirmed.get(artifact.getGroupId() + ":" + artifact.getArtifactId()));
+   }
+
+   /**
+    * Records whether the pom of a listed version exists, one missing pom makes the metadata of the
+    * groupId:artifactId never trusted again.
+    */
+   public void confirm(Artifact artifact, boolean found)
+   {
+      String ga = artifact.getGroupId() + ":" + artifact.getArtifactId();
+      if (!found)
+      {
+         if (!Boolean.FALSE.equals(confirmed.put(ga, Boolean.FALSE)) && logger != null)
+         {
+            logger.debug("Metadata of: " + ga + " lists version: " + artifact.getVersion() + " without pom, it is not trusted.");
+         }
+         return;
+      }
+      confirmed.putIfAbsent(ga, Boolean.TRUE);
+   }
+
+   private Set<String> download(Artifact artifact, RepositoryClient client) throws IOException, XmlPullParserException
+   {
+      String link = metadataLink(artifact);
+      downloads.incrementAndGet();
+      byte[] content = client.fetch(link);
+      if (content == null)
+      {
+         if (logger != null)
+         {
+            logger.debug("No metadata at: " + link);
+         }
+         return null;
+      }
+      List<String> list = readVersions(content);
+      return list.isEmpty() ? null : new HashSet<String>(list);
+   }
+
+   /**
+    * Reads the versions of &lt;versioning&gt;&lt;versions&gt;, and the &lt;version&gt; of the metadata.
+    */
+   static List<String> readVersions(byte[] content) throws IOException, XmlPullParserException
+   {
+      List<String> list = new ArrayList<String>();
+      XmlPullParser parser = new MXParser();
+      parser.setInput(ReaderFactory.newXmlReader(new ByteArrayInputStream(content)));
+      List<String> path = new ArrayList<String>();
+      int event = parser.getEventType();
+      while (event != XmlPullParser.END_DOCUMENT)
+      {
+         if (event == XmlPullParser.START_TAG)
+         {
+            path.add(parser.getName());
+            String location = path.toString();
+            if ("[metadata, version]".equals(location) || "[metadata, versioning, versions, version]".equals(location))
+            {
+               list.add(parser.nextText().trim());
+               path.remove(path.size() - 1);
+            }
+         }
+         else if (event == XmlPullParser.END_TAG)
+         {
+            path.remove(path.size() - 1);
+         }
+         event = parser.next();
+      }
+      return list;
+   }
+
+   /**
+    * Gets the link of the metadata of the groupId:artifactId of the artifact.
+    */
+   public String metadataLink(Artifact artifact)
+   {
+      return repoURL + artifact.getGroupId().replace('.', '/') + "/" + artifact.getArtifactId() + "/" + METADATA_FILE;
+   }
+
+   /**
+    * @return how many metadata files were requested
+    */
+   public long getDownloads()
+   {
+      return downloads.get();
+   }
+
+   /**
+    * @return how many checks got an answer from the metadata
+    */
+   public long getLookups()
+   {
+      return lookups.get();
+   }
+
+   /**
+    * @return how many checks were answered by the metadata without checking the pom
+    */
+   public long getHits()
+   {
+      return hits.get();
+   }
+
+   /**
+    * @return the repoURL
+    */
+   public String getRepoURL()
+   {
+      return repoURL;
+   }
+
+   /**
+    * @return the logger
+    */
+   public Log getLogger()
+   {
+      return logger;
+   }
+
+   /**
+    * @param logger the logger to set
+    */
+   public void setLogger(Log logger)
+   {
+      this.logger = logger;
+   }
+
+}
@@ -0,0 +1,65 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import org.apache.maven.artifact.Artifact;
+
+/**
+ * Shares the probe results of a repository through the {@link ReactorProbeCache} of current Maven session.
+ *
+ * The other files of the artifacts are shared as well, keyed by the repository and their paths.
+ *
+ * @author lgao
+ *
+ */
+public class SharedArtifactProber implements RepositoryFileProber
+{
+
+   private final RepositoryFileProber delegate;
+
+   private final String repoURL;
+
+   private final ReactorProbeCache cache;
+
+   public SharedArtifactProber(RepositoryFileProber delegate, String repoURL, ReactorProbeCache cache)
+   {
+      super();
+      this.delegate = delegate;
+      this.repoURL = repoURL;
+      this.cache = cache;
+   }
+
+   public ProbeResult probe(Artifact artifact)
+   {
+      try
+      {
+         return cache.probe(CachingArtifactProber.cacheKey(repoURL, artifact), artifact, delegate);
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw new IllegalStateException("Interrupted when checking: " + artifact, e);
+      }
+   }
+
+   public ProbeResult probeFile(Artifact artifact, final String path)
+   {
+      try
+      {
+         return cache.probe(repoURL + " " + path, artifact, new ArtifactProber()
+         {
+            public ProbeResult probe(Artifact artifact)
+            {
+               return delegate.probeFile(artifact, path);
+            }
+         });
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw new IllegalStateException("Interrupted when checking: " + repoURL + path, e);
+      }
+   }
+
+}
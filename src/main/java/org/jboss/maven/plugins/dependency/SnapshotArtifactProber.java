@@ -0,0 +1,72 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import org.apache.maven.artifact.Artifact;
+
+/**
+ * Answers from the {@link ModuleSnapshot} of the last run when the answer is still valid, the other artifacts are
+ * probed and their answers are recorded into the snapshot. The other files of the artifacts are kept in the snapshot
+ * as well.
+ *
+ * @author lgao
+ *
+ */
+public class SnapshotArtifactProber implements RepositoryFileProber
+{
+
+   private final RepositoryFileProber delegate;
+
+   private final String repoURL;
+
+   private final ModuleSnapshot snapshot;
+
+   private final int repo;
+
+   /**
+    * @param delegate the prober of the repository
+    * @param repoURL the repository URL, ends with '/'
+    * @param snapshot the snapshot of current module
+    * @param repo the column of the repository in the snapshot
+    */
+   public SnapshotArtifactProber(RepositoryFileProber delegate, String repoURL, ModuleSnapshot snapshot, int repo)
+   {
+      super();
+      this.delegate = delegate;
+      this.repoURL = repoURL;
+      this.snapshot = snapshot;
+      this.repo = repo;
+   }
+
+   public ProbeResult probe(Artifact artifact)
+   {
+      int code = snapshot.get(repo, artifact);
+      if (code != -1)
+      {
+         return ProbeResult.answered(artifact, repoURL + HttpArtifactProber.artifactPath(artifact), code);
+      }
+      ProbeResult result = delegate.probe(artifact);
+      if (!result.isFailed())
+      {
+         snapshot.put(repo, artifact, result.getResponseCode(), result.getTime());
+      }
+      return result;
+   }
+
+   public ProbeResult probeFile(Artifact artifact, String path)
+   {
+      int code = snapshot.getFile(repo, artifact, path);
+      if (code != -1)
+      {
+         return ProbeResult.answered(artifact, repoURL + path, code);
+      }
+      ProbeResult result = delegate.probeFile(artifact, path);
+      if (!result.isFailed())
+      {
+         snapshot.putFile(repo, artifact, path, result.getResponseCode(), result.getTime());
+      }
+      return result;
+   }
+
+}
@@ -0,0 +1,337 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.ReaderFactory;
+import org.codehaus.plexus.util.xml.pull.MXParser;
+import org.codehaus.plexus.util.xml.pull.XmlPullParser;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * Reads the &lt;dependencyManagement&gt; and &lt;pluginManagement&gt; sections of a pom, and of the selected profile,
+ * without building the Maven Model.
+ *
+ * The pom is read as a stream of XML events, all other elements are skipped except the coordinates, the parent and
+ * the properties.
+ *
+ * @author lgao
+ *
+ */
+public class StreamingPomReader
+{
+
+   private static final String DEFAULT_PLUGIN_GROUP_ID = "org.apache.maven.plugins";
+
+   private final String profile;
+
+   /**
+    * @param profile id of the profile whose sections are read too, may be null
+    */
+   public StreamingPomReader(String profile)
+   {
+      super();
+      this.profile = profile;
+   }
+
+   /**
+    * Reads the managed dependencies and plugins, keyed by groupId:artifactId, the values are versions.
+    *
+    * The entries of the selected profile override the versions of the same keys.
+    */
+   public void read(URL pomURL, Map<String, String> dependencies, Map<String, String> plugins) throws IOException, XmlPullParserException
+   {
+      PomInfo info = read(pomURL);
+      dependencies.putAll(info.getDependencies());
+      plugins.putAll(info.getPlugins());
+   }
+
+   /**
+    * Reads the pom.
+    */
+   public PomInfo read(URL pomURL) throws IOException, XmlPullParserException
+   {
+      InputStream input = null;
+      try
+      {
+         input = pomURL.openStream();
+         XmlPullParser parser = new MXParser();
+         parser.setInput(ReaderFactory.newXmlReader(input));
+         PomInfo info = new PomInfo();
+         read(parser, info);
+         return info;
+      }
+      finally
+      {
+         IOUtil.close(input);
+      }
+   }
+
+   private void read(XmlPullParser parser, PomInfo info) throws IOException, XmlPullParserException
+   {
+      PomInfo profileInfo = new PomInfo();
+      List<String> path = new ArrayList<String>();
+      int event = parser.getEventType();
+      while (event != XmlPullParser.END_DOCUMENT)
+      {
+         if (event == XmlPullParser.START_TAG)
+         {
+            String name = parser.getName();
+            path.add(name);
+            String location = location(path);
+            if ("project/groupId".equals(location))
+            {
+               info.setGroupId(parser.nextText().trim());
+            }
+            else if ("project/artifactId".equals(location))
+            {
+               info.setArtifactId(parser.nextText().trim());
+            }
+            else if ("project/version".equals(location))
+            {
+               info.setVersion(parser.nextText().trim());
+            }
+            else if ("project/parent".equals(location))
+            {
+               String[] parent = readArtifact(parser, null);
+               info.setParentGroupId(parent[0]);
+               info.setParentArtifactId(parent[1]);
+               info.setParentVersion(parent[2]);
+            }
+            else if ("project/properties".equals(location))
+            {
+               readProperties(parser, info.getProperties());
+            }
+            else if ("project/dependencyManagement/dependencies/dependency".equals(location))
+            {
+               addDependency(readArtifact(parser, null), info);
+            }
+            else if ("project/build/pluginManagement/plugins/plugin".equals(location))
+            {
+               addPlugin(readArtifact(parser, DEFAULT_PLUGIN_GROUP_ID), info);
+            }
+            else if ("project/profiles/profile".equals(location))
+            {
+               readProfile(parser, path, profileInfo);
+            }
+            else if (!isOnPath(location))
+            {
+               skip(parser);
+            }
+            else
+            {
+               event = parser.next();
+               continue;
+            }
+            path.remove(path.size() - 1);
+         }
+         else if (event == XmlPullParser.END_TAG)
+         {
+            path.remove(path.size() - 1);
+         }
+         event = parser.next();
+      }
+      info.getProperties().putAll(profileInfo.getProperties());
+      info.getDependencies().putAll(profileInfo.getDependencies());
+      info.getPlugins().putAll(profileInfo.getPlugins());
+      info.getImports().addAll(profileInfo.getImports());
+   }
+
+   /**
+    * Reads the sections of a profile, they are kept only when it is the selected profile.
+    */
+   private void readProfile(XmlPullParser parser, List<String> path, PomInfo selected) throws IOException, XmlPullParserException
+   {
+      if (profile == null)
+      {
+         skip(parser);
+         return;
+      }
+      String id = null;
+      PomInfo info = new PomInfo();
+      int depth = path.size();
+      int event = parser.next();
+      while (!(event == XmlPullParser.END_TAG && path.size() == depth))
+      {
+         if (event == XmlPullParser.START_TAG)
+         {
+            path.add(parser.getName());
+            String location = location(path);
+            if ("project/profiles/profile/id".equals(location))
+            {
+               id = parser.nextText().trim();
+            }
+            else if ("project/profiles/profile/properties".equals(location))
+            {
+               readProperties(parser, info.getProperties());
+            }
+            else if ("project/profiles/profile/dependencyManagement/dependencies/dependency".equals(location))
+            {
+               addDependency(readArtifact(parser, null), info);
+            }
+            else if ("project/profiles/profile/build/pluginManagement/plugins/plugin".equals(location))
+            {
+               addPlugin(readArtifact(parser, DEFAULT_PLUGIN_GROUP_ID), info);
+            }
+            else if (!isOnPath(location))
+            {
+               skip(parser);
+            }
+            else
+            {
+               event = parser.next();
+               continue;
+            }
+            path.remove(path.size() - 1);
+         }
+         else if (event == XmlPullParser.END_TAG)
+         {
+            path.remove(path.size() - 1);
+         }
+         event = parser.next();
+      }
+      if (profile.equals(id))
+      {
+         selected.getProperties().putAll(info.getProperties());
+         selected.getDependencies().putAll(info.getDependencies());
+         selected.getPlugins().putAll(info.getPlugins());
+         selected.getImports().addAll(info.getImports());
+      }
+   }
+
+   private void addDependency(String[] dependency, PomInfo info)
+   {
+      String ga = dependency[0] + ":" + dependency[1];
+      info.getDependencies().put(ga, dependency[2]);
+      if ("import".equals(dependency[4]))
+      {
+         info.getImports().add(ga + ":" + dependency[2]);
+      }
+   }
+
+   private void addPlugin(String[] plugin, PomInfo info)
+   {
+      info.getPlugins().put(plugin[0] + ":" + plugin[1], plugin[2]);
+   }
+
+   /**
+    * Reads the groupId, artifactId, version, type and scope of the current element.
+    */
+   private String[] readArtifact(XmlPullParser parser, String defaultGroupId) throws IOException, XmlPullParserException
+   {
+      String[] artifact = new String[] {defaultGroupId, null, null, null, null};
+      int event = parser.next();
+      while (event != XmlPullParser.END_TAG)
+      {
+         if (event == XmlPullParser.START_TAG)
+         {
+            String name = parser.getName();
+            if ("groupId".equals(name))
+            {
+               artifact[0] = parser.nextText().trim();
+            }
+            else if ("artifactId".equals(name))
+            {
+               artifact[1] = parser.nextText().trim();
+            }
+            else if ("version".equals(name))
+            {
+               artifact[2] = parser.nextText().trim();
+            }
+            else if ("type".equals(name))
+            {
+               artifact[3] = parser.nextText().trim();
+            }
+            else if ("scope".equals(name))
+            {
+               artifact[4] = parser.nextText().trim();
+            }
+            else
+            {
+               skip(parser);
+            }
+         }
+         event = parser.next();
+      }
+      return artifact;
+   }
+
+   /**
+    * Reads the children of the current element as properties.
+    */
+   private void readProperties(XmlPullParser parser, Map<String, String> properties) throws IOException, XmlPullParserException
+   {
+      int event = parser.next();
+      while (event != XmlPullParser.END_TAG)
+      {
+         if (event == XmlPullParser.START_TAG)
+         {
+            String name = parser.getName();
+            properties.put(name, parser.nextText().trim());
+         }
+         event = parser.next();
+      }
+   }
+
+   /**
+    * Skips the current element and all its children, the parser stops at its END_TAG.
+    */
+   private void skip(XmlPullParser parser) throws IOException, XmlPullParserException
+   {
+      int depth = 1;
+      while (depth > 0)
+      {
+         int event = parser.next();
+         if (event == XmlPullParser.START_TAG)
+         {
+            depth++;
+         }
+         else if (event == XmlPullParser.END_TAG)
+         {
+            depth--;
+         }
+      }
+   }
+
+   private static String location(List<String> path)
+   {
+      StringBuilder sb = new StringBuilder();
+      for (String name: path)
+      {
+         if (sb.length() > 0)
+         {
+            sb.append('/');
+         }
+         sb.append(name);
+      }
+      return sb.toString();
+   }
+
+   /**
+    * Whether the element may contain one of the sections to read.
+    */
+   private static boolean isOnPath(String location)
+   {
+      return "project".equals(location)
+            || "project/dependencyManagement".equals(location)
+            || "project/dependencyManagement/dependencies".equals(location)
+            || "project/build".equals(location)
+            || "project/build/pluginManagement".equals(location)
+            || "project/build/pluginManagement/plugins".equals(location)
+            || "project/profiles".equals(location)
+            || "project/profiles/profile/dependencyManagement".equals(location)
+            || "project/profiles/profile/dependencyManagement/dependencies".equals(location)
+            || "project/profiles/profile/build".equals(location)
+            || "project/profiles/profile/build/pluginManagement".equals(location)
+            || "project/profiles/profile/build/pluginManagement/plugins".equals(location);
+   }
+
+}
@@ -0,0 +1,49 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import org.apache.maven.artifact.Artifact;
+
+/**
+ * Records the outcome and the latency of each probe into the {@link CheckMetrics} of the repository, the probes of the
+ * other files of the artifacts are counted as well.
+ *
+ * It wraps the prober which asks the repository, so the answers of the reactor cache, the probe cache and the module
+ * snapshot are not counted, they are reported as cache hits instead. The versions answered by a trusted
+ * <b>maven-metadata.xml</b> are still counted, the first of them with the time of the metadata download.
+ *
+ * @author lgao
+ *
+ */
+public class TimedArtifactProber implements RepositoryFileProber
+{
+
+   private final RepositoryFileProber delegate;
+
+   private final CheckMetrics.RepositoryMetrics metrics;
+
+   public TimedArtifactProber(RepositoryFileProber delegate, CheckMetrics.RepositoryMetrics metrics)
+   {
+      super();
+      this.delegate = delegate;
+      this.metrics = metrics;
+   }
+
+   public ProbeResult probe(Artifact artifact)
+   {
+      long start = System.nanoTime();
+      ProbeResult result = delegate.probe(artifact);
+      metrics.record(result, System.nanoTime() - start);
+      return result;
+   }
+
+   public ProbeResult probeFile(Artifact artifact, String path)
+   {
+      long start = System.nanoTime();
+      ProbeResult result = delegate.probeFile(artifact, path);
+      metrics.record(result, System.nanoTime() - start);
+      return result;
+   }
+
+}
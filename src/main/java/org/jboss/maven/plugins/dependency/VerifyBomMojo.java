@@ -0,0 +1,290 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
+import org.apache.maven.artifact.versioning.InvalidVersionSpecificationException;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.shared.artifact.filter.collection.ArtifactsFilter;
+
+/**
+ *
+ * Goal of 'dependency-check:verify-bom' resolves each managed dependency of a BOM, like the test poms generated by
+ * 'dependency-check:generate-poms' do, but in current Maven process and in parallel.
+ *
+ * Each dependency is resolved with its transitive dependencies, using the versions managed by the BOM. Two kinds of
+ * problems are reported in one pass:
+ *
+ * <ul>
+ *   <li>Unresolvable: the managed dependency, or the pom of one of its dependencies, can't be resolved.</li>
+ *   <li>Conflict: a dependency which is not managed by the BOM is required in different versions by the managed ones.</li>
+ * </ul>
+ *
+ * The problems are printed to console by default, or to an output file by a parameter: <b>-DoutputFile=</b>.
+ *
+ * @author lgao
+ *
+ */
+@Mojo(name = "verify-bom", defaultPhase = LifecyclePhase.VERIFY, requiresProject = true, threadSafe = true)
+public class VerifyBomMojo extends AbstractDependencyCheckMojo
+{
+
+   /**
+    * How many managed dependencies are resolved at the same time.
+    */
+   @Parameter( property = "threads", defaultValue = "8" )
+   private int threads;
+
+   /**
+    * Whether to fail the build when any problem is found.
+    */
+   @Parameter( property = "failOnBomErrors", defaultValue = "false" )
+   private boolean failOnBomErrors;
+
+   @SuppressWarnings( "unchecked" )
+   @Override
+   protected void doExecute() throws MojoExecutionException, MojoFailureException
+   {
+      DependencyManagement depmgmt = project.getDependencyManagement();
+      if (depmgmt == null || depmgmt.getDependencies() == null || depmgmt.getDependencies().isEmpty())
+      {
+         getLog().info("No managed dependencies to verify.");
+         return;
+      }
+      if (!"pom".equals(project.getPackaging()))
+      {
+         getLog().warn("packaging of a BOM should be pom");
+         return;
+      }
+
+      List<String> problems = new ArrayList<String>();
+      // the versions managed by the BOM, keyed like the dependency conflict id of an artifact
+      Map<String, Artifact> managedVersions = new HashMap<String, Artifact>();
+      List<Artifact> entries = new ArrayList<Artifact>();
+      List<Dependency> dependencies = depmgmt.getDependencies();
+      for (Dependency dep: dependencies)
+      {
+         if (dep.getVersion() == null)
+         {
+            problems.add("Unresolvable: " + dep.getManagementKey() + ", no version");
+            continue;
+         }
+         Artifact artifact = null;
+         try
+         {
+            artifact = factory.createDependencyArtifact(dep.getGroupId(), dep.getArtifactId(), VersionRange.createFromVersionSpec(dep.getVersion()),
+                  dep.getType(), dep.getClassifier(), dep.getScope());
+         }
+         catch (InvalidVersionSpecificationException e)
+         {
+            problems.add("Unresolvable: " + dep.getManagementKey() + ":" + dep.getVersion() + ", " + e.getMessage());
+            continue;
+         }
+         managedVersions.put(dep.getManagementKey(), artifact);
+         if (isBomTestDependency(dep))
+         {
+            entries.add(artifact);
+         }
+      }
+
+      getLog().info("Verifying " + entries.size() + " managed dependencies using " + this.threads + " threads.");
+      long start = System.currentTimeMillis();
+      List<EntryResult> results = verifyAll(entries, managedVersions);
+
+      // versions of each dependency not managed by the BOM, and the managed dependencies requiring them
+      Map<String, Map<String, List<String>>> unmanaged = new TreeMap<String, Map<String, List<String>>>();
+      for (EntryResult result: results)
+      {
+         if (result.error != null)
+         {
+            problems.add("Unresolvable: " + gatv(result.entry) + ", " + result.error.getMessage());
+            continue;
+         }
+         for (Artifact artifact: result.closure)
+         {
+            String conflictId = artifact.getDependencyConflictId();
+            if (managedVersions.containsKey(conflictId))
+            {
+               continue;
+            }
+            Map<String, List<String>> versions = unmanaged.get(conflictId);
+            if (versions == null)
+            {
+               versions = new TreeMap<String, List<String>>();
+               unmanaged.put(conflictId, versions);
+            }
+            List<String> requiredBy = versions.get(artifact.getVersion());
+            if (requiredBy == null)
+            {
+               requiredBy = new ArrayList<String>();
+               versions.put(artifact.getVersion(), requiredBy);
+            }
+            requiredBy.add(result.entry.getGroupId() + ":" + result.entry.getArtifactId());
+         }
+      }
+      for (Map.Entry<String, Map<String, List<String>>> entry: unmanaged.entrySet())
+      {
+         if (entry.getValue().size() > 1)
+         {
+            StringBuilder sb = new StringBuilder("Conflict: ").append(entry.getKey());
+            String separator = " ";
+            for (Map.Entry<String, List<String>> version: entry.getValue().entrySet())
+            {
+               sb.append(separator).append(version.getKey()).append(" <- ").append(version.getValue());
+               separator = "; ";
+            }
+            problems.add(sb.toString());
+         }
+      }
+      getLog().info("Verified " + entries.size() + " managed dependencies in " + (System.currentTimeMillis() - start) + " ms, found " + problems.size() + " problems.");
+
+      MissingArtifactSink sink = new MissingArtifactSink(this.outputFile, getLog());
+      try
+      {
+         sink.open();
+         try
+         {
+            for (String problem: problems)
+            {
+               sink.write(problem);
+            }
+         }
+         finally
+         {
+            sink.close();
+         }
+      }
+      catch (IOException e)
+      {
+         throw new MojoExecutionException("Can't write the problems of the BOM", e);
+      }
+      if (failOnBomErrors && !problems.isEmpty())
+      {
+         throw new MojoFailureException("Found " + problems.size() + " problems in BOM: " + project.getId());
+      }
+   }
+
+   /**
+    * Resolves the entries in parallel, returns the results in the order of the entries.
+    */
+   private List<EntryResult> verifyAll(List<Artifact> entries, final Map<String, Artifact> managedVersions) throws MojoExecutionException
+   {
+      List<EntryResult> results = new ArrayList<EntryResult>(entries.size());
+      if (entries.isEmpty())
+      {
+         return results;
+      }
+      ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(this.threads, entries.size())), new ThreadFactory()
+      {
+         public Thread newThread(Runnable r)
+         {
+            Thread thread = new Thread(r, "dependency-check-verify-bom");
+            thread.setDaemon(true);
+            return thread;
+         }
+      });
+      try
+      {
+         List<Future<EntryResult>> futures = new ArrayList<Future<EntryResult>>(entries.size());
+         for (final Artifact entry: entries)
+         {
+            futures.add(executor.submit(new Callable<EntryResult>()
+            {
+               public EntryResult call() throws Exception
+               {
+                  return verify(entry, managedVersions);
+               }
+            }));
+         }
+         for (Future<EntryResult> future: futures)
+         {
+            results.add(future.get());
+         }
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw new MojoExecutionException("Interrupted when verifying BOM", e);
+      }
+      catch (ExecutionException e)
+      {
+         throw new MojoExecutionException("Error when verifying BOM", e.getCause());
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+      return results;
+   }
+
+   /**
+    * Resolves the managed dependency, and collects its dependencies using the managed versions.
+    */
+   @SuppressWarnings( "unchecked" )
+   private EntryResult verify(Artifact entry, Map<String, Artifact> managedVersions)
+   {
+      try
+      {
+         getLog().debug("Verifying managed dependency: " + gatv(entry));
+         this.resolver.resolve(entry, this.remoteRepos, this.getLocal());
+         ArtifactResolutionResult result = this.artifactCollector.collect(Collections.singleton(entry), project.getArtifact(), managedVersions,
+               this.getLocal(), this.remoteRepos, this.artifactMetadataSource, null, Collections.EMPTY_LIST);
+         return new EntryResult(entry, result.getArtifacts(), null);
+      }
+      catch (Exception e)
+      {
+         return new EntryResult(entry, null, e);
+      }
+   }
+
+   @Override
+   protected ArtifactsFilter getMarkedArtifactFilter()
+   {
+      return null;
+   }
+
+   /**
+    * The dependencies collected for one managed dependency, or why it can't be resolved.
+    */
+   private static class EntryResult
+   {
+      private final Artifact entry;
+
+      private final Set<Artifact> closure;
+
+      private final Exception error;
+
+      private EntryResult(Artifact entry, Set<Artifact> closure, Exception error)
+      {
+         super();
+         this.entry = entry;
+         this.closure = closure;
+         this.error = error;
+      }
+   }
+
+}
@@ -0,0 +1,147 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+/**
+ * @author lgao
+ *
+ */
+public class AdaptiveLimiterTest extends TestCase
+{
+
+   public void testStartsLow()
+   {
+      assertEquals(4, new AdaptiveLimiter("host", 16).getLimit());
+      assertEquals(1, new AdaptiveLimiter("host", 2).getLimit());
+      assertEquals(1, new AdaptiveLimiter("host", 0).getMaxLimit());
+   }
+
+   /**
+    * Each answer adds 1/limit, so the limit grows by one per round of answers, up to the maximum.
+    */
+   public void testAdditiveIncrease() throws Exception
+   {
+      AdaptiveLimiter limiter = new AdaptiveLimiter("host", 8);
+      assertEquals(2, limiter.getLimit());
+      answer(limiter, 2);
+      assertEquals(2, limiter.getLimit());
+      answer(limiter, 1);
+      assertEquals(3, limiter.getLimit());
+      answer(limiter, 100);
+      assertEquals(8, limiter.getLimit());
+   }
+
+   /**
+    * The requests in flight when the host starts throttling halve the limit only once.
+    */
+   public void testMultiplicativeDecrease() throws Exception
+   {
+      AdaptiveLimiter limiter = new AdaptiveLimiter("host", 64);
+      answer(limiter, 200);
+      int limit = limiter.getLimit();
+      assertTrue(limit > 16);
+      limiter.acquire();
+      limiter.acquire();
+      limiter.onThrottled(60000);
+      assertEquals(limit / 2, limiter.getLimit());
+      limiter.onThrottled(60000);
+      assertEquals(limit / 2, limiter.getLimit());
+   }
+
+   public void testRelease() throws Exception
+   {
+      final AdaptiveLimiter limiter = new AdaptiveLimiter("host", 4);
+      assertEquals(1, limiter.getLimit());
+      limiter.acquire();
+      final CountDownLatch acquired = new CountDownLatch(1);
+      Thread waiter = new Thread(new Runnable()
+      {
+         public void run()
+         {
+            try
+            {
+               limiter.acquire();
+               acquired.countDown();
+            }
+            catch (Exception e)
+            {
+               // the latch is never counted down
+            }
+         }
+      });
+      waiter.start();
+      assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+      limiter.release();
+      assertTrue(acquired.await(5, TimeUnit.SECONDS));
+      assertEquals(1, limiter.getLimit());
+      waiter.join();
+   }
+
+   public void testCircuitOpens() throws Exception
+   {
+      AdaptiveLimiter limiter = new AdaptiveLimiter("host", 4);
+      failures(limiter, 19);
+      assertFalse(limiter.isOpen());
+      failures(limiter, 1);
+      assertTrue(limiter.isOpen());
+      try
+      {
+         limiter.acquire();
+         fail("The circuit is open");
+      }
+      catch (IOException e)
+      {
+         assertTrue(e.getMessage().contains("host"));
+      }
+   }
+
+   /**
+    * An answer of the host resets the failures.
+    */
+   public void testSuccessResetsFailures() throws Exception
+   {
+      AdaptiveLimiter limiter = new AdaptiveLimiter("host", 4);
+      failures(limiter, 19);
+      answer(limiter, 1);
+      failures(limiter, 19);
+      assertFalse(limiter.isOpen());
+   }
+
+   public void testMaxLimit() throws Exception
+   {
+      AdaptiveLimiter limiter = new AdaptiveLimiter("host", 16);
+      answer(limiter, 200);
+      assertEquals(16, limiter.getLimit());
+      limiter.setMaxLimit(6);
+      assertEquals(6, limiter.getLimit());
+      AdaptiveLimiter shared = AdaptiveLimiter.forHost("limiter.test", 16);
+      assertSame(shared, AdaptiveLimiter.forHost("limiter.test", 2));
+      assertEquals(2, shared.getMaxLimit());
+   }
+
+   private static void answer(AdaptiveLimiter limiter, int times) throws Exception
+   {
+      for (int i = 0; i < times; i++)
+      {
+         limiter.acquire();
+         limiter.onSuccess();
+      }
+   }
+
+   private static void failures(AdaptiveLimiter limiter, int times) throws Exception
+   {
+      for (int i = 0; i < times; i++)
+      {
+         limiter.acquire();
+         limiter.onFailure();
+      }
+   }
+
+}
@@ -0,0 +1,54 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.lang.reflect.Field;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.artifact.Artifact;
+
+/**
+ * @author lgao
+ *
+ */
+public class AggregateCheckMojoTest extends TestCase
+{
+
+   /**
+    * An artifact shared by modules is collected once, its missing line names the modules in the reactor order.
+    */
+   public void testModulesOfMissingArtifact() throws Exception
+   {
+      List<Artifact> artifacts = ProbeEngineTest.artifacts(2);
+      AggregateCheckMojo mojo = new AggregateCheckMojo();
+      Set<Artifact> collected = new HashSet<Artifact>();
+
+      module(mojo, "module-a");
+      mojo.addArtifact(collected, artifacts.get(0), null);
+      module(mojo, "module-b");
+      mojo.addArtifact(collected, artifacts.get(0), null);
+      mojo.addArtifact(collected, artifacts.get(1), null);
+      mojo.addArtifact(collected, artifacts.get(0), null);
+
+      assertEquals(2, collected.size());
+      assertEquals("org.acme:artifact0:jar:1.0 <- module-a, module-b", mojo.missingLine(artifacts.get(0)));
+      assertEquals("org.acme:artifact1:jar:1.0 <- module-b", mojo.missingLine(artifacts.get(1)));
+      assertEquals("org.acme:artifact2:jar:1.0", mojo.missingLine(ProbeEngineTest.artifacts(3).get(2)));
+   }
+
+   /**
+    * Sets the module being collected, as getAllArtifacts does for each module of the reactor.
+    */
+   private static void module(AggregateCheckMojo mojo, String artifactId) throws Exception
+   {
+      Field field = AggregateCheckMojo.class.getDeclaredField("currentModule");
+      field.setAccessible(true);
+      field.set(mojo, artifactId);
+   }
+
+}
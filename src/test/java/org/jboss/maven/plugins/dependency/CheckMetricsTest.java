@@ -0,0 +1,107 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.artifact.Artifact;
+
+/**
+ * @author lgao
+ *
+ */
+public class CheckMetricsTest extends TestCase
+{
+
+   private static final String REPO_URL = "http://repo.example.com/maven2/";
+
+   private File file;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+      file = File.createTempFile("probe-cache", ".bin");
+      file.delete();
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      file.delete();
+      super.tearDown();
+   }
+
+   /**
+    * The timer wraps the prober which asks the repository, the answers of the probe cache are not counted as probes.
+    */
+   public void testCacheHitsAreNotTimed() throws Exception
+   {
+      CheckMetrics metrics = new CheckMetrics("org.acme:project");
+      RepositoryFileProber timed = new TimedArtifactProber(new FoundProber(), metrics.repository(REPO_URL));
+      CachingArtifactProber prober = new CachingArtifactProber(timed, REPO_URL, new PersistentProbeCache(file, -1, -1));
+      Artifact artifact = ProbeEngineTest.artifacts(1).get(0);
+
+      assertFalse(prober.probe(artifact).isMissing());
+      ProbeResult remembered = prober.probe(artifact);
+      assertFalse(remembered.isMissing());
+      assertEquals(REPO_URL + HttpArtifactProber.artifactPath(artifact), remembered.getLink());
+      prober.probeFile(artifact, "org/acme/artifact0/1.0/artifact0-1.0.jar");
+      prober.probeFile(artifact, "org/acme/artifact0/1.0/artifact0-1.0.jar");
+
+      assertEquals(2, prober.getHits());
+      String json = metrics.toJson();
+      assertTrue(json, json.contains("\"probes\": 2, \"found\": 2, \"missing\": 0, \"errors\": 0"));
+   }
+
+   public void testBuckets()
+   {
+      for (int i = 0; i < 8; i++)
+      {
+         assertEquals(i, CheckMetrics.RepositoryMetrics.bucket(i));
+         assertEquals(i, CheckMetrics.RepositoryMetrics.upperBound(i));
+      }
+      for (int i = 8; i < 400; i++)
+      {
+         long upper = CheckMetrics.RepositoryMetrics.upperBound(i);
+         assertEquals(i, CheckMetrics.RepositoryMetrics.bucket(upper));
+         assertEquals(i + 1, CheckMetrics.RepositoryMetrics.bucket(upper + 1));
+      }
+   }
+
+   /**
+    * A percentile is the upper bound of its bucket, never above the max.
+    */
+   public void testPercentiles()
+   {
+      CheckMetrics metrics = new CheckMetrics("org.acme:project");
+      CheckMetrics.RepositoryMetrics repository = metrics.repository(REPO_URL);
+      Artifact artifact = ProbeEngineTest.artifacts(1).get(0);
+      for (int i = 0; i < 99; i++)
+      {
+         repository.record(ProbeResult.answered(artifact, REPO_URL, 200), 1000000L);
+      }
+      repository.record(ProbeResult.answered(artifact, REPO_URL, 404), 100000000L);
+
+      String json = metrics.toJson();
+      assertTrue(json, json.contains("\"probes\": 100, \"found\": 99, \"missing\": 1"));
+      assertTrue(json, json.contains("{\"p50\": 1.023, \"p95\": 1.023, \"p99\": 1.023, \"max\": 100.0}"));
+   }
+
+   private static class FoundProber implements RepositoryFileProber
+   {
+      public ProbeResult probe(Artifact artifact)
+      {
+         return ProbeResult.answered(artifact, REPO_URL + HttpArtifactProber.artifactPath(artifact), 200);
+      }
+
+      public ProbeResult probeFile(Artifact artifact, String path)
+      {
+         return ProbeResult.answered(artifact, REPO_URL + path, 200);
+      }
+   }
+
+}
@@ -0,0 +1,148 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.artifact.Artifact;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * @author lgao
+ *
+ */
+public class CheckReportTest extends TestCase
+{
+
+   private static final String REPO_URL = "http://repo.example.com/maven2/";
+
+   private File dir;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+      dir = File.createTempFile("check-report", "");
+      dir.delete();
+      dir.mkdirs();
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      FileUtils.deleteDirectory(dir);
+      super.tearDown();
+   }
+
+   public void testJsonRecords() throws Exception
+   {
+      List<Artifact> artifacts = ProbeEngineTest.artifacts(3);
+      CheckReport report = new CheckReport(new File(dir, "report.jsonl"), "jsonl");
+      report.open();
+      report.probed(artifacts.get(0), REPO_URL, ProbeResult.answered(artifacts.get(0), REPO_URL + "a.pom", 200, 1024), 1500000L);
+      report.probed(artifacts.get(1), REPO_URL, ProbeResult.answered(artifacts.get(1), REPO_URL + "b.pom", 404), 2000000L);
+      report.excluded(artifacts.get(2), "excluded by \"bom\"");
+      report.close();
+
+      String[] lines = FileUtils.fileRead(report.getFile(), "UTF-8").split("\n");
+      assertEquals(3, lines.length);
+      assertEquals("{\"artifact\": \"org.acme:artifact0:jar:1.0\", \"repository\": \"" + REPO_URL
+            + "\", \"outcome\": \"found\", \"status\": 200, \"latencyMillis\": 1.5, \"bytes\": 1024}", lines[0]);
+      assertEquals("{\"artifact\": \"org.acme:artifact1:jar:1.0\", \"repository\": \"" + REPO_URL
+            + "\", \"outcome\": \"missing\", \"status\": 404, \"latencyMillis\": 2.0, \"link\": \"" + REPO_URL + "b.pom\"}", lines[1]);
+      assertEquals("{\"artifact\": \"org.acme:artifact2:jar:1.0\", \"outcome\": \"excluded\", \"reason\": \"excluded by \\\"bom\\\"\"}", lines[2]);
+      assertEquals(3, report.getRecords());
+   }
+
+   public void testCsvRecords() throws Exception
+   {
+      Artifact artifact = ProbeEngineTest.artifacts(1).get(0);
+      CheckReport report = new CheckReport(new File(dir, "report.csv"), "csv");
+      report.open();
+      report.probed(artifact, REPO_URL, ProbeResult.failed(artifact, REPO_URL + "a.pom", new IOException("refused, \"twice\"")), 1000000L);
+      report.close();
+
+      String[] lines = FileUtils.fileRead(report.getFile(), "UTF-8").split("\n");
+      assertEquals(2, lines.length);
+      assertEquals("artifact,repository,outcome,status,latencyMillis,bytes,reason,failure,link", lines[0]);
+      assertTrue(lines[1], lines[1].startsWith("org.acme:artifact0:jar:1.0," + REPO_URL + ",failed,"));
+      assertTrue(lines[1], lines[1].contains(",\"refused, \"\"twice\"\"\","));
+      assertTrue(lines[1], lines[1].endsWith("," + REPO_URL + "a.pom"));
+   }
+
+   /**
+    * The offsets of the index point at the start of the records, the summary counts the outcomes per repository.
+    */
+   public void testIndexAndSummary() throws Exception
+   {
+      List<Artifact> artifacts = ProbeEngineTest.artifacts(CheckReport.PAGE_SIZE + 10);
+      CheckReport report = new CheckReport(new File(dir, "report.jsonl"), "jsonl");
+      report.open();
+      for (int i = 0; i < artifacts.size(); i++)
+      {
+         Artifact artifact = artifacts.get(i);
+         if (i % 1000 == 7)
+         {
+            report.excluded(artifact, "excluded");
+         }
+         else
+         {
+            report.probed(artifact, REPO_URL, ProbeResult.answered(artifact, REPO_URL, i % 2 == 0 ? 200 : 404), 1000L);
+         }
+      }
+      report.close();
+
+      String[] entries = FileUtils.fileRead(report.getIndexFile(), "UTF-8").split("\n");
+      int pages = 0;
+      int excluded = 0;
+      int missing = 0;
+      RandomAccessFile raf = new RandomAccessFile(report.getFile(), "r");
+      try
+      {
+         for (String entry: entries)
+         {
+            String[] columns = entry.split(" ");
+            raf.seek(Long.parseLong(columns[1]));
+            String line = raf.readLine();
+            if (columns[0].equals("page"))
+            {
+               assertEquals(pages == 0 ? "org.acme:artifact0:" : "org.acme:artifact" + CheckReport.PAGE_SIZE + ":",
+                     line.substring("{\"artifact\": \"".length(), line.indexOf("jar")));
+               pages++;
+            }
+            else
+            {
+               assertTrue(line, line.contains("\"outcome\": \"" + columns[0] + "\""));
+               if (columns[0].equals("excluded"))
+               {
+                  excluded++;
+               }
+               else
+               {
+                  missing++;
+               }
+            }
+         }
+      }
+      finally
+      {
+         raf.close();
+      }
+      assertEquals(2, pages);
+      assertEquals(11, excluded);
+      assertEquals(4994, missing);
+
+      String summary = FileUtils.fileRead(report.getSummaryFile(), "UTF-8");
+      assertTrue(summary, summary.contains("\"records\": " + artifacts.size() + ","));
+      assertTrue(summary, summary.contains("\"bytes\": " + report.getFile().length() + ","));
+      assertTrue(summary, summary.contains("{\"url\": \"" + REPO_URL + "\", \"found\": 5005, \"missing\": 4994, \"failed\": 0}"));
+      assertTrue(summary, summary.contains("\"excluded\": 11,"));
+   }
+
+}
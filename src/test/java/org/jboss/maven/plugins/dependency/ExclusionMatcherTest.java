@@ -0,0 +1,100 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * @author lgao
+ *
+ */
+public class ExclusionMatcherTest extends TestCase
+{
+
+   public void testNoPatterns()
+   {
+      ExclusionMatcher matcher = new ExclusionMatcher();
+      matcher.addAll(null);
+      assertEquals(0, matcher.size());
+      assertFalse(matcher.matches("org.jboss", "jboss-parent", "1"));
+   }
+
+   public void testWholeCoordinates()
+   {
+      ExclusionMatcher matcher = new ExclusionMatcher();
+      matcher.addAll(Arrays.asList("org.jboss", "com.acme:tools", "x.y:z:1.0"));
+      assertEquals(3, matcher.size());
+      assertTrue(matcher.matches("org.jboss", "jboss-parent", "1"));
+      assertTrue(matcher.matches("com.acme", "tools", "2.0"));
+      assertTrue(matcher.matches("x.y", "z", "1.0"));
+      assertFalse(matcher.matches("com.acme", "core", "2.0"));
+      assertFalse(matcher.matches("x.y", "z", "2.0"));
+      assertFalse(matcher.matches("org.apache", "commons", "1"));
+   }
+
+   /**
+    * A pattern excludes all artifacts whose groupId:artifactId:version starts with it.
+    */
+   public void testPrefix()
+   {
+      ExclusionMatcher matcher = new ExclusionMatcher();
+      matcher.addAll(Arrays.asList("org.jboss", "com.acme:tool", "x.y:z:1.0"));
+      assertTrue(matcher.matches("org.jboss.logging", "jboss-logging", "3.1"));
+      assertTrue(matcher.matches("com.acme", "tools", "1"));
+      assertTrue(matcher.matches("x.y", "z", "1.0.1"));
+      assertFalse(matcher.matches("org.jbos", "x", "1"));
+      assertFalse(matcher.matches("com.acme", "too", "1"));
+      assertFalse(matcher.matches("x.y", "z", "1.1"));
+   }
+
+   public void testWildcards()
+   {
+      ExclusionMatcher matcher = new ExclusionMatcher();
+      matcher.add("org.jboss.*:*:*-redhat-*");
+      matcher.add("com.ac?e:core");
+      assertTrue(matcher.matches("org.jboss.logging", "jboss-logging", "3.1.4.GA-redhat-1"));
+      assertFalse(matcher.matches("org.jboss.logging", "jboss-logging", "3.1.4.GA"));
+      assertFalse(matcher.matches("org.apache", "commons", "1.0-redhat-1"));
+      assertTrue(matcher.matches("com.acme", "core", "1"));
+      assertTrue(matcher.matches("com.acne", "core-impl", "1"));
+      assertFalse(matcher.matches("com.ace", "core", "1"));
+      assertFalse(matcher.matches("com.acme", "api", "1"));
+   }
+
+   /**
+    * Patterns added after the automaton is built are still matched.
+    */
+   public void testPatternAddedAfterMatch()
+   {
+      ExclusionMatcher matcher = new ExclusionMatcher();
+      matcher.add("a.*:b");
+      assertFalse(matcher.matches("c.d", "e", "1"));
+      matcher.add("c.*:e");
+      assertTrue(matcher.matches("c.d", "e", "1"));
+      assertTrue(matcher.matches("a.x", "b", "1"));
+   }
+
+   /**
+    * The automaton is rebuilt when it grows too much, the answers do not change.
+    */
+   public void testManyPatterns()
+   {
+      ExclusionMatcher matcher = new ExclusionMatcher();
+      for (int i = 0; i < 2000; i++)
+      {
+         matcher.add("group" + i + ".*:artifact?:" + i + ".*");
+      }
+      for (int round = 0; round < 3; round++)
+      {
+         for (int i = 0; i < 2000; i++)
+         {
+            assertTrue(matcher.matches("group" + i + ".sub", "artifact1", i + ".0"));
+            assertFalse(matcher.matches("group" + i + ".sub", "artifact1", (i + 1) + "0"));
+         }
+      }
+   }
+
+}
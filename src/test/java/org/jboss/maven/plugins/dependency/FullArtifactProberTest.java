@@ -0,0 +1,129 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.versioning.VersionRange;
+
+/**
+ * @author lgao
+ *
+ */
+public class FullArtifactProberTest extends TestCase
+{
+
+   private static final String DIRECTORY = "org/acme/lib/1.0/";
+
+   private ExecutorService executor;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+      executor = Executors.newFixedThreadPool(4);
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      executor.shutdownNow();
+      super.tearDown();
+   }
+
+   public void testJarWithClassifiers()
+   {
+      FullArtifactProber prober = new FullArtifactProber(null, Arrays.asList("sources", " dist:zip"), false, executor);
+      assertEquals(Arrays.asList(DIRECTORY + "lib-1.0.jar", DIRECTORY + "lib-1.0-sources.jar", DIRECTORY + "lib-1.0-dist.zip"),
+            prober.filePaths(artifact("1.0", "jar", null)));
+   }
+
+   public void testChecksums()
+   {
+      FullArtifactProber prober = new FullArtifactProber(null, null, true, executor);
+      assertEquals(Arrays.asList(DIRECTORY + "lib-1.0.pom.sha1", DIRECTORY + "lib-1.0.jar", DIRECTORY + "lib-1.0.jar.sha1"),
+            prober.filePaths(artifact("1.0", "jar", null)));
+      assertEquals(Arrays.asList(DIRECTORY + "lib-1.0.pom.sha1"), prober.filePaths(artifact("1.0", "pom", null)));
+   }
+
+   /**
+    * An artifact with a classifier has only its own file, the configured classifiers belong to the main artifact.
+    */
+   public void testClassifiedArtifact()
+   {
+      FullArtifactProber prober = new FullArtifactProber(null, Arrays.asList("sources"), false, executor);
+      assertEquals(Arrays.asList(DIRECTORY + "lib-1.0-tests.jar"), prober.filePaths(artifact("1.0", "jar", "tests")));
+   }
+
+   public void testSnapshots()
+   {
+      FullArtifactProber prober = new FullArtifactProber(null, null, false, executor);
+      assertEquals(Collections.emptyList(), prober.filePaths(artifact("1.0-SNAPSHOT", "jar", null)));
+      assertEquals(Arrays.asList("org/acme/lib/1.0-SNAPSHOT/lib-1.0-20200101.120000-1.jar"),
+            prober.filePaths(artifact("1.0-20200101.120000-1", "jar", null)));
+   }
+
+   /**
+    * The first missing file in the order of the paths is returned, the files are not checked when the pom is missing.
+    */
+   public void testProbe()
+   {
+      RecordingProber delegate = new RecordingProber(DIRECTORY + "lib-1.0-dist.zip", DIRECTORY + "lib-1.0-sources.jar");
+      FullArtifactProber prober = new FullArtifactProber(delegate, Arrays.asList("sources", "dist:zip"), false, executor);
+      ProbeResult result = prober.probe(artifact("1.0", "jar", null));
+      assertTrue(result.isMissing());
+      assertEquals(DIRECTORY + "lib-1.0-sources.jar", result.getLink());
+
+      RecordingProber missingPom = new RecordingProber(DIRECTORY + "lib-1.0.pom");
+      result = new FullArtifactProber(missingPom, Arrays.asList("sources"), false, executor).probe(artifact("1.0", "jar", null));
+      assertTrue(result.isMissing());
+      assertEquals(Arrays.asList(DIRECTORY + "lib-1.0.pom"), missingPom.probed);
+
+      RecordingProber found = new RecordingProber();
+      assertFalse(new FullArtifactProber(found, Arrays.asList("sources"), false, executor).probe(artifact("1.0", "jar", null)).isMissing());
+      assertEquals(3, found.probed.size());
+   }
+
+   private static Artifact artifact(String version, String type, String classifier)
+   {
+      return new DefaultArtifact("org.acme", "lib", VersionRange.createFromVersion(version), "compile", type, classifier, new DefaultArtifactHandler(type));
+   }
+
+   /**
+    * Records the checked paths, the given paths are missing.
+    */
+   private static class RecordingProber implements RepositoryFileProber
+   {
+      private final List<String> missing;
+
+      private final List<String> probed = Collections.synchronizedList(new ArrayList<String>());
+
+      private RecordingProber(String... missing)
+      {
+         this.missing = Arrays.asList(missing);
+      }
+
+      public ProbeResult probe(Artifact artifact)
+      {
+         return probeFile(artifact, HttpArtifactProber.artifactPath(artifact));
+      }
+
+      public ProbeResult probeFile(Artifact artifact, String path)
+      {
+         probed.add(path);
+         return ProbeResult.answered(artifact, path, missing.contains(path) ? 404 : 200);
+      }
+   }
+
+}
@@ -0,0 +1,155 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.File;
+import java.lang.reflect.Field;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Model;
+import org.apache.maven.plugin.dependency.AbstractDependencyMojo;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * @author lgao
+ *
+ */
+public class GeneratePomMojoTest extends TestCase
+{
+
+   private static final String NAME = "org.acme-acme-bom-1.0-test-bom";
+
+   private File baseDir;
+
+   private File targetDir;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+      baseDir = File.createTempFile("acme-bom", "");
+      baseDir.delete();
+      baseDir.mkdirs();
+      targetDir = new File(baseDir, "target/generated-bom-poms");
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      FileUtils.deleteDirectory(baseDir);
+      super.tearDown();
+   }
+
+   /**
+    * The test dependencies are split evenly into the shard modules of an aggregator which imports the BOM.
+    */
+   public void testShards() throws Exception
+   {
+      MavenProject project = project(5);
+      mojo(project, 2).doExecute();
+
+      File shardsDir = new File(targetDir, NAME);
+      String aggregator = FileUtils.fileRead(new File(shardsDir, "pom.xml"), "UTF-8");
+      assertTrue(aggregator, aggregator.contains("<module>shard-1</module>"));
+      assertTrue(aggregator, aggregator.contains("<module>shard-2</module>"));
+      assertTrue(aggregator, aggregator.contains("<scope>import</scope>"));
+      assertFalse(aggregator, aggregator.contains("<artifactId>lib0</artifactId>"));
+      String first = FileUtils.fileRead(new File(shardsDir, "shard-1/pom.xml"), "UTF-8");
+      String second = FileUtils.fileRead(new File(shardsDir, "shard-2/pom.xml"), "UTF-8");
+      assertEquals(3, count(first, "<dependency>"));
+      assertEquals(2, count(second, "<dependency>"));
+      assertTrue(first, first.contains("<artifactId>lib0</artifactId>"));
+      assertTrue(second, second.contains("<artifactId>lib4</artifactId>"));
+      assertFalse(second, second.contains("<artifactId>imported</artifactId>"));
+      assertTrue(new File(targetDir, NAME + ".sha1").exists());
+   }
+
+   /**
+    * The test pom is not generated again while its inputs do not change.
+    */
+   public void testHashSkip() throws Exception
+   {
+      MavenProject project = project(3);
+      mojo(project, 0).doExecute();
+      File pomFile = new File(targetDir, NAME + ".pom");
+      assertEquals(3, count(FileUtils.fileRead(pomFile, "UTF-8"), "<dependency>") - 1);
+
+      FileUtils.fileWrite(pomFile.getAbsolutePath(), "UTF-8", "untouched");
+      mojo(project, 0).doExecute();
+      assertEquals("untouched", FileUtils.fileRead(pomFile, "UTF-8"));
+
+      project.getDependencyManagement().addDependency(dependency("lib3", null));
+      mojo(project, 0).doExecute();
+      assertEquals(4, count(FileUtils.fileRead(pomFile, "UTF-8"), "<dependency>") - 1);
+   }
+
+   private GeneratePomMojo mojo(MavenProject project, int shards) throws Exception
+   {
+      GeneratePomMojo mojo = new GeneratePomMojo();
+      set(mojo, AbstractDependencyMojo.class, "project", project);
+      set(mojo, GeneratePomMojo.class, "shards", shards);
+      return mojo;
+   }
+
+   /**
+    * Sets a field as Maven injects the parameters.
+    */
+   private static void set(Object mojo, Class<?> type, String name, Object value) throws Exception
+   {
+      Field field = type.getDeclaredField(name);
+      field.setAccessible(true);
+      field.set(mojo, value);
+   }
+
+   /**
+    * A BOM managing lib0 to lib(count - 1), and a BOM it imports.
+    */
+   private MavenProject project(int count)
+   {
+      Model model = new Model();
+      model.setGroupId("org.acme");
+      model.setArtifactId("acme-bom");
+      model.setVersion("1.0");
+      model.setPackaging("pom");
+      DependencyManagement depmgmt = new DependencyManagement();
+      for (int i = 0; i < count; i++)
+      {
+         depmgmt.addDependency(dependency("lib" + i, null));
+      }
+      depmgmt.addDependency(dependency("imported", "import"));
+      model.setDependencyManagement(depmgmt);
+      MavenProject project = new MavenProject(model);
+      project.setFile(new File(baseDir, "pom.xml"));
+      return project;
+   }
+
+   private static Dependency dependency(String artifactId, String scope)
+   {
+      Dependency dependency = new Dependency();
+      dependency.setGroupId("org.acme");
+      dependency.setArtifactId(artifactId);
+      dependency.setVersion("1.0");
+      if (scope != null)
+      {
+         dependency.setType("pom");
+         dependency.setScope(scope);
+      }
+      return dependency;
+   }
+
+   private static int count(String str, String part)
+   {
+      int count = 0;
+      for (int index = str.indexOf(part); index != -1; index = str.indexOf(part, index + part.length()))
+      {
+         count++;
+      }
+      return count;
+   }
+
+}
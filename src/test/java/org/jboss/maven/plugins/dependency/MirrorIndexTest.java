@@ -0,0 +1,125 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * @author lgao
+ *
+ */
+public class MirrorIndexTest extends TestCase
+{
+
+   private static final long HOUR = 60 * 60 * 1000L;
+
+   private File mirror;
+
+   private File indexDirectory;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+      mirror = File.createTempFile("mirror", "");
+      mirror.delete();
+      mirror.mkdirs();
+      indexDirectory = new File(mirror.getAbsolutePath() + "-index");
+      touch("org/acme/lib/1.0/lib-1.0.pom");
+      touch("org/acme/lib/1.0/lib-1.0.jar");
+      touch("org/acme/other/2.0/other-2.0.pom");
+      touch("org/acme/snap/1.0-SNAPSHOT/snap-1.0-SNAPSHOT.pom");
+      touch(".cache/ignored-1.0.pom");
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      FileUtils.deleteDirectory(mirror);
+      FileUtils.deleteDirectory(indexDirectory);
+      super.tearDown();
+   }
+
+   public void testLookup() throws Exception
+   {
+      MirrorIndex index = new MirrorIndex(mirror, indexDirectory, "mirror");
+      index.open(HOUR);
+      assertEquals(3, index.size());
+      assertTrue(index.isComplete());
+      assertTrue(index.contains("org/acme/lib/1.0/lib-1.0.pom"));
+      assertTrue(index.contains("org/acme/other/2.0/other-2.0.pom"));
+      assertFalse(index.contains("org/acme/lib/1.0/lib-1.0.jar"));
+      assertFalse(index.contains("org/acme/lib/2.0/lib-2.0.pom"));
+      assertFalse(index.contains("org/acme/lib/1.0/lib-1.0.po"));
+      assertFalse(index.contains(".cache/ignored-1.0.pom"));
+   }
+
+   /**
+    * An index younger than the max age is reused, an older one is replaced by a new generation.
+    */
+   public void testGenerations() throws Exception
+   {
+      MirrorIndex index = new MirrorIndex(mirror, indexDirectory, "mirror");
+      index.open(HOUR);
+      File first = index.getFile();
+      touch("org/acme/added/1.0/added-1.0.pom");
+
+      MirrorIndex reused = new MirrorIndex(mirror, indexDirectory, "mirror");
+      reused.open(HOUR);
+      assertEquals(first, reused.getFile());
+      assertFalse(reused.contains("org/acme/added/1.0/added-1.0.pom"));
+
+      first.setLastModified(System.currentTimeMillis() - 2 * HOUR);
+      MirrorIndex rebuilt = new MirrorIndex(mirror, indexDirectory, "mirror");
+      rebuilt.open(HOUR);
+      assertFalse(first.equals(rebuilt.getFile()));
+      assertTrue(rebuilt.contains("org/acme/added/1.0/added-1.0.pom"));
+      // the older generation is still readable while it is mapped
+      assertTrue(index.contains("org/acme/lib/1.0/lib-1.0.pom"));
+      assertEquals(1, indexDirectory.listFiles().length);
+   }
+
+   /**
+    * A pom which is not in a complete index is missing without looking at the mirror, the other files are looked up.
+    */
+   public void testFileProber() throws Exception
+   {
+      FileArtifactProber prober = new FileArtifactProber(mirror);
+      MirrorIndex index = new MirrorIndex(mirror, indexDirectory, "mirror");
+      index.open(HOUR);
+      prober.setIndex(index);
+      touch("org/acme/late/1.0/late-1.0.pom");
+
+      assertFalse(prober.probe(artifact("lib", "1.0")).isMissing());
+      assertTrue(prober.probe(artifact("late", "1.0")).isMissing());
+      assertFalse(prober.probe(artifact("snap", "1.0-SNAPSHOT")).isMissing());
+      assertFalse(prober.probeFile(artifact("lib", "1.0"), "org/acme/lib/1.0/lib-1.0.jar").isMissing());
+      assertTrue(prober.probeFile(artifact("lib", "1.0"), "org/acme/lib/1.0/lib-1.0-sources.jar").isMissing());
+
+      prober.setIndex(null);
+      assertFalse(prober.probe(artifact("late", "1.0")).isMissing());
+   }
+
+   private void touch(String path) throws IOException
+   {
+      File file = new File(mirror, path);
+      file.getParentFile().mkdirs();
+      FileUtils.fileWrite(file.getAbsolutePath(), "UTF-8", path);
+   }
+
+   private static Artifact artifact(String artifactId, String version)
+   {
+      return new DefaultArtifact("org.acme", artifactId, VersionRange.createFromVersion(version), "compile", "jar", null, new DefaultArtifactHandler("jar"));
+   }
+
+}
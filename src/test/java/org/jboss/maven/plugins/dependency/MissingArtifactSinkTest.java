@@ -0,0 +1,95 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * @author lgao
+ *
+ */
+public class MissingArtifactSinkTest extends TestCase
+{
+
+   private File file;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+      file = File.createTempFile("missing", ".txt");
+      file.delete();
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      file.delete();
+      super.tearDown();
+   }
+
+   public void testDedupe() throws Exception
+   {
+      MissingArtifactSink sink = new MissingArtifactSink(file, new SystemStreamLog());
+      sink.open();
+      sink.write("g:a:1");
+      sink.write("g:b:1");
+      sink.write("g:a:1");
+      sink.close();
+      assertEquals(Arrays.asList("g:a:1", "g:b:1"), lines());
+   }
+
+   /**
+    * The lines recorded by the previous modules are not recorded again.
+    */
+   public void testRecordedBefore() throws Exception
+   {
+      MissingArtifactSink first = new MissingArtifactSink(file, new SystemStreamLog());
+      first.open();
+      first.write("g:a:1");
+      first.close();
+
+      MissingArtifactSink second = new MissingArtifactSink(file, new SystemStreamLog());
+      second.open();
+      second.write("g:a:1");
+      second.write("g:c:1");
+      second.close();
+      assertEquals(Arrays.asList("g:a:1", "g:c:1"), lines());
+   }
+
+   /**
+    * The lines appended by the modules built at the same time are not recorded again.
+    */
+   public void testAppendedByOthers() throws Exception
+   {
+      MissingArtifactSink first = new MissingArtifactSink(file, new SystemStreamLog());
+      MissingArtifactSink second = new MissingArtifactSink(file, new SystemStreamLog());
+      first.open();
+      second.open();
+      first.write("g:a:1");
+      first.write("g:b:1");
+      second.write("g:b:1");
+      second.write("g:c:1");
+      first.flush();
+      second.flush();
+      first.write("g:c:1");
+      first.write("g:d:1");
+      first.close();
+      second.close();
+      assertEquals(Arrays.asList("g:a:1", "g:b:1", "g:c:1", "g:d:1"), lines());
+   }
+
+   private List<String> lines() throws Exception
+   {
+      return Arrays.asList(FileUtils.fileRead(file).split(System.getProperty("line.separator")));
+   }
+
+}
@@ -0,0 +1,117 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.versioning.VersionRange;
+
+/**
+ * @author lgao
+ *
+ */
+public class ModuleSnapshotTest extends TestCase
+{
+
+   private static final long HOUR = 60 * 60 * 1000L;
+
+   private static final List<String> REPOSITORIES = Arrays.asList("http://repo1.example.com/", "http://repo2.example.com/");
+
+   private static final String PATH = "org/acme/artifact0/1.0/artifact0-1.0-sources.jar";
+
+   private File file;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+      file = File.createTempFile("module-snapshot", ".txt");
+      file.delete();
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      file.delete();
+      super.tearDown();
+   }
+
+   /**
+    * The answers and the files of the artifacts checked in this run are read back, the artifacts gone are dropped.
+    */
+   public void testRoundTrip() throws Exception
+   {
+      List<Artifact> artifacts = ProbeEngineTest.artifacts(3);
+      long now = System.currentTimeMillis();
+      ModuleSnapshot snapshot = new ModuleSnapshot(file, REPOSITORIES, HOUR, HOUR);
+      snapshot.put(0, artifacts.get(0), 200, now);
+      snapshot.putFile(0, artifacts.get(0), PATH, 404, now);
+      snapshot.put(0, artifacts.get(1), 404, now);
+      snapshot.put(1, artifacts.get(1), 200, now);
+      snapshot.put(0, artifacts.get(2), 200, now);
+      snapshot.store(artifacts.subList(0, 2));
+
+      ModuleSnapshot loaded = new ModuleSnapshot(file, REPOSITORIES, HOUR, HOUR);
+      loaded.load();
+      assertEquals(200, loaded.get(0, artifacts.get(0)));
+      assertEquals(-1, loaded.get(1, artifacts.get(0)));
+      assertEquals(404, loaded.getFile(0, artifacts.get(0), PATH));
+      assertEquals(404, loaded.get(0, artifacts.get(1)));
+      assertEquals(200, loaded.get(1, artifacts.get(1)));
+      assertEquals(-1, loaded.get(0, artifacts.get(2)));
+      assertEquals(6, loaded.getLookups());
+      assertEquals(4, loaded.getHits());
+   }
+
+   /**
+    * Found releases never expire, found snapshots and missing artifacts expire after their TTLs.
+    */
+   public void testExpiry() throws Exception
+   {
+      Artifact release = ProbeEngineTest.artifacts(1).get(0);
+      Artifact snapshotArtifact = new DefaultArtifact("org.acme", "snapshot", VersionRange.createFromVersion("1.0-SNAPSHOT"), "compile", "jar", null, new DefaultArtifactHandler("jar"));
+      Artifact missing = new DefaultArtifact("org.acme", "missing", VersionRange.createFromVersion("1.0"), "compile", "jar", null, new DefaultArtifactHandler("jar"));
+      long old = System.currentTimeMillis() - 2 * HOUR;
+      ModuleSnapshot snapshot = new ModuleSnapshot(file, REPOSITORIES, HOUR, HOUR);
+      snapshot.put(0, release, 200, old);
+      snapshot.put(0, snapshotArtifact, 200, old);
+      snapshot.put(0, missing, 404, old);
+      snapshot.store(Arrays.asList(release, snapshotArtifact, missing));
+
+      ModuleSnapshot loaded = new ModuleSnapshot(file, REPOSITORIES, HOUR, HOUR);
+      loaded.load();
+      assertEquals(200, loaded.get(0, release));
+      assertEquals(-1, loaded.get(0, snapshotArtifact));
+      assertEquals(-1, loaded.get(0, missing));
+
+      ModuleSnapshot longer = new ModuleSnapshot(file, REPOSITORIES, 3 * HOUR, 3 * HOUR);
+      longer.load();
+      assertEquals(200, longer.get(0, snapshotArtifact));
+      assertEquals(404, longer.get(0, missing));
+   }
+
+   /**
+    * A snapshot taken against other repositories, or in another order, is not used.
+    */
+   public void testOtherRepositories() throws Exception
+   {
+      Artifact artifact = ProbeEngineTest.artifacts(1).get(0);
+      ModuleSnapshot snapshot = new ModuleSnapshot(file, REPOSITORIES, HOUR, HOUR);
+      snapshot.put(0, artifact, 200, System.currentTimeMillis());
+      snapshot.store(Arrays.asList(artifact));
+
+      ModuleSnapshot reversed = new ModuleSnapshot(file, Arrays.asList(REPOSITORIES.get(1), REPOSITORIES.get(0)), HOUR, HOUR);
+      reversed.load();
+      assertEquals(-1, reversed.get(0, artifact));
+      assertEquals(-1, reversed.get(1, artifact));
+   }
+
+}
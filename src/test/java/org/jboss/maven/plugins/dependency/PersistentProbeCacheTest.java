@@ -0,0 +1,139 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * @author lgao
+ *
+ */
+public class PersistentProbeCacheTest extends TestCase
+{
+
+   private static final long HOUR = 60 * 60 * 1000L;
+
+   private File file;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+      file = File.createTempFile("probe-cache", ".bin");
+      file.delete();
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      file.delete();
+      super.tearDown();
+   }
+
+   public void testRoundTrip() throws Exception
+   {
+      PersistentProbeCache cache = new PersistentProbeCache(file, HOUR, HOUR);
+      cache.put("repo g:found:1", 200);
+      cache.put("repo g:missing:1", 404);
+      assertEquals(200, cache.get("repo g:found:1", false));
+      cache.flush();
+
+      PersistentProbeCache loaded = new PersistentProbeCache(file, HOUR, HOUR);
+      loaded.load();
+      assertEquals(200, loaded.get("repo g:found:1", false));
+      assertEquals(404, loaded.get("repo g:missing:1", false));
+      assertEquals(-1, loaded.get("repo g:unknown:1", false));
+      assertEquals(cache.getTime("repo g:found:1"), loaded.getTime("repo g:found:1"));
+      assertEquals(-1, loaded.getTime("repo g:unknown:1"));
+   }
+
+   /**
+    * Found releases never expire, found snapshots and missing artifacts expire after their TTL.
+    */
+   public void testExpiry() throws Exception
+   {
+      PersistentProbeCache cache = new PersistentProbeCache(file, -1, -1);
+      cache.put("found", 200);
+      cache.put("missing", 404);
+      assertEquals(200, cache.get("found", false));
+      assertEquals(-1, cache.get("found", true));
+      assertEquals(-1, cache.get("missing", false));
+   }
+
+   /**
+    * The latest record of a key wins, also across the modules which append to the same file.
+    */
+   public void testLatestRecordWins() throws Exception
+   {
+      PersistentProbeCache first = new PersistentProbeCache(file, HOUR, HOUR);
+      first.put("key", 404);
+      first.flush();
+      PersistentProbeCache second = new PersistentProbeCache(file, HOUR, HOUR);
+      second.load();
+      second.put("key", 200);
+      second.put("other", 200);
+      second.flush();
+      first.put("third", 404);
+      first.flush();
+
+      PersistentProbeCache loaded = new PersistentProbeCache(file, HOUR, HOUR);
+      loaded.load();
+      assertEquals(200, loaded.get("key", false));
+      assertEquals(200, loaded.get("other", false));
+      assertEquals(404, loaded.get("third", false));
+   }
+
+   /**
+    * The file is rewritten with the live records when it has more than twice as many records.
+    */
+   public void testCompaction() throws Exception
+   {
+      PersistentProbeCache cache = new PersistentProbeCache(file, HOUR, HOUR);
+      for (int round = 0; round < 5; round++)
+      {
+         for (int i = 0; i < 1000; i++)
+         {
+            cache.put("key" + i, round % 2 == 0 ? 200 : 404);
+         }
+         cache.flush();
+      }
+      assertTrue("Cache file is not compacted: " + file.length(), file.length() < 3 * 1000 * 20);
+
+      PersistentProbeCache loaded = new PersistentProbeCache(file, HOUR, HOUR);
+      loaded.load();
+      for (int i = 0; i < 1000; i++)
+      {
+         assertEquals(200, loaded.get("key" + i, false));
+      }
+   }
+
+   /**
+    * A file in another format is ignored on load, and replaced on flush.
+    */
+   public void testInvalidFile() throws Exception
+   {
+      FileOutputStream output = new FileOutputStream(file);
+      try
+      {
+         output.write("not a probe cache".getBytes("UTF-8"));
+      }
+      finally
+      {
+         output.close();
+      }
+      PersistentProbeCache cache = new PersistentProbeCache(file, HOUR, HOUR);
+      cache.load();
+      assertEquals(-1, cache.get("key", false));
+      cache.put("key", 200);
+      cache.flush();
+
+      PersistentProbeCache loaded = new PersistentProbeCache(file, HOUR, HOUR);
+      loaded.load();
+      assertEquals(200, loaded.get("key", false));
+   }
+
+}
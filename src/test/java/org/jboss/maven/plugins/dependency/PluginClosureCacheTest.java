@@ -0,0 +1,108 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.settings.Settings;
+
+/**
+ * @author lgao
+ *
+ */
+public class PluginClosureCacheTest extends TestCase
+{
+
+   public void testClonesShareCache() throws Exception
+   {
+      Settings settings = new Settings();
+      PluginClosureCache first = PluginClosureCache.forSession(session(settings));
+      PluginClosureCache second = PluginClosureCache.forSession(session(settings));
+      assertSame(first, second);
+      Artifact plugin = ProbeEngineTest.artifacts(1).get(0);
+      CountingResolution resolution = new CountingResolution(plugin);
+      first.resolve(plugin, "resolved", true, resolution);
+      second.resolve(plugin, "resolved", true, resolution);
+      assertEquals(1, resolution.calls.get());
+      assertEquals(1, second.getHits());
+   }
+
+   /**
+    * The collected closures of check-coordinates are not reused as resolved ones, nor the other way around.
+    */
+   public void testModesKeptApart() throws Exception
+   {
+      PluginClosureCache cache = PluginClosureCache.forSession(session(new Settings()));
+      Artifact plugin = ProbeEngineTest.artifacts(1).get(0);
+      CountingResolution resolution = new CountingResolution(plugin);
+      cache.resolve(plugin, "collected", true, resolution);
+      cache.resolve(plugin, "resolved", true, resolution);
+      cache.resolve(plugin, "resolved", false, resolution);
+      cache.resolve(plugin, "resolved", true, resolution);
+      assertEquals(3, resolution.calls.get());
+      assertEquals(3, cache.size());
+   }
+
+   public void testFailureForgotten() throws Exception
+   {
+      PluginClosureCache cache = PluginClosureCache.forSession(session(new Settings()));
+      Artifact plugin = ProbeEngineTest.artifacts(1).get(0);
+      final AtomicInteger calls = new AtomicInteger();
+      Callable<Set<Artifact>> failing = new Callable<Set<Artifact>>()
+      {
+         public Set<Artifact> call() throws Exception
+         {
+            calls.incrementAndGet();
+            throw new IOException("Can't resolve");
+         }
+      };
+      for (int i = 0; i < 2; i++)
+      {
+         try
+         {
+            cache.resolve(plugin, "resolved", true, failing);
+            fail("The failure is not thrown");
+         }
+         catch (IOException e)
+         {
+            assertEquals("Can't resolve", e.getMessage());
+         }
+      }
+      assertEquals(2, calls.get());
+   }
+
+   static MavenSession session(Settings settings)
+   {
+      return new MavenSession(null, settings, null, null, null, null, null, new Properties(), new Date());
+   }
+
+   private static class CountingResolution implements Callable<Set<Artifact>>
+   {
+      private final Artifact plugin;
+
+      private final AtomicInteger calls = new AtomicInteger();
+
+      private CountingResolution(Artifact plugin)
+      {
+         this.plugin = plugin;
+      }
+
+      public Set<Artifact> call() throws Exception
+      {
+         calls.incrementAndGet();
+         return Collections.singleton(plugin);
+      }
+   }
+
+}
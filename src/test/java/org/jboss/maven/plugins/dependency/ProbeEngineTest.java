@@ -0,0 +1,103 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.versioning.VersionRange;
+
+/**
+ * @author lgao
+ *
+ */
+public class ProbeEngineTest extends TestCase
+{
+
+   public void testResultsInOrder() throws Exception
+   {
+      List<Artifact> artifacts = artifacts(200);
+      List<ProbeResult> results = new ProbeEngine(new SlowProber(), 16, false).probeAll(artifacts);
+      assertEquals(artifacts.size(), results.size());
+      for (int i = 0; i < artifacts.size(); i++)
+      {
+         assertSame(artifacts.get(i), results.get(i).getArtifact());
+      }
+   }
+
+   public void testSequential() throws Exception
+   {
+      List<Artifact> artifacts = artifacts(20);
+      List<ProbeResult> results = new ProbeEngine(new SlowProber(), 1, false).probeAll(artifacts);
+      for (int i = 0; i < artifacts.size(); i++)
+      {
+         assertSame(artifacts.get(i), results.get(i).getArtifact());
+      }
+   }
+
+   public void testProberFailure() throws Exception
+   {
+      ArtifactProber prober = new ArtifactProber()
+      {
+         public ProbeResult probe(Artifact artifact)
+         {
+            throw new IllegalStateException("broken prober");
+         }
+      };
+      try
+      {
+         new ProbeEngine(prober, 4, false).probeAll(artifacts(10));
+         fail("The failure of the prober is not thrown");
+      }
+      catch (IllegalStateException e)
+      {
+         assertEquals("broken prober", e.getMessage());
+      }
+   }
+
+   static List<Artifact> artifacts(int count)
+   {
+      List<Artifact> artifacts = new ArrayList<Artifact>(count);
+      for (int i = 0; i < count; i++)
+      {
+         artifacts.add(new DefaultArtifact("org.acme", "artifact" + i, VersionRange.createFromVersion("1.0"), "compile", "jar", null, new DefaultArtifactHandler("jar")));
+      }
+      return artifacts;
+   }
+
+   /**
+    * Answers after a random delay, so that the probes complete out of order, the artifacts with an odd number are
+    * missing.
+    */
+   static class SlowProber implements ArtifactProber
+   {
+      private final Random random = new Random(42);
+
+      public ProbeResult probe(Artifact artifact)
+      {
+         try
+         {
+            Thread.sleep(nextDelay());
+         }
+         catch (InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+         }
+         int number = Integer.parseInt(artifact.getArtifactId().substring("artifact".length()));
+         return ProbeResult.answered(artifact, artifact.getArtifactId(), number % 2 == 0 ? 200 : 404);
+      }
+
+      private synchronized int nextDelay()
+      {
+         return random.nextInt(5);
+      }
+   }
+
+}
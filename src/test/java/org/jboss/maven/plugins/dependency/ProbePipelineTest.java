@@ -0,0 +1,171 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+
+/**
+ * @author lgao
+ *
+ */
+public class ProbePipelineTest extends TestCase
+{
+
+   public void testRowsInOrder() throws Exception
+   {
+      List<Artifact> artifacts = ProbeEngineTest.artifacts(100);
+      List<ArtifactProber> probers = Arrays.<ArtifactProber>asList(new ProbeEngineTest.SlowProber(), new ProbeEngineTest.SlowProber());
+      ProbePipeline pipeline = new ProbePipeline(probers, 8, false, false, 4);
+      List<ProbeResult[]> rows = probe(pipeline, artifacts);
+      assertEquals(artifacts, pipeline.getArtifacts());
+      assertEquals(artifacts.size(), rows.size());
+      for (int i = 0; i < artifacts.size(); i++)
+      {
+         assertEquals(2, rows.get(i).length);
+         assertSame(artifacts.get(i), rows.get(i)[0].getArtifact());
+         assertSame(artifacts.get(i), rows.get(i)[1].getArtifact());
+      }
+   }
+
+   /**
+    * The repositories after the first one which has the artifact are not probed.
+    */
+   public void testStopOnFirstFound() throws Exception
+   {
+      List<Artifact> artifacts = ProbeEngineTest.artifacts(50);
+      List<ArtifactProber> probers = Arrays.<ArtifactProber>asList(new ProbeEngineTest.SlowProber(), new ProbeEngineTest.SlowProber());
+      ProbePipeline pipeline = new ProbePipeline(probers, 8, false, true, 4);
+      List<ProbeResult[]> rows = probe(pipeline, artifacts);
+      for (int i = 0; i < artifacts.size(); i++)
+      {
+         ProbeResult[] row = rows.get(i);
+         assertSame(artifacts.get(i), row[0].getArtifact());
+         if (row[0].isMissing())
+         {
+            assertSame(artifacts.get(i), row[1].getArtifact());
+         }
+         else
+         {
+            assertNull(row[1]);
+         }
+      }
+   }
+
+   public void testFilter() throws Exception
+   {
+      List<Artifact> artifacts = ProbeEngineTest.artifacts(10);
+      ProbePipeline pipeline = new ProbePipeline(Arrays.<ArtifactProber>asList(new ProbeEngineTest.SlowProber()), 2, false, false, 4);
+      pipeline.setFilter(new ArtifactFilter()
+      {
+         public boolean include(Artifact artifact)
+         {
+            return !artifact.getArtifactId().endsWith("3");
+         }
+      });
+      List<ProbeResult[]> rows = probe(pipeline, artifacts);
+      assertEquals(9, rows.size());
+      assertFalse(pipeline.getArtifacts().contains(artifacts.get(3)));
+      assertSame(artifacts.get(4), rows.get(3)[0].getArtifact());
+   }
+
+   /**
+    * The artifacts taken before the filter is ready are probed, and filtered when the stream ends.
+    */
+   public void testWaitingFilter() throws Exception
+   {
+      List<Artifact> artifacts = ProbeEngineTest.artifacts(10);
+      ProbePipeline pipeline = new ProbePipeline(Arrays.<ArtifactProber>asList(new ProbeEngineTest.SlowProber()), 2, false, false, 4);
+      final AtomicBoolean ready = new AtomicBoolean();
+      final List<Artifact> filtered = Collections.synchronizedList(new ArrayList<Artifact>());
+      pipeline.setFilter(new ProbePipeline.WaitingFilter()
+      {
+         public boolean include(Artifact artifact)
+         {
+            assertTrue("The filter is called before it is ready", ready.get());
+            filtered.add(artifact);
+            return !artifact.getArtifactId().endsWith("3") && !artifact.getArtifactId().endsWith("8");
+         }
+
+         public boolean isReady()
+         {
+            return ready.get();
+         }
+      });
+      pipeline.start();
+      try
+      {
+         for (int i = 0; i < artifacts.size(); i++)
+         {
+            if (i == 5)
+            {
+               ready.set(true);
+            }
+            pipeline.offer(artifacts.get(i));
+         }
+         List<ProbeResult[]> rows = pipeline.finish();
+         assertEquals(8, rows.size());
+         assertEquals(8, pipeline.getArtifacts().size());
+         assertFalse(pipeline.getArtifacts().contains(artifacts.get(3)));
+         assertFalse(pipeline.getArtifacts().contains(artifacts.get(8)));
+         for (int i = 0; i < rows.size(); i++)
+         {
+            assertSame(pipeline.getArtifacts().get(i), rows.get(i)[0].getArtifact());
+         }
+         assertEquals(artifacts.size(), filtered.size());
+      }
+      finally
+      {
+         pipeline.shutdown();
+      }
+   }
+
+   /**
+    * An offer fails instead of waiting forever when the dispatcher does not drain the queue any more.
+    */
+   public void testDispatcherStopped() throws Exception
+   {
+      ProbePipeline pipeline = new ProbePipeline(Arrays.<ArtifactProber>asList(new ProbeEngineTest.SlowProber()), 2, false, false, 1);
+      pipeline.start();
+      pipeline.shutdown();
+      try
+      {
+         for (Artifact artifact: ProbeEngineTest.artifacts(10))
+         {
+            pipeline.offer(artifact);
+         }
+         fail("The offer is not failed");
+      }
+      catch (IllegalStateException e)
+      {
+         assertTrue(e.getMessage().startsWith("Probe pipeline stopped"));
+      }
+   }
+
+   private static List<ProbeResult[]> probe(ProbePipeline pipeline, List<Artifact> artifacts) throws Exception
+   {
+      pipeline.start();
+      try
+      {
+         for (Artifact artifact: artifacts)
+         {
+            pipeline.offer(artifact);
+         }
+         return pipeline.finish();
+      }
+      finally
+      {
+         pipeline.shutdown();
+      }
+   }
+
+}
@@ -0,0 +1,127 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.settings.Settings;
+
+/**
+ * @author lgao
+ *
+ */
+public class ReactorProbeCacheTest extends TestCase
+{
+
+   /**
+    * Each module is checked with its own clone of the session, the clones keep the settings of the session.
+    */
+   public void testClonesShareCache()
+   {
+      Settings settings = new Settings();
+      MavenSession session = session(settings);
+      MavenSession clone = session(settings);
+      assertSame(ReactorProbeCache.forSession(session), ReactorProbeCache.forSession(clone));
+      assertNotSame(ReactorProbeCache.forSession(session), ReactorProbeCache.forSession(session(new Settings())));
+   }
+
+   /**
+    * Two executions of the check goal, in two clones of the session, send one single request for the same artifact.
+    */
+   public void testSingleFlightAcrossClones() throws Exception
+   {
+      Settings settings = new Settings();
+      final CountDownLatch started = new CountDownLatch(1);
+      final CountDownLatch answer = new CountDownLatch(1);
+      final AtomicInteger requests = new AtomicInteger();
+      RepositoryFileProber repository = new RepositoryFileProber()
+      {
+         public ProbeResult probe(Artifact artifact)
+         {
+            requests.incrementAndGet();
+            started.countDown();
+            try
+            {
+               answer.await(5, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e)
+            {
+               Thread.currentThread().interrupt();
+            }
+            return ProbeResult.answered(artifact, "http://repo/" + artifact.getArtifactId(), 200);
+         }
+
+         public ProbeResult probeFile(Artifact artifact, String path)
+         {
+            return ProbeResult.answered(artifact, "http://repo/" + path, 200);
+         }
+      };
+      final Artifact artifact = ProbeEngineTest.artifacts(1).get(0);
+      final SharedArtifactProber firstModule = new SharedArtifactProber(repository, "http://repo/", ReactorProbeCache.forSession(session(settings)));
+      final SharedArtifactProber secondModule = new SharedArtifactProber(repository, "http://repo/", ReactorProbeCache.forSession(session(settings)));
+      final ProbeResult[] results = new ProbeResult[2];
+      Thread first = new Thread(new Runnable()
+      {
+         public void run()
+         {
+            results[0] = firstModule.probe(artifact);
+         }
+      });
+      first.start();
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      Thread second = new Thread(new Runnable()
+      {
+         public void run()
+         {
+            results[1] = secondModule.probe(artifact);
+         }
+      });
+      second.start();
+      Thread.sleep(100);
+      answer.countDown();
+      first.join();
+      second.join();
+      assertEquals(1, requests.get());
+      assertEquals(200, results[0].getResponseCode());
+      assertEquals(200, results[1].getResponseCode());
+      assertEquals(1, ReactorProbeCache.forSession(session(settings)).getHits());
+   }
+
+   /**
+    * Failed probes are tried again by the next module.
+    */
+   public void testFailureForgotten() throws Exception
+   {
+      ReactorProbeCache cache = ReactorProbeCache.forSession(session(new Settings()));
+      final AtomicInteger requests = new AtomicInteger();
+      ArtifactProber failing = new ArtifactProber()
+      {
+         public ProbeResult probe(Artifact artifact)
+         {
+            requests.incrementAndGet();
+            return ProbeResult.failed(artifact, "http://repo/", new IOException("Connection refused"));
+         }
+      };
+      Artifact artifact = ProbeEngineTest.artifacts(1).get(0);
+      assertTrue(cache.probe("key", artifact, failing).isFailed());
+      assertTrue(cache.probe("key", artifact, failing).isFailed());
+      assertEquals(2, requests.get());
+      assertEquals(0, cache.size());
+   }
+
+   private static MavenSession session(Settings settings)
+   {
+      return new MavenSession(null, settings, null, null, null, null, null, new Properties(), new Date());
+   }
+
+}
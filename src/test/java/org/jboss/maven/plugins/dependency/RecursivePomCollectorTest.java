@@ -0,0 +1,129 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * @author lgao
+ *
+ */
+public class RecursivePomCollectorTest extends TestCase
+{
+
+   private File repository;
+
+   private RecursivePomCollector collector;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+      repository = File.createTempFile("repository", "");
+      repository.delete();
+      repository.mkdirs();
+      collector = new RecursivePomCollector(null, Arrays.asList(repository.toURI().toURL().toString()), null);
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      collector.shutdown();
+      FileUtils.deleteDirectory(repository);
+      super.tearDown();
+   }
+
+   /**
+    * The versions inherited from the parent are interpolated with the properties of the child, the entries of an
+    * imported BOM do not override the ones of the pom.
+    */
+   public void testParentAndImport() throws Exception
+   {
+      pom("parent", null, "<properties><lib.version>1.0</lib.version></properties>",
+          dependency("org.acme", "lib", "${lib.version}", null));
+      pom("bom", null, "", dependency("org.acme", "lib", "0.1", null) + dependency("org.acme", "extra", "3.0", null));
+      URL child = pom("child", "parent", "<properties><lib.version>2.0</lib.version></properties>",
+          dependency("org.acme", "bom", "1", "import"));
+
+      Map<String, String> dependencies = new HashMap<String, String>();
+      Map<String, String> plugins = new HashMap<String, String>();
+      collector.collect(child, dependencies, plugins);
+      assertEquals("2.0", dependencies.get("org.acme:lib"));
+      assertEquals("3.0", dependencies.get("org.acme:extra"));
+      assertTrue(plugins.isEmpty());
+   }
+
+   public void testParentCycle() throws Exception
+   {
+      pom("a", "b", "", "");
+      pom("b", "a", "", "");
+      URL child = pom("child", "a", "", "");
+      assertCycle(child);
+   }
+
+   /**
+    * BOMs importing each other are reported, they are processed in different threads.
+    */
+   public void testImportCycle() throws Exception
+   {
+      pom("c", null, "", dependency("org.acme", "d", "1", "import"));
+      pom("d", null, "", dependency("org.acme", "c", "1", "import"));
+      URL child = pom("child", null, "", dependency("org.acme", "c", "1", "import"));
+      assertCycle(child);
+   }
+
+   private void assertCycle(URL pomURL) throws Exception
+   {
+      try
+      {
+         collector.collect(pomURL, new HashMap<String, String>(), new HashMap<String, String>());
+         fail("The cycle is not reported");
+      }
+      catch (IOException e)
+      {
+         assertTrue(e.getMessage(), e.getMessage().startsWith("Cyclic parent or import of pom"));
+      }
+   }
+
+   /**
+    * Writes the pom of org.acme:artifactId:1 into the repository.
+    */
+   private URL pom(String artifactId, String parent, String properties, String managed) throws IOException
+   {
+      StringBuilder sb = new StringBuilder("<project>\n");
+      if (parent != null)
+      {
+         sb.append("<parent><groupId>org.acme</groupId><artifactId>").append(parent).append("</artifactId><version>1</version></parent>\n");
+      }
+      sb.append("<groupId>org.acme</groupId><artifactId>").append(artifactId).append("</artifactId><version>1</version>\n");
+      sb.append(properties).append("\n");
+      sb.append("<dependencyManagement><dependencies>\n").append(managed).append("</dependencies></dependencyManagement>\n");
+      sb.append("</project>\n");
+      File file = new File(repository, "org/acme/" + artifactId + "/1/" + artifactId + "-1.pom");
+      file.getParentFile().mkdirs();
+      FileUtils.fileWrite(file.getAbsolutePath(), sb.toString());
+      return file.toURI().toURL();
+   }
+
+   private static String dependency(String groupId, String artifactId, String version, String scope)
+   {
+      StringBuilder sb = new StringBuilder("<dependency><groupId>").append(groupId).append("</groupId>");
+      sb.append("<artifactId>").append(artifactId).append("</artifactId><version>").append(version).append("</version>");
+      if (scope != null)
+      {
+         sb.append("<type>pom</type><scope>").append(scope).append("</scope>");
+      }
+      return sb.append("</dependency>\n").toString();
+   }
+
+}
@@ -0,0 +1,252 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.FileUtils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * @author lgao
+ *
+ */
+public class RemotePomCacheTest extends TestCase
+{
+
+   private HttpServer server;
+
+   private PomRepository repository;
+
+   private File directory;
+
+   private URL pomURL;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+      repository = new PomRepository();
+      server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 16);
+      server.createContext("/", repository);
+      server.start();
+      pomURL = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/repo/bom.pom");
+      directory = File.createTempFile("poms", "");
+      directory.delete();
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      repository.stall.countDown();
+      server.stop(0);
+      FileUtils.deleteDirectory(directory);
+      super.tearDown();
+   }
+
+   /**
+    * An unchanged pom is revalidated with its ETag, and not downloaded again.
+    */
+   public void testNotModified() throws Exception
+   {
+      repository.content = "<project>1</project>";
+      repository.etag = "\"v1\"";
+      RemotePomCache cache = new RemotePomCache(directory);
+      File first = cache.fetch(pomURL);
+      File second = cache.fetch(pomURL);
+      assertEquals(first, second);
+      assertEquals("<project>1</project>", FileUtils.fileRead(second));
+      assertEquals(Arrays.asList("200", "304"), repository.answers);
+      assertEquals("\"v1\"", repository.ifNoneMatch.get(1));
+      assertNull(repository.ifNoneMatch.get(0));
+   }
+
+   /**
+    * A changed pom gets a new copy, the copy of the old content and its collected keys are untouched.
+    */
+   public void testChanged() throws Exception
+   {
+      CollectConfig config = new CollectConfig();
+      repository.content = "<project>1</project>";
+      repository.etag = "\"v1\"";
+      RemotePomCache cache = new RemotePomCache(directory);
+      File first = cache.fetch(pomURL);
+      cache.writeCollected(first, config, Arrays.asList("g:a"));
+
+      repository.content = "<project>2</project>";
+      repository.etag = "\"v2\"";
+      File second = cache.fetch(pomURL);
+      assertFalse(first.equals(second));
+      assertEquals("<project>2</project>", FileUtils.fileRead(second));
+      assertEquals("<project>1</project>", FileUtils.fileRead(first));
+      assertEquals(Arrays.asList("g:a"), cache.readCollected(first, config));
+      assertNull(cache.readCollected(second, config));
+      assertEquals(Arrays.asList("200", "200"), repository.answers);
+   }
+
+   public void testCollectedKeys() throws Exception
+   {
+      repository.content = "<project>1</project>";
+      RemotePomCache cache = new RemotePomCache(directory);
+      File pomFile = cache.fetch(pomURL);
+      CollectConfig config = new CollectConfig();
+      assertNull(cache.readCollected(pomFile, config));
+      cache.writeCollected(pomFile, config, Arrays.asList("g:a", "g:b"));
+      assertEquals(Arrays.asList("g:a", "g:b"), cache.readCollected(pomFile, config));
+      CollectConfig withVersion = new CollectConfig();
+      withVersion.setIncludeVersion(true);
+      assertNull(cache.readCollected(pomFile, withVersion));
+      CollectConfig withProfile = new CollectConfig();
+      withProfile.setProfile("release");
+      assertNull(cache.readCollected(pomFile, withProfile));
+   }
+
+   /**
+    * The local copy is used when the server fails.
+    */
+   public void testLocalCopyOnError() throws Exception
+   {
+      repository.content = "<project>1</project>";
+      RemotePomCache cache = new RemotePomCache(directory);
+      File first = cache.fetch(pomURL);
+      repository.code = 500;
+      assertEquals(first, cache.fetch(pomURL));
+   }
+
+   public void testMissing() throws Exception
+   {
+      repository.code = 404;
+      try
+      {
+         new RemotePomCache(directory).fetch(pomURL);
+         fail("Missing pom is not reported");
+      }
+      catch (IOException e)
+      {
+         assertTrue(e.getMessage().contains("404"));
+      }
+   }
+
+   /**
+    * A stalled server fails the fetch instead of blocking it forever.
+    */
+   public void testReadTimeout() throws Exception
+   {
+      repository.content = "<project>1</project>";
+      repository.stalled = true;
+      RemotePomCache cache = new RemotePomCache(directory);
+      cache.setReadTimeout(200);
+      long start = System.currentTimeMillis();
+      try
+      {
+         cache.fetch(pomURL);
+         fail("Stalled server is not reported");
+      }
+      catch (SocketTimeoutException e)
+      {
+         assertTrue(System.currentTimeMillis() - start < 5000);
+      }
+   }
+
+   /**
+    * The loader fails when the poms are not loaded in time, even when the connections have no timeout.
+    */
+   public void testLoaderTimeout() throws Exception
+   {
+      repository.content = "<project>1</project>";
+      repository.stalled = true;
+      ExcludedPomsLoader loader = new ExcludedPomsLoader(Arrays.asList(pomURL.toString()), new CollectConfig(), new RemotePomCache(directory), new SystemStreamLog());
+      loader.setTimeout(300);
+      long start = System.currentTimeMillis();
+      try
+      {
+         loader.get();
+         fail("Stalled pom is not reported");
+      }
+      catch (IOException e)
+      {
+         assertTrue(e.getMessage().contains(pomURL.toString()));
+         assertTrue(System.currentTimeMillis() - start < 5000);
+      }
+   }
+
+   /**
+    * Serves one pom, answers 304 when the ETag matches.
+    */
+   private static class PomRepository implements HttpHandler
+   {
+      private volatile String content;
+
+      private volatile String etag;
+
+      private volatile int code = 200;
+
+      private volatile boolean stalled;
+
+      private final CountDownLatch stall = new CountDownLatch(1);
+
+      private final List<String> answers = Collections.synchronizedList(new ArrayList<String>());
+
+      private final List<String> ifNoneMatch = Collections.synchronizedList(new ArrayList<String>());
+
+      public void handle(HttpExchange exchange) throws IOException
+      {
+         if (stalled)
+         {
+            try
+            {
+               stall.await(10, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e)
+            {
+               Thread.currentThread().interrupt();
+            }
+         }
+         String requested = exchange.getRequestHeaders().getFirst("If-None-Match");
+         ifNoneMatch.add(requested);
+         if (code != 200)
+         {
+            answers.add(String.valueOf(code));
+            exchange.sendResponseHeaders(code, -1);
+         }
+         else if (etag != null && etag.equals(requested))
+         {
+            answers.add("304");
+            exchange.sendResponseHeaders(304, -1);
+         }
+         else
+         {
+            answers.add("200");
+            if (etag != null)
+            {
+               exchange.getResponseHeaders().add("ETag", etag);
+            }
+            byte[] body = content.getBytes("UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            OutputStream output = exchange.getResponseBody();
+            output.write(body);
+            output.close();
+         }
+         exchange.close();
+      }
+   }
+
+}
@@ -0,0 +1,197 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.artifact.Artifact;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * @author lgao
+ *
+ */
+public class RepositoryClientTest extends TestCase
+{
+
+   private HttpServer server;
+
+   private ScriptedRepository repository;
+
+   private String repoURL;
+
+   private Artifact artifact;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+      repository = new ScriptedRepository();
+      server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 16);
+      server.createContext("/", repository);
+      server.start();
+      repoURL = "http://127.0.0.1:" + server.getAddress().getPort() + "/repo/";
+      artifact = ProbeEngineTest.artifacts(1).get(0);
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      server.stop(0);
+      super.tearDown();
+   }
+
+   public void testHead() throws Exception
+   {
+      repository.answer(200, null, null);
+      repository.answer(404, null, null);
+      RepositoryClient client = new RepositoryClient(repoURL);
+      assertFalse(client.check(artifact, repoURL + "a.pom").isMissing());
+      assertTrue(client.check(artifact, repoURL + "b.pom").isMissing());
+      assertEquals(Arrays.asList("HEAD /repo/a.pom", "HEAD /repo/b.pom"), repository.requests);
+   }
+
+   /**
+    * Once the repository rejects HEAD, all checks send a GET of the first byte.
+    */
+   public void testRangedGetAfterHeadRejected() throws Exception
+   {
+      repository.answer(405, null, null);
+      repository.answer(206, "Content-Range", "bytes 0-0/321");
+      repository.answer(206, "Content-Range", "bytes 0-0/654");
+      RepositoryClient client = new RepositoryClient(repoURL);
+      ProbeResult first = client.check(artifact, repoURL + "a.pom");
+      ProbeResult second = client.check(artifact, repoURL + "b.pom");
+      assertEquals(206, first.getResponseCode());
+      assertEquals(321, first.getLength());
+      assertEquals(654, second.getLength());
+      assertEquals(Arrays.asList("HEAD /repo/a.pom", "GET /repo/a.pom bytes=0-0", "GET /repo/b.pom bytes=0-0"), repository.requests);
+   }
+
+   /**
+    * The throttled request is sent again after the Retry-After of the host.
+    */
+   public void testRetryAfter() throws Exception
+   {
+      repository.answer(429, "Retry-After", "1");
+      repository.answer(200, null, null);
+      RepositoryClient client = new RepositoryClient(repoURL);
+      client.setRetries(1);
+      long start = System.currentTimeMillis();
+      assertEquals(200, client.check(artifact, repoURL + "a.pom").getResponseCode());
+      assertTrue(System.currentTimeMillis() - start >= 900);
+      assertEquals(2, repository.requests.size());
+   }
+
+   /**
+    * The last answer is returned once all retries are used.
+    */
+   public void testRetriesUsed() throws Exception
+   {
+      repository.answer(503, "Retry-After", "0");
+      repository.answer(500, null, null);
+      repository.answer(503, "Retry-After", "0");
+      repository.answer(200, null, null);
+      RepositoryClient client = new RepositoryClient(repoURL);
+      client.setRetries(2);
+      assertEquals(503, client.check(artifact, repoURL + "a.pom").getResponseCode());
+      assertEquals(3, repository.requests.size());
+   }
+
+   public void testNoRetries() throws Exception
+   {
+      repository.answer(500, null, null);
+      repository.answer(200, null, null);
+      RepositoryClient client = new RepositoryClient(repoURL);
+      assertEquals(500, client.check(artifact, repoURL + "a.pom").getResponseCode());
+      assertEquals(1, repository.requests.size());
+   }
+
+   /**
+    * The throttled and failed requests tell the limiter of the host.
+    */
+   public void testLimiter() throws Exception
+   {
+      repository.answer(429, "Retry-After", "0");
+      repository.answer(200, null, null);
+      AdaptiveLimiter limiter = new AdaptiveLimiter("127.0.0.1", 64);
+      RepositoryClient client = new RepositoryClient(repoURL);
+      client.setRetries(1);
+      client.setLimiter(limiter);
+      assertEquals(200, client.check(artifact, repoURL + "a.pom").getResponseCode());
+      assertEquals(8, limiter.getLimit());
+   }
+
+   public void testFetch() throws Exception
+   {
+      repository.answer(200, null, null);
+      repository.answer(404, null, null);
+      RepositoryClient client = new RepositoryClient(repoURL);
+      assertEquals("content of /repo/a.xml", new String(client.fetch(repoURL + "a.xml"), "UTF-8"));
+      assertNull(client.fetch(repoURL + "b.xml"));
+   }
+
+   /**
+    * Answers the requests with the scripted response codes and headers in order, records the requests.
+    */
+   private static class ScriptedRepository implements HttpHandler
+   {
+      private final LinkedList<String[]> answers = new LinkedList<String[]>();
+
+      private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+      private synchronized void answer(int code, String header, String value)
+      {
+         answers.add(new String[] {String.valueOf(code), header, value});
+      }
+
+      private synchronized String[] next()
+      {
+         return answers.isEmpty() ? new String[] {"404", null, null} : answers.removeFirst();
+      }
+
+      public void handle(HttpExchange exchange) throws IOException
+      {
+         String path = exchange.getRequestURI().getPath();
+         String range = exchange.getRequestHeaders().getFirst("Range");
+         requests.add(exchange.getRequestMethod() + " " + path + (range == null ? "" : " " + range));
+         String[] answer = next();
+         if (answer[1] != null)
+         {
+            exchange.getResponseHeaders().add(answer[1], answer[2]);
+         }
+         int code = Integer.parseInt(answer[0]);
+         byte[] body = ("content of " + path).getBytes("UTF-8");
+         if ("HEAD".equals(exchange.getRequestMethod()))
+         {
+            exchange.sendResponseHeaders(code, -1);
+         }
+         else
+         {
+            if (range != null)
+            {
+               body = new byte[] {body[0]};
+            }
+            exchange.sendResponseHeaders(code, body.length);
+            OutputStream output = exchange.getResponseBody();
+            output.write(body);
+            output.close();
+         }
+         exchange.close();
+      }
+   }
+
+}
@@ -0,0 +1,80 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.artifact.Artifact;
+
+/**
+ * @author lgao
+ *
+ */
+public class RepositoryFanOutTest extends TestCase
+{
+
+   public void testRowsInOrder() throws Exception
+   {
+      List<Artifact> artifacts = ProbeEngineTest.artifacts(50);
+      List<ArtifactProber> probers = Arrays.<ArtifactProber>asList(new ProbeEngineTest.SlowProber(), new ProbeEngineTest.SlowProber());
+      List<ProbeResult[]> rows = new RepositoryFanOut(probers, 8, false, false).probeAll(artifacts);
+      assertEquals(artifacts.size(), rows.size());
+      for (int i = 0; i < artifacts.size(); i++)
+      {
+         assertSame(artifacts.get(i), rows.get(i)[0].getArtifact());
+         assertSame(artifacts.get(i), rows.get(i)[1].getArtifact());
+      }
+   }
+
+   /**
+    * Only the artifacts not found yet are probed against the next repository.
+    */
+   public void testStopOnFirstFound() throws Exception
+   {
+      List<Artifact> artifacts = ProbeEngineTest.artifacts(20);
+      List<ArtifactProber> probers = Arrays.<ArtifactProber>asList(new ProbeEngineTest.SlowProber(), new ProbeEngineTest.SlowProber());
+      List<ProbeResult[]> rows = new RepositoryFanOut(probers, 4, false, true).probeAll(artifacts);
+      for (int i = 0; i < artifacts.size(); i++)
+      {
+         ProbeResult[] row = rows.get(i);
+         assertEquals(i % 2 == 1, row[0].isMissing());
+         if (row[0].isMissing())
+         {
+            assertSame(artifacts.get(i), row[1].getArtifact());
+         }
+         else
+         {
+            assertNull(row[1]);
+         }
+      }
+   }
+
+   /**
+    * The failure of a prober is thrown as it is, when the repositories are probed at the same time.
+    */
+   public void testProberFailure() throws Exception
+   {
+      ArtifactProber broken = new ArtifactProber()
+      {
+         public ProbeResult probe(Artifact artifact)
+         {
+            throw new IllegalStateException("broken prober");
+         }
+      };
+      List<ArtifactProber> probers = Arrays.<ArtifactProber>asList(new ProbeEngineTest.SlowProber(), broken);
+      try
+      {
+         new RepositoryFanOut(probers, 4, false, false).probeAll(ProbeEngineTest.artifacts(10));
+         fail("The failure of the prober is not thrown");
+      }
+      catch (IllegalStateException e)
+      {
+         assertEquals("broken prober", e.getMessage());
+      }
+   }
+
+}
@@ -0,0 +1,161 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.settings.Settings;
+
+/**
+ * @author lgao
+ *
+ */
+public class RepositoryMetadataTest extends TestCase
+{
+
+   private static final String METADATA = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+         + "<metadata>\n"
+         + "  <groupId>org.acme</groupId>\n"
+         + "  <artifactId>core</artifactId>\n"
+         + "  <version>1.0</version>\n"
+         + "  <versioning>\n"
+         + "    <latest>2.0</latest>\n"
+         + "    <release>2.0</release>\n"
+         + "    <versions>\n"
+         + "      <version>1.0</version>\n"
+         + "      <version> 1.1 </version>\n"
+         + "      <version>2.0</version>\n"
+         + "    </versions>\n"
+         + "    <snapshotVersions>\n"
+         + "      <snapshotVersion><version>3.0-SNAPSHOT</version></snapshotVersion>\n"
+         + "    </snapshotVersions>\n"
+         + "    <lastUpdated>20200101000000</lastUpdated>\n"
+         + "  </versioning>\n"
+         + "</metadata>\n";
+
+   public void testReadVersions() throws Exception
+   {
+      assertEquals(Arrays.asList("1.0", "1.0", "1.1", "2.0"), RepositoryMetadata.readVersions(METADATA.getBytes("UTF-8")));
+   }
+
+   public void testReadNoVersions() throws Exception
+   {
+      assertTrue(RepositoryMetadata.readVersions("<metadata><groupId>g</groupId></metadata>".getBytes("UTF-8")).isEmpty());
+   }
+
+   public void testMetadataLink()
+   {
+      RepositoryMetadata metadata = new RepositoryMetadata("http://repo/");
+      assertEquals("http://repo/org/acme/core/maven-metadata.xml", metadata.metadataLink(artifact("core", "1.0")));
+   }
+
+   /**
+    * The metadata of one groupId:artifactId is downloaded once for all its versions.
+    */
+   public void testListed() throws Exception
+   {
+      RepositoryMetadata metadata = new RepositoryMetadata("http://repo/");
+      CountingClient client = new CountingClient(METADATA);
+      assertEquals(Boolean.TRUE, metadata.isListed(artifact("core", "1.0"), client));
+      assertEquals(Boolean.TRUE, metadata.isListed(artifact("core", "2.0"), client));
+      assertEquals(Boolean.FALSE, metadata.isListed(artifact("core", "4.0"), client));
+      assertEquals(1, client.fetches.get());
+      assertEquals(1, metadata.getDownloads());
+      assertEquals(3, metadata.getLookups());
+      assertEquals(0, metadata.getHits());
+   }
+
+   /**
+    * A hit is counted only when the pom is not checked.
+    */
+   public void testHitsSkipThePom() throws Exception
+   {
+      RepositoryMetadata metadata = new RepositoryMetadata("http://repo/");
+      CountingClient client = new CountingClient(METADATA);
+      HttpArtifactProber prober = new HttpArtifactProber(client);
+      prober.setMetadata(metadata);
+      assertFalse(prober.probe(artifact("core", "1.0")).isMissing());
+      assertEquals(1, client.checks.get());
+      assertEquals(0, metadata.getHits());
+      assertFalse(prober.probe(artifact("core", "1.1")).isMissing());
+      assertFalse(prober.probe(artifact("core", "2.0")).isMissing());
+      assertEquals(1, client.checks.get());
+      assertEquals(2, metadata.getHits());
+      assertTrue(prober.probe(artifact("core", "4.0")).isMissing());
+      assertEquals(2, client.checks.get());
+      assertEquals(2, metadata.getHits());
+   }
+
+   public void testClonesShareMetadata()
+   {
+      Settings settings = new Settings();
+      RepositoryMetadata metadata = RepositoryMetadata.forSession(PluginClosureCacheTest.session(settings), "http://repo/");
+      assertSame(metadata, RepositoryMetadata.forSession(PluginClosureCacheTest.session(settings), "http://repo/"));
+      assertNotSame(metadata, RepositoryMetadata.forSession(PluginClosureCacheTest.session(settings), "http://other/"));
+   }
+
+   public void testNoMetadata() throws Exception
+   {
+      RepositoryMetadata metadata = new RepositoryMetadata("http://repo/");
+      assertNull(metadata.isListed(artifact("core", "1.0"), new CountingClient(null)));
+   }
+
+   /**
+    * A listed version is trusted once a listed pom was found, and never after a listed pom was missing.
+    */
+   public void testConfirm()
+   {
+      RepositoryMetadata metadata = new RepositoryMetadata("http://repo/");
+      assertFalse(metadata.isConfirmed(artifact("core", "1.0")));
+      metadata.confirm(artifact("core", "1.0"), true);
+      assertTrue(metadata.isConfirmed(artifact("core", "2.0")));
+      metadata.confirm(artifact("core", "1.1"), false);
+      assertFalse(metadata.isConfirmed(artifact("core", "2.0")));
+      metadata.confirm(artifact("core", "2.0"), true);
+      assertFalse(metadata.isConfirmed(artifact("core", "2.0")));
+   }
+
+   private static Artifact artifact(String artifactId, String version)
+   {
+      return new DefaultArtifact("org.acme", artifactId, VersionRange.createFromVersion(version), "compile", "jar", null, new DefaultArtifactHandler("jar"));
+   }
+
+   private static class CountingClient extends RepositoryClient
+   {
+      private final String content;
+
+      private final AtomicInteger fetches = new AtomicInteger();
+
+      private final AtomicInteger checks = new AtomicInteger();
+
+      private CountingClient(String content)
+      {
+         super("http://repo/");
+         this.content = content;
+      }
+
+      @Override
+      public byte[] fetch(String link) throws IOException
+      {
+         fetches.incrementAndGet();
+         return content == null ? null : content.getBytes("UTF-8");
+      }
+
+      @Override
+      public ProbeResult check(Artifact artifact, String link) throws IOException
+      {
+         checks.incrementAndGet();
+         return ProbeResult.answered(artifact, link, "4.0".equals(artifact.getVersion()) ? 404 : 200);
+      }
+   }
+
+}
@@ -0,0 +1,103 @@
+/**
+ *
+ */
+package org.jboss.maven.plugins.dependency;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks the streaming reader collects the same keys as the Maven Model.
+ *
+ * @author lgao
+ *
+ */
+public class StreamingPomReaderTest extends TestCase
+{
+
+   private URL pomURL;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+      pomURL = getClass().getClassLoader().getResource("managed-pom.xml");
+      assertNotNull(pomURL);
+   }
+
+   public void testNoProfile() throws Exception
+   {
+      List<String> keys = assertSameKeys(null, true);
+      assertEquals(Arrays.asList(
+            "org.acme:acme-core:${version.core}",
+            "org.acme:acme-api:1.1",
+            "org.acme:acme-bom:1.2",
+            "org.apache.maven.plugins:maven-compiler-plugin:2.5",
+            "org.acme:acme-maven-plugin:1.0"), keys);
+   }
+
+   public void testProfileOverrides() throws Exception
+   {
+      List<String> keys = assertSameKeys("release", true);
+      assertTrue(keys.contains("org.acme:acme-api:1.1-release"));
+      assertTrue(keys.contains("org.acme:acme-release:3.0"));
+      assertTrue(keys.contains("org.apache.maven.plugins:maven-compiler-plugin:3.1"));
+      assertTrue(keys.contains("org.acme:acme-release-plugin:1.0"));
+      assertFalse(keys.contains("org.acme:acme-api:1.1"));
+      assertFalse(keys.contains("org.acme:acme-core:2.1"));
+   }
+
+   public void testOtherProfile() throws Exception
+   {
+      List<String> keys = assertSameKeys("other", true);
+      assertTrue(keys.contains("org.acme:acme-core:2.1"));
+      assertFalse(keys.contains("org.acme:acme-release:3.0"));
+   }
+
+   public void testUnknownProfile() throws Exception
+   {
+      assertEquals(assertSameKeys(null, true), assertSameKeys("unknown", true));
+   }
+
+   public void testWithoutVersion() throws Exception
+   {
+      List<String> keys = assertSameKeys("release", false);
+      assertTrue(keys.contains("org.acme:acme-api"));
+      assertFalse(keys.contains("org.acme:not-managed"));
+      assertFalse(keys.contains("org.acme:not-managed-plugin"));
+      assertFalse(keys.contains("org.acme:plugin-dependency"));
+      assertFalse(keys.contains("org.acme:acme-excluded"));
+   }
+
+   public void testImports() throws Exception
+   {
+      PomInfo info = new StreamingPomReader(null).read(pomURL);
+      assertEquals("org.acme", info.getGroupId());
+      assertEquals("acme-parent", info.getArtifactId());
+      assertEquals("1.0", info.getVersion());
+      assertEquals("2.0", info.getProperties().get("version.core"));
+      assertTrue(info.getImports().contains("org.acme:acme-bom:1.2"));
+   }
+
+   private List<String> assertSameKeys(String profile, boolean includeVersion) throws Exception
+   {
+      MavenDependencyCollector collector = new MavenDependencyCollector();
+      List<String> fromModel = collector.collectDeclaredArtifacts(pomURL, config(profile, includeVersion, false));
+      List<String> streamed = collector.collectDeclaredArtifacts(pomURL, config(profile, includeVersion, true));
+      assertEquals(fromModel, streamed);
+      return streamed;
+   }
+
+   private static CollectConfig config(String profile, boolean includeVersion, boolean streaming)
+   {
+      CollectConfig config = new CollectConfig();
+      config.setProfile(profile);
+      config.setIncludeVersion(includeVersion);
+      config.setStreaming(streaming);
+      return config;
+   }
+
+}